@@ -0,0 +1,1046 @@
+package com.example.autoorganizer;
+
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.beans.binding.Bindings;
+import javafx.beans.property.*;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.input.DragEvent;
+import javafx.scene.input.Dragboard;
+import javafx.scene.input.TransferMode;
+import javafx.scene.layout.*;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.Stage;
+import org.controlsfx.control.Notifications;
+import org.controlsfx.control.StatusBar;
+import org.controlsfx.control.TaskProgressView;
+import org.kordamp.bootstrapfx.BootstrapFX;
+import org.kordamp.ikonli.javafx.FontIcon;
+import org.kordamp.ikonli.fontawesome5.FontAwesomeSolid;
+import net.synedra.validatorfx.Validator;
+import java.io.*;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import com.example.autoorganizer.engine.*;
+
+public class DoomSorterApp extends Application {
+
+    private final Path configDir = Settings.DEFAULT_DIR;
+    private final Path configFile = configDir.resolve("config.json");
+    private Settings settings;
+    private Engine engine;
+    private FolderWatcher watcher;
+    private final JobQueue jobs = new JobQueue(() -> settings.tasksPerDisk);
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, r -> {
+        Thread t = new Thread(r);
+        t.setDaemon(true);
+        t.setName("DoomSorter-Scheduler");
+        return t;
+    });
+
+    private StatusBar statusBar;
+    private TaskProgressView<MeteredTask<?>> taskProgressView;
+
+    @Override
+    public void start(Stage stage) {
+        loadOrInitSettings();
+
+        TabPane tabs = new TabPane(
+                tabOrganizer(),
+                tabRenamer(),
+                tabDuplicates(),
+                tabBackup(),
+                tabSettings()
+        );
+        tabs.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
+
+        statusBar = new StatusBar();
+        statusBar.setText("Készen áll.");
+        taskProgressView = new TaskProgressView<>();
+        taskProgressView.setPrefHeight(80);
+        Bindings.bindContent(taskProgressView.getTasks(), jobs.tasks());
+        Label queueState = new Label();
+        queueState.textProperty().bind(Bindings.format("Fut: %d · Sorban: %d", jobs.runningProperty(), jobs.queuedProperty()));
+        statusBar.getRightItems().add(queueState);
+
+        VBox root = new VBox(tabs, taskProgressView, statusBar);
+        VBox.setVgrow(tabs, Priority.ALWAYS);
+        root.getStylesheets().add(BootstrapFX.bootstrapFXStylesheet());
+        root.setPadding(new Insets(12));
+        root.setSpacing(8);
+
+        Scene scene = new Scene(root, 1100, 720);
+        stage.setTitle("DoomSorter — fájlrendező / renamer / backup / duplikátum");
+        stage.setScene(scene);
+        stage.show();
+
+        scheduleBackupIfEnabled();
+        offerRecovery();
+    }
+
+    /** A run that died with the app is offered for resuming or rolling back instead of starting over. */
+    private void offerRecovery() {
+        Journal.Info info;
+        try {
+            info = engine.interrupted();
+        } catch (IOException e) {
+            toast("Hiba", "A napló nem olvasható: " + e.getMessage());
+            return;
+        }
+        if (info == null) return;
+        ButtonType resume = new ButtonType("Folytatás", ButtonBar.ButtonData.OK_DONE);
+        ButtonType rollback = new ButtonType(info.kind() == Journal.Kind.DELETE ? "Leállítás" : "Visszagörgetés", ButtonBar.ButtonData.OTHER);
+        Alert a = new Alert(Alert.AlertType.WARNING, null, resume, rollback, ButtonType.CANCEL);
+        a.setHeaderText("Félbeszakadt művelet");
+        a.setContentText(kindName(info.kind()) + " (" + info.started().atZone(ZoneId.systemDefault()).toLocalDateTime().withNano(0)
+                + "): " + info.committed() + " / " + info.total() + " fájl biztosan kész. Folytatod, vagy visszaállítod az eredeti állapotot?");
+        a.showAndWait().ifPresent(bt -> {
+            if (bt == resume) runJournal("Folytatás", engine::resume, "Folytatva");
+            else if (bt == rollback) runJournal("Visszagörgetés", engine::rollback, "Visszagörgetve");
+        });
+    }
+
+    private interface JournalAction {
+        MovePlan.Result run(ProgressMeter meter) throws Exception;
+    }
+
+    private void runJournal(String title, JournalAction action, String doneText) {
+        MeteredTask<MovePlan.Result> task = new MeteredTask<>(title, true) {
+            @Override
+            protected MovePlan.Result call(ProgressMeter meter) throws Exception {
+                return action.run(meter);
+            }
+        };
+        runTask(task, JobQueue.Priority.HIGH, List.of(), () -> {
+            MovePlan.Result r = task.getValue();
+            toast("Kész!", doneText + ", " + r.moved() + " fájl" + (r.errors().isEmpty() ? "" : ", " + r.errors().size() + " hiba"));
+        });
+    }
+
+    private static String kindName(Journal.Kind kind) {
+        return switch (kind) {
+            case ORGANIZE -> "Rendezés";
+            case RENAME -> "Átnevezés";
+            case DELETE -> "Törlés";
+        };
+    }
+
+    private Tab tabOrganizer() {
+        var dirField = new TextField();
+        dirField.setPromptText("Válassz mappát vagy dobd ide…");
+        Button pickBtn = btn("Mappa kiválasztása", FontAwesomeSolid.FOLDER_OPEN, () -> {
+            DirectoryChooser dc = new DirectoryChooser();
+            File f = dc.showDialog(null);
+            if (f != null) dirField.setText(f.getAbsolutePath());
+        });
+        HBox pickRow = row(dirField, pickBtn);
+
+        addDirDragDrop(dirField);
+
+        java.util.function.Supplier<Planner> organize = () -> {
+            Path dir = Path.of(dirField.getText().trim());
+            return meter -> engine.planOrganize(dir, meter);
+        };
+        Button runBtn = btn("Rendezés indítása", FontAwesomeSolid.MAGIC, () -> {
+            if (isDir(dirField)) runMoves("Rendezés", Path.of(dirField.getText().trim()), organize.get(), false, "Rendezés befejezve");
+        });
+        Button previewBtn = btn("Előnézet", FontAwesomeSolid.LIST, () -> {
+            if (isDir(dirField)) runMoves("Rendezés", Path.of(dirField.getText().trim()), organize.get(), true, "Rendezés befejezve");
+        });
+
+        Button undoBtn = btn("Utolsó művelet visszavonása", FontAwesomeSolid.UNDO, () -> {
+            try {
+                Journal.Info last = engine.lastRun();
+                if (last == null || last.kind() == Journal.Kind.DELETE) {
+                    toast("Nincs mit visszavonni", last == null ? "Még nem volt rendezés vagy átnevezés" : "A törlés nem vonható vissza");
+                    return;
+                }
+                ConfirmDialog.show(kindName(last.kind()) + " visszavonása: " + last.total() + " fájl kerül vissza. Mehet?",
+                        () -> runJournal("Visszavonás", engine::undo, "Visszavonva"));
+            } catch (IOException e) {
+                toast("Hiba", e.getMessage());
+            }
+        });
+
+        ToggleButton watchBtn = new ToggleButton("Figyelés (folyamatos rendezés)", new FontIcon(FontAwesomeSolid.EYE));
+        watchBtn.getStyleClass().setAll("btn", "btn-default");
+        watchBtn.selectedProperty().addListener((o, was, on) -> {
+            if (on) {
+                Path base = Path.of(dirField.getText().trim());
+                if (!Files.isDirectory(base) || !startWatching(base)) watchBtn.setSelected(false);
+            } else {
+                stopWatching();
+            }
+        });
+        dirField.disableProperty().bind(watchBtn.selectedProperty());
+
+        VBox box = section("Fájl-rendező", pickRow, row(runBtn, previewBtn, undoBtn, watchBtn));
+        return new Tab("Rendező", box);
+    }
+
+    private boolean startWatching(Path base) {
+        stopWatching();
+        try {
+            watcher = engine.watch(base, new FolderWatcher.Listener() {
+                @Override
+                public void handled(Path file) {
+                    Platform.runLater(() -> statusBar.setText("Figyelés: " + file.getFileName() + " rendezve"));
+                }
+
+                @Override
+                public void failed(Path file, Exception e) {
+                    Platform.runLater(() -> statusBar.setText("Figyelés hiba: " + file + ": " + e.getMessage()));
+                }
+            });
+            statusBar.setText("Figyelés: " + base + " (" + watcher.watchedDirectories() + " mappa)");
+            return true;
+        } catch (IOException e) {
+            toast("Hiba", "Nem sikerült figyelni: " + e.getMessage());
+            stopWatching();
+            return false;
+        }
+    }
+
+    private void stopWatching() {
+        if (watcher == null) return;
+        try {
+            watcher.close();
+        } catch (IOException ignored) {
+        }
+        watcher = null;
+        statusBar.setText("Figyelés leállítva.");
+    }
+
+    private Tab tabRenamer() {
+        var dirField = new TextField();
+        dirField.setPromptText("Képek mappája");
+        Button pickBtn = btn("Mappa kiválasztása", FontAwesomeSolid.FOLDER_OPEN, () -> {
+            DirectoryChooser dc = new DirectoryChooser();
+            File f = dc.showDialog(null);
+            if (f != null) dirField.setText(f.getAbsolutePath());
+        });
+        addDirDragDrop(dirField);
+
+        ToggleGroup mode = new ToggleGroup();
+        RadioButton rbDate = new RadioButton("Dátum/idő alapján");
+        rbDate.setToggleGroup(mode);
+        rbDate.setSelected(true);
+        RadioButton rbPrefix = new RadioButton("Prefix + sorszám");
+        rbPrefix.setToggleGroup(mode);
+
+        var datePattern = new TextField("yyyyMMdd_HHmmss");
+        var prefixField = new TextField("Nyaralas");
+        Spinner<Integer> startIndex = new Spinner<>(1, Integer.MAX_VALUE, 1);
+        CheckBox recursive = new CheckBox("Almappákban is");
+
+        java.util.function.Supplier<Planner> rename = () -> {
+            Path dir = Path.of(dirField.getText().trim());
+            boolean byDate = rbDate.isSelected();
+            String pattern = datePattern.getText().trim();
+            String prefix = prefixField.getText().trim();
+            int start = startIndex.getValue();
+            boolean deep = recursive.isSelected();
+            return meter -> byDate ? engine.planRenameByDate(dir, pattern, deep, meter) : engine.planRenameNumbered(dir, prefix, start, deep, meter);
+        };
+        Button runBtn = btn("Átnevezés", FontAwesomeSolid.SYNC, () -> {
+            if (isDir(dirField)) runMoves("Átnevezés", Path.of(dirField.getText().trim()), rename.get(), false, "Átnevezés befejezve");
+        });
+        Button previewBtn = btn("Előnézet", FontAwesomeSolid.LIST, () -> {
+            if (isDir(dirField)) runMoves("Átnevezés", Path.of(dirField.getText().trim()), rename.get(), true, "Átnevezés befejezve");
+        });
+
+        Validator validator = new Validator();
+        validator.createCheck().withMethod(c -> {
+            if (dirField.getText().trim().isEmpty()) c.error("Mappa kötelező");
+        }).decorates(dirField).immediate();
+
+        GridPane gp = new GridPane();
+        gp.setHgap(8);
+        gp.setVgap(8);
+        gp.add(new Label("Mappa:"), 0, 0);
+        gp.add(row(dirField, pickBtn, recursive), 1, 0);
+        gp.add(new Label("Mód:"), 0, 1);
+        gp.add(row(rbDate, rbPrefix), 1, 1);
+        gp.add(new Label("Dátumminta (EXIF / videó dátum):"), 0, 2);
+        gp.add(datePattern, 1, 2);
+        gp.add(new Label("Prefix / induló sorszám:"), 0, 3);
+        gp.add(row(prefixField, startIndex), 1, 3);
+
+        VBox box = section("Kép-átnevező", gp, row(runBtn, previewBtn));
+        return new Tab("Renamer", box);
+    }
+
+    private interface Planner {
+        MovePlan plan(ProgressMeter meter) throws Exception;
+    }
+
+    private boolean isDir(TextField field) {
+        if (Files.isDirectory(Path.of(field.getText().trim()))) return true;
+        toast("Hibás mappa", "Adj meg létező mappát");
+        return false;
+    }
+
+    /** Plans the moves first; with {@code preview} the plan is shown and only runs once confirmed. */
+    private void runMoves(String title, Path dir, Planner planner, boolean preview, String doneText) {
+        MeteredTask<MovePlan> plan = new MeteredTask<>(title + ": tervezés") {
+            @Override
+            protected MovePlan call(ProgressMeter meter) throws Exception {
+                return planner.plan(meter);
+            }
+        };
+        // a preview is waited for, so it goes ahead of long runs
+        runTask(plan, preview ? JobQueue.Priority.HIGH : JobQueue.Priority.NORMAL, List.of(dir), () -> {
+            if (preview) PlanDialog.show(plan.getValue(), () -> executePlan(title, dir, plan.getValue(), doneText));
+            else executePlan(title, dir, plan.getValue(), doneText);
+        });
+    }
+
+    private void executePlan(String title, Path dir, MovePlan plan, String doneText) {
+        MeteredTask<MovePlan.Result> task = new MeteredTask<>(title, true) {
+            @Override
+            protected MovePlan.Result call(ProgressMeter meter) throws Exception {
+                return engine.execute(plan, meter);
+            }
+        };
+        // category folders may be on other disks, which the run then writes to
+        Set<Path> disks = new HashSet<>();
+        disks.add(dir);
+        for (Path d : plan.targetDirs()) if (!d.startsWith(dir)) disks.add(d);
+        runTask(task, JobQueue.Priority.NORMAL, disks, () -> {
+            MovePlan.Result r = task.getValue();
+            toast("Kész!", doneText + ", " + r.moved() + " fájl áthelyezve" + (r.errors().isEmpty() ? "" : ", " + r.errors().size() + " hiba"));
+        });
+    }
+
+    private Tab tabDuplicates() {
+        TableView<DupeRow> table = new TableView<>();
+        TableColumn<DupeRow, String> hashCol = new TableColumn<>("Hash");
+        hashCol.setCellValueFactory(new PropertyValueFactory<>("hash"));
+        hashCol.setPrefWidth(380);
+        TableColumn<DupeRow, String> pathCol = new TableColumn<>("Fájl");
+        pathCol.setCellValueFactory(new PropertyValueFactory<>("path"));
+        pathCol.setPrefWidth(600);
+        TableColumn<DupeRow, Long> sizeCol = new TableColumn<>("Méret");
+        sizeCol.setCellValueFactory(new PropertyValueFactory<>("size"));
+        sizeCol.setPrefWidth(100);
+        TableColumn<DupeRow, Long> wastedCol = new TableColumn<>("Felesleges");
+        wastedCol.setCellValueFactory(new PropertyValueFactory<>("wasted"));
+        wastedCol.setPrefWidth(110);
+        table.getColumns().addAll(List.of(hashCol, pathCol, sizeCol, wastedCol));
+        // the rows are a view of the store, ordered by the choice box below
+        for (TableColumn<DupeRow, ?> c : table.getColumns()) c.setSortable(false);
+        ObjectProperty<DuplicateStore> store = new SimpleObjectProperty<>();
+        Label summary = new Label();
+        ChoiceBox<DuplicateStore.Order> order = new ChoiceBox<>(FXCollections.observableArrayList(DuplicateStore.Order.values()));
+        order.setValue(DuplicateStore.Order.WASTED);
+        order.setConverter(new javafx.util.StringConverter<>() {
+            @Override
+            public String toString(DuplicateStore.Order o) {
+                return o == DuplicateStore.Order.WASTED ? "Felesleges méret szerint" : "Hash szerint";
+            }
+
+            @Override
+            public DuplicateStore.Order fromString(String s) {
+                return null;
+            }
+        });
+        Runnable refresh = () -> {
+            DuplicateStore st = store.get();
+            table.setItems(st == null ? FXCollections.observableArrayList() : DupeRow.view(st));
+            summary.setText(st == null ? "" : st.rows() + " fájl, " + (st.wastedTotal() >> 20) + " MB felszabadítható");
+        };
+        store.addListener((o, a, b) -> refresh.run());
+        order.valueProperty().addListener((o, a, b) -> {
+            if (store.get() != null) {
+                store.get().sort(b);
+                refresh.run();
+            }
+        });
+
+        TextField rootField = new TextField();
+        rootField.setPromptText("Gyökérmappa (teljes lemezhez válassz C:/ vagy /)");
+        addDirDragDrop(rootField);
+        Button pick = btn("Mappa kiválasztása", FontAwesomeSolid.FOLDER_OPEN, () -> {
+            DirectoryChooser dc = new DirectoryChooser();
+            File f = dc.showDialog(null);
+            if (f != null) rootField.setText(f.getAbsolutePath());
+        });
+        CheckBox similar = new CheckBox("Hasonló képek (átméretezett, újratömörített másolatok)");
+        Spinner<Integer> distance = new Spinner<>(0, 32, settings.similarDistance);
+        distance.setPrefWidth(80);
+        distance.disableProperty().bind(similar.selectedProperty().not());
+        distance.valueProperty().addListener((o, a, b) -> {
+            settings.similarDistance = b;
+            saveSettings();
+        });
+        Button scan = btn("Duplikátum keresés", FontAwesomeSolid.SEARCH, () -> {
+            Path root = Path.of(rootField.getText().trim());
+            if (!Files.isDirectory(root)) {
+                toast("Hibás mappa", "Adj meg létező mappát");
+                return;
+            }
+            store.set(null);
+            DuplicateStore.Order sortBy = order.getValue();
+            boolean images = similar.isSelected();
+            MeteredTask<Map<Path, String>> task = new MeteredTask<>(images ? "Hasonló képek keresése" : "Duplikátum keresés") {
+                @Override
+                protected Map<Path, String> call(ProgressMeter meter) throws Exception {
+                    DuplicateStore packed;
+                    Map<Path, String> errors;
+                    if (images) {
+                        SimilarImages.Result result = engine.findSimilarImages(root, meter);
+                        packed = DuplicateStore.ofSimilar(result.groups());
+                        errors = result.errors();
+                    } else {
+                        DuplicateFinder.Result result = engine.findDuplicates(root, meter);
+                        packed = DuplicateStore.of(result.groups());
+                        errors = result.errors();
+                    }
+                    packed.sort(sortBy);
+                    Platform.runLater(() -> store.set(packed));
+                    return errors;
+                }
+            };
+            runTask(task, JobQueue.Priority.NORMAL, List.of(root), () -> {
+                int failed = task.getValue().size();
+                toast("Kész!", failed == 0 ? "Duplikátum lista frissítve" : "Duplikátum lista frissítve, " + failed + " fájl nem olvasható");
+            });
+        });
+        Button deleteSel = btn("Kijelöltek törlése", FontAwesomeSolid.TRASH, () -> {
+            List<DupeRow> sel = new ArrayList<>(table.getSelectionModel().getSelectedItems());
+            if (sel.isEmpty()) {
+                toast("Semmi nincs kijelölve", "Jelölj ki sorokat");
+                return;
+            }
+            ConfirmDialog.show("Biztosan törlöd a kijelölteket?", () -> {
+                DuplicateStore st = store.get();
+                List<Integer> ids = sel.stream().map(DupeRow::file).toList();
+                List<Path> files = ids.stream().map(st::path).toList();
+                MeteredTask<Long> task = new MeteredTask<>("Törlés", true) {
+                    @Override
+                    protected Long call(ProgressMeter meter) throws Exception {
+                        return engine.delete(files, meter);
+                    }
+                };
+                Set<Path> dirs = new HashSet<>();
+                for (Path p : files) dirs.add(p.getParent());
+                runTask(task, JobQueue.Priority.HIGH, dirs, () -> {
+                    st.remove(ids);
+                    if (store.get() == st) refresh.run();
+                    toast("Törölve", "A kijelölt fájlok kukázva");
+                });
+            });
+        });
+        Button linkSel = btn("Kijelöltek linkelése", FontAwesomeSolid.LINK, () -> {
+            List<DupeRow> sel = new ArrayList<>(table.getSelectionModel().getSelectedItems());
+            if (sel.isEmpty()) {
+                toast("Semmi nincs kijelölve", "Jelölj ki sorokat");
+                return;
+            }
+            if (store.get().similar()) {
+                toast("Nem linkelhető", "A hasonló képek nem azonos fájlok, csak törölni lehet őket");
+                return;
+            }
+            Map<String, Dedup.Mode> modes = new LinkedHashMap<>();
+            modes.put("Automatikus (reflink, ha lehet)", Dedup.Mode.AUTO);
+            modes.put("Hard link", Dedup.Mode.HARDLINK);
+            modes.put("Csak reflink (copy-on-write)", Dedup.Mode.REFLINK);
+            ChoiceDialog<String> how = new ChoiceDialog<>(modes.keySet().iterator().next(), modes.keySet());
+            how.setHeaderText("A kijelölt fájlok helyére link kerül a csoport egy meg nem jelölt példányára");
+            how.showAndWait().ifPresent(choice -> {
+                DuplicateStore st = store.get();
+                Set<Integer> selected = new HashSet<>();
+                for (DupeRow r : sel) selected.add(r.file());
+                // every touched group keeps one file: its first unselected one, or its first if all are selected
+                List<Dedup.Pair> pairs = new ArrayList<>();
+                Map<Path, Integer> ids = new HashMap<>();
+                Set<Integer> done = new HashSet<>();
+                for (int f : selected) {
+                    int[] group = st.group(f);
+                    if (!done.add(group[0])) continue;
+                    int keep = group[0];
+                    for (int g : group) {
+                        if (!selected.contains(g)) {
+                            keep = g;
+                            break;
+                        }
+                    }
+                    for (int g : group) {
+                        if (g == keep || !selected.contains(g)) continue;
+                        pairs.add(new Dedup.Pair(st.path(keep), st.path(g)));
+                        ids.put(st.path(g), g);
+                    }
+                }
+                Dedup.Mode mode = modes.get(choice);
+                MeteredTask<Dedup.Summary> task = new MeteredTask<>("Linkelés") {
+                    @Override
+                    protected Dedup.Summary call(ProgressMeter meter) throws Exception {
+                        return engine.dedup(pairs, mode, meter);
+                    }
+                };
+                Set<Path> dirs = new HashSet<>();
+                for (Dedup.Pair p : pairs) dirs.add(p.copy().getParent());
+                runTask(task, JobQueue.Priority.NORMAL, dirs, () -> {
+                    Dedup.Summary result = task.getValue();
+                    ids.keySet().removeAll(result.errors().keySet());
+                    st.remove(ids.values());
+                    if (store.get() == st) refresh.run();
+                    String text = result.replaced() + " fájl linkelve, " + (result.bytes() >> 20) + " MB felszabadult";
+                    if (!result.errors().isEmpty()) {
+                        var e = result.errors().entrySet().iterator().next();
+                        text += "; " + result.errors().size() + " kimaradt, pl. " + e.getKey().getFileName() + ": " + e.getValue();
+                    }
+                    toast("Kész!", text);
+                });
+            });
+        });
+        table.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+
+        Spinner<Integer> threads = new Spinner<>(1, 64, settings.hashThreads);
+        threads.valueProperty().addListener((o, a, b) -> {
+            settings.hashThreads = b;
+            saveSettings();
+        });
+
+        VBox box = section("Duplikált fájlok", row(rootField, pick), row(scan, deleteSel, linkSel, new Label("Olvasó szálak / lemez:"), threads), row(similar, new Label("Eltérés (bit):"), distance), row(order, summary), table);
+        return new Tab("Duplikátumok", box);
+    }
+
+    private Tab tabBackup() {
+        CheckBox enable = new CheckBox("Backup engedélyezése");
+        enable.setSelected(settings.backupEnabled);
+        TextField src = new TextField(Optional.ofNullable(settings.backupSource).orElse(""));
+        src.setPromptText("Forrás mappa");
+        addDirDragDrop(src);
+        TextField dst = new TextField(Optional.ofNullable(settings.backupTarget).orElse(""));
+        dst.setPromptText("Cél mappa (pendrive/HDD)");
+        addDirDragDrop(dst);
+        Button pickSrc = btn("Forrás…", FontAwesomeSolid.FOLDER_OPEN, () -> chooseDirInto(src));
+        Button pickDst = btn("Cél…", FontAwesomeSolid.FOLDER_OPEN, () -> chooseDirInto(dst));
+
+        Spinner<Integer> hour = new Spinner<>(0, 23, settings.backupHour);
+        Spinner<Integer> minute = new Spinner<>(0, 59, settings.backupMinute);
+        Button runNow = btn("Backup most", FontAwesomeSolid.CLOUD_UPLOAD_ALT, () -> startBackupNow(src.getText(), dst.getText(), JobQueue.Priority.NORMAL));
+
+        ChoiceBox<Backup.Mode> mode = new ChoiceBox<>(FXCollections.observableArrayList(Backup.Mode.values()));
+        mode.setValue(settings.backupMode);
+        mode.valueProperty().addListener((o, a, b) -> {
+            settings.backupMode = b;
+            saveSettings();
+        });
+        CheckBox propagateDeletes = new CheckBox("Forrásból törölt fájlok törlése a célból");
+        propagateDeletes.setSelected(settings.backupPropagateDeletes);
+        propagateDeletes.selectedProperty().addListener((o, a, b) -> {
+            settings.backupPropagateDeletes = b;
+            saveSettings();
+        });
+        CheckBox digests = new CheckBox("SHA-256 a manifestben (csak időbélyeg-változásnál nem másol)");
+        digests.setSelected(settings.backupDigests);
+        digests.selectedProperty().addListener((o, a, b) -> {
+            settings.backupDigests = b;
+            saveSettings();
+        });
+        CheckBox verify = new CheckBox("Ellenőrzés másolás után (visszaolvasás, SHA-256)");
+        verify.setSelected(settings.backupVerify);
+        verify.selectedProperty().addListener((o, a, b) -> {
+            settings.backupVerify = b;
+            saveSettings();
+        });
+        verify.disableProperty().bind(mode.valueProperty().isEqualTo(Backup.Mode.SNAPSHOT)
+                .or(mode.valueProperty().isEqualTo(Backup.Mode.ARCHIVE)));
+        propagateDeletes.disableProperty().bind(mode.valueProperty().isNotEqualTo(Backup.Mode.INCREMENTAL));
+        digests.disableProperty().bind(mode.valueProperty().isNotEqualTo(Backup.Mode.INCREMENTAL));
+        Spinner<Integer> keep = new Spinner<>(1, 3650, settings.backupKeepSnapshots);
+        keep.valueProperty().addListener((o, a, b) -> {
+            settings.backupKeepSnapshots = b;
+            saveSettings();
+        });
+        keep.disableProperty().bind(mode.valueProperty().isNotEqualTo(Backup.Mode.SNAPSHOT)
+                .and(mode.valueProperty().isNotEqualTo(Backup.Mode.ARCHIVE)));
+        Button restore = btn("Visszaállítás…", FontAwesomeSolid.HISTORY, () -> restoreSnapshot(dst.getText()));
+        Spinner<Integer> threads = new Spinner<>(1, 32, settings.backupThreads);
+        threads.valueProperty().addListener((o, a, b) -> {
+            settings.backupThreads = b;
+            saveSettings();
+        });
+        Spinner<Integer> bandwidth = new Spinner<>(0, 10_000, settings.backupBandwidthMBps, 5);
+        bandwidth.valueProperty().addListener((o, a, b) -> {
+            settings.backupBandwidthMBps = b;
+            saveSettings();
+        });
+
+        enable.selectedProperty().addListener((obs, o, n) -> {
+            settings.backupEnabled = n;
+            saveSettings();
+            scheduleBackupIfEnabled();
+        });
+        Runnable saveTime = () -> {
+            settings.backupHour = hour.getValue();
+            settings.backupMinute = minute.getValue();
+            saveSettings();
+            scheduleBackupIfEnabled();
+        };
+        hour.valueProperty().addListener((o, a, b) -> saveTime.run());
+        minute.valueProperty().addListener((o, a, b) -> saveTime.run());
+        src.textProperty().addListener((o, a, b) -> {
+            settings.backupSource = b;
+            saveSettings();
+        });
+        dst.textProperty().addListener((o, a, b) -> {
+            settings.backupTarget = b;
+            saveSettings();
+        });
+
+        GridPane gp = new GridPane();
+        gp.setHgap(8);
+        gp.setVgap(8);
+        gp.add(enable, 0, 0, 2, 1);
+        gp.add(new Label("Forrás:"), 0, 1);
+        gp.add(row(src, pickSrc), 1, 1);
+        gp.add(new Label("Cél:"), 0, 2);
+        gp.add(row(dst, pickDst), 1, 2);
+        gp.add(new Label("Időzítés (HH:MM):"), 0, 3);
+        gp.add(row(hour, new Label(":"), minute), 1, 3);
+        gp.add(new Label("Mód:"), 0, 4);
+        gp.add(row(mode, propagateDeletes, digests, verify), 1, 4);
+        gp.add(new Label("Megőrzött snapshotok:"), 0, 5);
+        gp.add(row(keep, restore), 1, 5);
+        gp.add(new Label("Másoló szálak / sávszél (MB/s, 0 = korlátlan):"), 0, 6);
+        gp.add(row(threads, bandwidth), 1, 6);
+        gp.add(runNow, 1, 7);
+
+        VBox box = section("Backup (időzítve)", gp);
+        return new Tab("Backup", box);
+    }
+
+    private Tab tabSettings() {
+
+        TableView<MapRow> table = new TableView<>();
+        TableColumn<MapRow, String> extCol = new TableColumn<>("Kiterjesztés");
+        extCol.setCellValueFactory(new PropertyValueFactory<>("key"));
+        TableColumn<MapRow, String> dirCol = new TableColumn<>("Cél mappa");
+        dirCol.setCellValueFactory(new PropertyValueFactory<>("value"));
+        table.getColumns().addAll(extCol, dirCol);
+        ObservableList<MapRow> rows = FXCollections.observableArrayList();
+        settings.categoryMap.forEach((k, v) -> rows.add(new MapRow(k, v)));
+        table.setItems(rows);
+        table.setEditable(true);
+
+        TextField keyField = new TextField();
+        keyField.setPromptText("pl. jpg");
+        TextField valField = new TextField();
+        valField.setPromptText("pl. Pictures");
+        Button add = btn("Hozzáadás", FontAwesomeSolid.PLUS, () -> {
+            String k = keyField.getText().trim().toLowerCase();
+            String v = valField.getText().trim();
+            if (k.isEmpty() || v.isEmpty()) {
+                toast("Hopp", "Mindkét mező kell");
+                return;
+            }
+            settings.categoryMap.put(k, v);
+            rows.setAll(mapRows(settings.categoryMap));
+            saveSettings();
+        });
+        Button remove = btn("Kijelölt törlése", FontAwesomeSolid.TRASH, () -> {
+            MapRow sel = table.getSelectionModel().getSelectedItem();
+            if (sel == null) return;
+            settings.categoryMap.remove(sel.getKey());
+            rows.setAll(mapRows(settings.categoryMap));
+            saveSettings();
+        });
+
+        Label info = new Label("Wildcard: a '*' kulcs a minden egyéb fájlt ide rakja.");
+        Label rulesInfo = new Label("Haladó szabályok (névminta, regex, méret, kor, almappa, tartalomtípus) a config.json \"rules\" listájában: "
+                + settings.rules.size() + " db, sorrendben ezek előzik meg a fenti táblát.");
+
+        TextField excludes = new TextField(String.join(", ", settings.excludeGlobs));
+        excludes.setPrefColumnCount(50);
+        excludes.textProperty().addListener((o, a, b) -> {
+            settings.excludeGlobs = Arrays.stream(b.split(",")).map(String::trim).filter(g -> !g.isEmpty()).collect(Collectors.toList());
+            saveSettings();
+        });
+        Label excludeInfo = new Label("Kihagyott mappák (glob, vesszővel elválasztva; '/'-t tartalmazó minta a teljes útvonalra illeszkedik)");
+
+        Spinner<Integer> scanThreads = new Spinner<>(1, 64, settings.scanThreads);
+        scanThreads.valueProperty().addListener((o, a, b) -> {
+            settings.scanThreads = b;
+            saveSettings();
+        });
+
+        VBox box = section("Beállítások (JSON mentés)", row(keyField, valField, add, remove), table, info, rulesInfo, excludeInfo, excludes,
+                row(new Label("Párhuzamos bejáró szálak (hálózati meghajtókhoz):"), scanThreads));
+        return new Tab("Beállítások", box);
+    }
+
+    /** Queues {@code task} on the disks of {@code paths}; see {@link JobQueue}. */
+    private void runTask(MeteredTask<?> task, JobQueue.Priority priority, Collection<Path> paths, Runnable onSucceeded) {
+        task.messageProperty().addListener((o, a, b) -> statusBar.setText(b));
+        task.setOnSucceeded(e -> {
+            statusBar.setText("Kész.");
+            onSucceeded.run();
+        });
+        task.setOnFailed(e -> {
+            statusBar.setText("Hiba: " + task.getException());
+            toast("Hiba", task.getException().getMessage());
+            if (task.journaled()) offerRecovery();
+        });
+        task.setOnCancelled(e -> statusBar.setText("Megszakítva: " + task.getTitle()));
+        jobs.submit(task, priority, paths, () -> {
+            saveRunStats(task);
+            // a cancelled move or delete leaves its journal behind
+            if (task.isCancelled() && task.journaled()) offerRecovery();
+        });
+    }
+
+    /** Appends the task's timings to {@code runs.jsonl}; off the FX thread, as it touches the disk. */
+    private void saveRunStats(MeteredTask<?> task) {
+        ProgressMeter meter = task.meter();
+        if (meter == null) return; // cancelled while it was waiting
+        String title = task.getTitle(), outcome = task.getState().name();
+        scheduler.execute(() -> {
+            try {
+                engine.saveRunStats(title, outcome, meter);
+            } catch (IOException e) {
+                Platform.runLater(() -> statusBar.setText("A futási statisztika nem menthető: " + e.getMessage()));
+            }
+        });
+    }
+
+    private void addDirDragDrop(TextField field) {
+        field.setOnDragOver(ev -> {
+            Dragboard db = ev.getDragboard();
+            if (db.hasFiles() && db.getFiles().get(0).isDirectory()) ev.acceptTransferModes(TransferMode.COPY);
+            ev.consume();
+        });
+        field.setOnDragDropped((DragEvent ev) -> {
+            Dragboard db = ev.getDragboard();
+            boolean success = false;
+            if (db.hasFiles()) {
+                field.setText(db.getFiles().get(0).getAbsolutePath());
+                success = true;
+            }
+            ev.setDropCompleted(success);
+            ev.consume();
+        });
+    }
+
+    private Button btn(String text, FontAwesomeSolid icon, Runnable action) {
+        Button b = new Button(text, new FontIcon("fas-folder-open"));
+        b.getStyleClass().setAll("btn", "btn-primary");
+        b.setOnAction(e -> action.run());
+        return b;
+    }
+
+    private VBox section(String title, javafx.scene.Node... nodes) {
+        Label h = new Label(title);
+        h.getStyleClass().setAll("h3");
+        VBox box = new VBox(8, h);
+        box.getChildren().addAll(nodes);
+        box.setPadding(new Insets(10));
+        box.setFillWidth(true);
+        return box;
+    }
+
+    private HBox row(javafx.scene.Node... nodes) {
+        HBox hb = new HBox(8, nodes);
+        hb.setAlignment(Pos.CENTER_LEFT);
+        return hb;
+    }
+
+    private void toast(String title, String text) {
+        Notifications.create().title(title).text(text).showInformation();
+    }
+
+    /** A scheduled backup runs at {@code LOW} priority, after whatever the user started on the same disks. */
+    private void startBackupNow(String source, String target, JobQueue.Priority priority) {
+        if (source == null || source.isBlank() || target == null || target.isBlank()) {
+            toast("Hiányzó beállítás", "Forrás és cél mappa kell");
+            return;
+        }
+        Path src = Path.of(source);
+        Path dst = Path.of(target);
+        if (!Files.isDirectory(src)) {
+            toast("Hibás forrás", "Nem mappa: " + source);
+            return;
+        }
+        Backup.Mode mode = settings.backupMode;
+        MeteredTask<Backup.Summary> task = new MeteredTask<>(priority == JobQueue.Priority.LOW ? "Ütemezett backup" : "Backup") {
+            @Override
+            protected Backup.Summary call(ProgressMeter meter) throws Exception {
+                return engine.backup(src, dst, meter);
+            }
+        };
+        runTask(task, priority, List.of(src, dst), () -> {
+            Backup.Summary sum = task.getValue();
+            String unreadable = sum.errors().isEmpty() ? "" : ", " + sum.errors().size() + " nem olvasható";
+            if (mode == Backup.Mode.SNAPSHOT) {
+                toast("Snapshot kész", sum.copied() + " új/változott fájl, " + sum.skipped() + " változatlan, " + sum.deleted() + " régi snapshot törölve" + unreadable);
+            } else if (mode == Backup.Mode.ARCHIVE) {
+                toast("Archívum kész", sum.copied() + " fájl, " + (sum.bytes() >> 20) + " MB tömörítve, " + sum.deleted() + " régi archívum törölve" + unreadable);
+            } else {
+                Backup.Verification v = sum.verification();
+                toast("Backup kész", sum.copied() + " fájl másolva, " + sum.skipped() + " változatlan, " + sum.deleted() + " törölve" + unreadable
+                        + (v == null ? "" : ", " + v.checked() + " ellenőrizve, " + v.mismatches().size() + " eltérés"));
+                if (v != null && !v.mismatches().isEmpty()) showMismatches(v);
+            }
+        });
+    }
+
+    /** The copy at the target is bad; unlike a toast this stays until read. */
+    private void showMismatches(Backup.Verification v) {
+        TextArea list = new TextArea(v.mismatches().entrySet().stream()
+                .map(e -> e.getKey() + " – " + e.getValue())
+                .collect(Collectors.joining("\n")));
+        list.setEditable(false);
+        Alert a = new Alert(Alert.AlertType.ERROR, null, ButtonType.OK);
+        a.setHeaderText(v.mismatches().size() + " fájl hibás a backupban");
+        a.setContentText("A következő backup újra átmásolja őket. Részletes jelentés: " + v.report());
+        a.getDialogPane().setExpandableContent(list);
+        a.getDialogPane().setExpanded(true);
+        a.setResizable(true);
+        a.show();
+    }
+
+    private void restoreSnapshot(String target) {
+        if (target == null || target.isBlank() || !Files.isDirectory(Path.of(target))) {
+            toast("Hiányzó beállítás", "Cél mappa kell");
+            return;
+        }
+        List<String> names;
+        try {
+            names = engine.snapshots(Path.of(target));
+        } catch (IOException e) {
+            toast("Hiba", e.getMessage());
+            return;
+        }
+        if (names.isEmpty()) {
+            toast("Nincs snapshot", "A célban még nincs snapshot");
+            return;
+        }
+        ChoiceDialog<String> pick = new ChoiceDialog<>(names.get(names.size() - 1), names);
+        pick.setHeaderText("Melyik snapshotot állítsuk vissza?");
+        pick.showAndWait().ifPresent(name -> {
+            TextInputDialog only = new TextInputDialog();
+            only.setHeaderText("Csak egy fájl vagy mappa? (a forráshoz képest, üresen: minden)");
+            Optional<String> path = only.showAndWait();
+            if (path.isEmpty()) return;
+            String selected = path.get().isBlank() ? null : path.get().strip();
+            DirectoryChooser dc = new DirectoryChooser();
+            dc.setTitle("Hová állítsuk vissza?");
+            File f = dc.showDialog(null);
+            if (f == null) return;
+            MeteredTask<Long> task = new MeteredTask<>("Visszaállítás: " + name) {
+                @Override
+                protected Long call(ProgressMeter meter) throws Exception {
+                    return engine.restore(Path.of(target), name, selected, f.toPath(), meter);
+                }
+            };
+            runTask(task, JobQueue.Priority.NORMAL, List.of(Path.of(target), f.toPath()), () -> toast("Visszaállítva", task.getValue() + " fájl: " + f));
+        });
+    }
+
+    private ScheduledFuture<?> scheduledBackup;
+
+    private void scheduleBackupIfEnabled() {
+        if (scheduledBackup != null && !scheduledBackup.isCancelled()) scheduledBackup.cancel(false);
+        if (!settings.backupEnabled) return;
+        LocalTime t = LocalTime.of(settings.backupHour, settings.backupMinute);
+        long initialDelay = millisUntil(t);
+        long period = TimeUnit.DAYS.toMillis(1);
+        scheduledBackup = scheduler.scheduleAtFixedRate(() -> Platform.runLater(() -> startBackupNow(settings.backupSource, settings.backupTarget, JobQueue.Priority.LOW)),
+                initialDelay, period, TimeUnit.MILLISECONDS);
+        statusBar.setText("Backup ütemezve: " + t);
+    }
+
+    private static long millisUntil(LocalTime time) {
+        ZonedDateTime now = ZonedDateTime.now();
+        ZonedDateTime next = now.withHour(time.getHour()).withMinute(time.getMinute()).withSecond(0).withNano(0);
+        if (!next.isAfter(now)) next = next.plusDays(1);
+        return Duration.between(now, next).toMillis();
+    }
+
+    private void chooseDirInto(TextField field) {
+        DirectoryChooser dc = new DirectoryChooser();
+        File f = dc.showDialog(null);
+        if (f != null) field.setText(f.getAbsolutePath());
+    }
+
+    private void loadOrInitSettings() {
+        settings = Settings.load(configFile);
+        if (settings == null) {
+            settings = Settings.defaultSettings();
+            saveSettings();
+        }
+        engine = new Engine(settings, configDir);
+    }
+
+    private void saveSettings() {
+        try {
+            settings.save(configFile);
+        } catch (IOException e) {
+            toast("JSON hiba", e.getMessage());
+        }
+    }
+
+    private static List<MapRow> mapRows(Map<String, String> map) {
+        return map.entrySet().stream().sorted(Map.Entry.comparingByKey()).map(e -> new MapRow(e.getKey(), e.getValue())).collect(Collectors.toList());
+    }
+
+    public static class MapRow {
+        private final SimpleStringProperty key = new SimpleStringProperty();
+        private final SimpleStringProperty value = new SimpleStringProperty();
+
+        public MapRow(String k, String v) {
+            key.set(k);
+            value.set(v);
+        }
+
+        public String getKey() {
+            return key.get();
+        }
+
+        public String getValue() {
+            return value.get();
+        }
+    }
+
+    /**
+     * One file of a {@link DuplicateStore}, made only when the table shows or selects its row;
+     * the values are read from the store's columns on demand.
+     */
+    public static final class DupeRow {
+        private final DuplicateStore store;
+        private final int file;
+
+        private DupeRow(DuplicateStore store, int file) {
+            this.store = store;
+            this.file = file;
+        }
+
+        /** The store's rows as a list whose elements are created in {@code get}. */
+        static ObservableList<DupeRow> view(DuplicateStore store) {
+            return FXCollections.observableList(new AbstractList<>() {
+                @Override
+                public DupeRow get(int row) {
+                    return new DupeRow(store, store.file(row));
+                }
+
+                @Override
+                public int size() {
+                    return store.rows();
+                }
+            });
+        }
+
+        int file() {
+            return file;
+        }
+
+        public String getHash() {
+            return store.key(file);
+        }
+
+        public String getPath() {
+            return store.path(file).toString();
+        }
+
+        public long getSize() {
+            return store.size(file);
+        }
+
+        public long getWasted() {
+            return store.wasted(file);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof DupeRow r && r.store == store && r.file == file;
+        }
+
+        @Override
+        public int hashCode() {
+            return file;
+        }
+    }
+
+    /** One planned move, made only when the preview shows its row. */
+    public static final class MoveRow {
+        private final MovePlan.Move move;
+
+        private MoveRow(MovePlan.Move move) {
+            this.move = move;
+        }
+
+        /** The plan's moves as a list whose elements are created in {@code get}. */
+        static ObservableList<MoveRow> view(List<MovePlan.Move> moves) {
+            return FXCollections.observableList(new AbstractList<>() {
+                @Override
+                public MoveRow get(int row) {
+                    return new MoveRow(moves.get(row));
+                }
+
+                @Override
+                public int size() {
+                    return moves.size();
+                }
+            });
+        }
+
+        public String getFrom() {
+            return move.from().toString();
+        }
+
+        public String getTo() {
+            return move.to().toString();
+        }
+    }
+
+    static class PlanDialog {
+        static void show(MovePlan plan, Runnable onRun) {
+            TableView<MoveRow> table = new TableView<>();
+            TableColumn<MoveRow, String> fromCol = new TableColumn<>("Honnan");
+            fromCol.setCellValueFactory(new PropertyValueFactory<>("from"));
+            fromCol.setPrefWidth(420);
+            TableColumn<MoveRow, String> toCol = new TableColumn<>("Hová");
+            toCol.setCellValueFactory(new PropertyValueFactory<>("to"));
+            toCol.setPrefWidth(420);
+            table.getColumns().add(fromCol);
+            table.getColumns().add(toCol);
+            // the view cannot be reordered, so the plan stays in execution order
+            for (TableColumn<MoveRow, ?> c : table.getColumns()) c.setSortable(false);
+            table.setItems(MoveRow.view(plan.moves()));
+
+            ButtonType run = new ButtonType("Végrehajtás", ButtonBar.ButtonData.OK_DONE);
+            Dialog<ButtonType> d = new Dialog<>();
+            d.setTitle("Előnézet");
+            d.setHeaderText(plan.moves().size() + " áthelyezés, ebből " + plan.renamed() + " új nevet kap névütközés miatt");
+            d.getDialogPane().setContent(table);
+            d.getDialogPane().getButtonTypes().addAll(run, ButtonType.CANCEL);
+            d.setResizable(true);
+            d.showAndWait().ifPresent(bt -> {
+                if (bt == run && !plan.moves().isEmpty()) onRun.run();
+            });
+        }
+    }
+
+    static class ConfirmDialog {
+        static void show(String text, Runnable onYes) {
+            Alert a = new Alert(Alert.AlertType.CONFIRMATION, text, ButtonType.YES, ButtonType.NO);
+            a.setHeaderText("Megerősítés");
+            a.showAndWait().ifPresent(bt -> {
+                if (bt == ButtonType.YES) onYes.run();
+            });
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.autoorganizer;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Worker;
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.IntSupplier;
+
+/**
+ * Runs the GUI's tasks in priority order, with at most a configured number of tasks per disk at
+ * a time, so a scheduled backup does not start fighting a duplicate scan for the same drive.
+ * Tasks run on virtual threads; their heavy sub-work already has its own pools in the engine.
+ *
+ * <p>Everything here runs on the FX thread: tasks are submitted from UI handlers and their state
+ * changes arrive there too, so the queue needs no locking. A cancelled task keeps its disk until
+ * its thread has actually returned, so the next one never overlaps the end of it.
+ */
+final class JobQueue {
+
+    enum Priority {
+        HIGH, NORMAL, LOW
+    }
+
+    private record Job(MeteredTask<?> task, Runnable ended) {
+    }
+
+    /**
+     * Which waiting jobs may start: the highest priority first, the earliest of equal ones, and
+     * any job whose disks all have fewer than the limit running, even if one before it is blocked.
+     * A job holds its disks from {@link #next} until {@link #ended}. Not thread-safe.
+     */
+    static final class Schedule<J> {
+
+        private record Entry<J>(J job, Priority priority, long seq, Set<Object> disks) {
+        }
+
+        private final PriorityQueue<Entry<J>> waiting = new PriorityQueue<>(
+                Comparator.comparing((Entry<J> e) -> e.priority()).thenComparingLong(Entry::seq));
+        private final Map<J, Entry<J>> started = new HashMap<>();
+        private final Map<Object, Integer> busy = new HashMap<>();
+        private long seq;
+
+        void add(J job, Priority priority, Set<Object> disks) {
+            waiting.add(new Entry<>(job, priority, seq++, Set.copyOf(disks)));
+        }
+
+        /** Drops {@code job} if it has not started yet; a started one keeps its disks until it has ended. */
+        boolean remove(J job) {
+            return waiting.removeIf(e -> e.job().equals(job));
+        }
+
+        void ended(J job) {
+            Entry<J> e = started.remove(job);
+            if (e != null) for (Object d : e.disks()) busy.merge(d, -1, Integer::sum);
+        }
+
+        /** The jobs to start now, in order, counted as running from here on. */
+        List<J> next(int limit) {
+            List<J> start = new ArrayList<>();
+            List<Entry<J>> blocked = new ArrayList<>();
+            Entry<J> e;
+            while ((e = waiting.poll()) != null) {
+                boolean free = true;
+                for (Object d : e.disks()) free &= busy.getOrDefault(d, 0) < limit;
+                if (!free) {
+                    blocked.add(e);
+                    continue;
+                }
+                for (Object d : e.disks()) busy.merge(d, 1, Integer::sum);
+                started.put(e.job(), e);
+                start.add(e.job());
+            }
+            waiting.addAll(blocked);
+            return start;
+        }
+
+        int waiting() {
+            return waiting.size();
+        }
+
+        int running() {
+            return started.size();
+        }
+    }
+
+    private final IntSupplier perDisk;
+    private final Schedule<Job> schedule = new Schedule<>();
+    private final Map<Path, FileStore> storeByDir = new HashMap<>();
+    private final ObservableList<MeteredTask<?>> tasks = FXCollections.observableArrayList();
+    private final ReadOnlyIntegerWrapper running = new ReadOnlyIntegerWrapper();
+    private final ReadOnlyIntegerWrapper queued = new ReadOnlyIntegerWrapper();
+
+    /** {@code perDisk} is read on every dispatch, so a changed setting applies to the next task. */
+    JobQueue(IntSupplier perDisk) {
+        this.perDisk = perDisk;
+    }
+
+    /** Waiting and running tasks, for the {@code TaskProgressView}. */
+    ObservableList<MeteredTask<?>> tasks() {
+        return tasks;
+    }
+
+    ReadOnlyIntegerProperty runningProperty() {
+        return running.getReadOnlyProperty();
+    }
+
+    ReadOnlyIntegerProperty queuedProperty() {
+        return queued.getReadOnlyProperty();
+    }
+
+    /**
+     * Queues {@code task}; it starts once no more than the allowed number of tasks use any of
+     * the disks of {@code paths}. Cancelling it while it waits just drops it from the queue.
+     * {@code ended} runs on the FX thread once the task's thread is done, whatever the outcome.
+     */
+    void submit(MeteredTask<?> task, Priority priority, Collection<Path> paths, Runnable ended) {
+        Set<Object> disks = new HashSet<>();
+        for (Path p : paths) disks.add(disk(p));
+        Job job = new Job(task, ended);
+        task.stateProperty().addListener((o, was, now) -> {
+            if (now == Worker.State.SUCCEEDED || now == Worker.State.FAILED || now == Worker.State.CANCELLED) finished(job);
+        });
+        tasks.add(task);
+        schedule.add(job, priority, disks);
+        task.waiting();
+        dispatch();
+    }
+
+    private void finished(Job job) {
+        tasks.remove(job.task);
+        if (schedule.remove(job)) update();
+    }
+
+    private void ended(Job job) {
+        schedule.ended(job);
+        job.ended.run();
+        dispatch();
+    }
+
+    private void dispatch() {
+        for (Job j : schedule.next(Math.max(1, perDisk.getAsInt()))) {
+            Thread.ofVirtual().name("DoomSorter-Task").start(() -> {
+                try {
+                    j.task.run();
+                } finally {
+                    Platform.runLater(() -> ended(j));
+                }
+            });
+        }
+        update();
+    }
+
+    private void update() {
+        queued.set(schedule.waiting());
+        running.set(schedule.running());
+    }
+
+    /** The file store of {@code p}, or of its nearest existing parent; a backup target may not exist yet. */
+    private Object disk(Path p) {
+        Path dir = p.toAbsolutePath();
+        while (dir != null && !Files.isDirectory(dir)) dir = dir.getParent();
+        if (dir == null) return "?";
+        FileStore cached = storeByDir.get(dir);
+        if (cached != null) return cached;
+        try {
+            FileStore store = Files.getFileStore(dir);
+            storeByDir.put(dir, store);
+            return store;
+        } catch (IOException e) {
+            return "?";
+        }
+    }
+}
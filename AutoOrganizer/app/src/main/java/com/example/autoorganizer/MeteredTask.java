@@ -0,0 +1,59 @@
+package com.example.autoorganizer;
+
+import com.example.autoorganizer.engine.ProgressMeter;
+import javafx.concurrent.Task;
+
+/**
+ * A {@link Task} whose message and progress are fed by a {@link ProgressMeter}, so the FX thread
+ * sees at most ten updates a second no matter how many files the task touches. Cancelling the
+ * task also cancels its meter, which stops the engine at the next file it reports.
+ */
+abstract class MeteredTask<V> extends Task<V> {
+
+    private volatile ProgressMeter meter;
+    private final boolean journaled;
+
+    MeteredTask(String title) {
+        this(title, false);
+    }
+
+    /** {@code journaled} marks a move, rename or delete run, which leaves a journal behind if it stops half way. */
+    MeteredTask(String title, boolean journaled) {
+        updateTitle(title);
+        this.journaled = journaled;
+    }
+
+    @Override
+    protected final V call() throws Exception {
+        try (ProgressMeter meter = ProgressMeter.start((message, done, total) -> {
+            updateMessage(message);
+            updateProgress(done, total);
+        })) {
+            this.meter = meter;
+            if (isCancelled()) meter.cancel();
+            return call(meter);
+        }
+    }
+
+    protected abstract V call(ProgressMeter meter) throws Exception;
+
+    /** The meter of the run, with its statistics; null until the task has started. */
+    ProgressMeter meter() {
+        return meter;
+    }
+
+    boolean journaled() {
+        return journaled;
+    }
+
+    /** Shown while the task waits in the {@link JobQueue}. */
+    void waiting() {
+        updateMessage("Várakozik…");
+    }
+
+    @Override
+    protected void cancelled() {
+        ProgressMeter m = meter;
+        if (m != null) m.cancel();
+    }
+}
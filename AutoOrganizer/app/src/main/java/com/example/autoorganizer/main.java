@@ -1,8 +1,11 @@
 package com.example.autoorganizer;
+import com.example.autoorganizer.engine.Cli;
 import javafx.application.Application;
 
 class Main {
     public static void main(String[] args) {
+        // with a command the engine runs headless and the FX toolkit is never started
+        if (args.length > 0) Cli.main(args);
         Application.launch(DoomSorterApp.class, args);
     }
-}
\ No newline at end of file
+}
@@ -7,7 +7,7 @@ module com.example.autoorganizer {
     requires org.kordamp.ikonli.javafx;
     requires org.kordamp.ikonli.fontawesome5;
     requires net.synedra.validatorfx;
-    requires com.google.gson;
-    opens com.example.autoorganizer to com.google.gson, javafx.base;
+    requires com.example.autoorganizer.engine;
+    opens com.example.autoorganizer to javafx.base;
     exports com.example.autoorganizer;
-}
\ No newline at end of file
+}
@@ -0,0 +1,90 @@
+package com.example.autoorganizer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JobQueueTest {
+
+    @Test
+    void neverMoreThanTheLimitRunOnOneDisk() {
+        Random random = new Random(3);
+        for (int limit = 1; limit <= 3; limit++) {
+            JobQueue.Schedule<Integer> schedule = new JobQueue.Schedule<>();
+            Map<Integer, Set<Object>> disksOf = new HashMap<>();
+            List<Integer> running = new ArrayList<>();
+            Set<Integer> waiting = new HashSet<>();
+            for (int step = 0, job = 0; step < 2000; step++) {
+                if (random.nextInt(3) > 0) {
+                    // one or two of four disks, as a backup from one drive to another
+                    Set<Object> disks = new HashSet<>();
+                    for (int n = 1 + random.nextInt(2); n > 0; n--) disks.add("disk" + random.nextInt(4));
+                    disksOf.put(job, disks);
+                    waiting.add(job);
+                    schedule.add(job++, JobQueue.Priority.values()[random.nextInt(3)], disks);
+                } else if (!running.isEmpty()) {
+                    schedule.ended(running.remove(random.nextInt(running.size())));
+                }
+                for (int started : schedule.next(limit)) {
+                    assertTrue(waiting.remove(started));
+                    running.add(started);
+                }
+
+                Map<Object, Integer> busy = new HashMap<>();
+                for (int r : running) for (Object d : disksOf.get(r)) busy.merge(d, 1, Integer::sum);
+                for (int count : busy.values()) assertTrue(count <= limit, busy + " with limit " + limit);
+                for (int w : waiting) {
+                    // nothing waits that could run
+                    final int l = limit;
+                    assertTrue(disksOf.get(w).stream().anyMatch(d -> busy.getOrDefault(d, 0) >= l), "job " + w + " waits");
+                }
+                assertEquals(running.size(), schedule.running());
+                assertEquals(waiting.size(), schedule.waiting());
+            }
+        }
+    }
+
+    @Test
+    void higherPriorityStartsFirstAndEqualOnesInOrder() {
+        JobQueue.Schedule<String> schedule = new JobQueue.Schedule<>();
+        Set<Object> disk = Set.of("C:");
+        schedule.add("running", JobQueue.Priority.LOW, disk);
+        assertEquals(List.of("running"), schedule.next(1));
+        schedule.add("low", JobQueue.Priority.LOW, disk);
+        schedule.add("normal 1", JobQueue.Priority.NORMAL, disk);
+        schedule.add("high", JobQueue.Priority.HIGH, disk);
+        schedule.add("normal 2", JobQueue.Priority.NORMAL, disk);
+        schedule.add("other disk", JobQueue.Priority.LOW, Set.of("D:"));
+        assertEquals(List.of("other disk"), schedule.next(1), "a job on a free disk does not wait behind a blocked one");
+
+        List<String> order = new ArrayList<>();
+        for (String last = "running"; last != null; ) {
+            schedule.ended(last);
+            List<String> next = schedule.next(1);
+            last = next.isEmpty() ? null : next.get(0);
+            if (last != null) order.add(last);
+        }
+        assertEquals(List.of("high", "normal 1", "normal 2", "low"), order);
+    }
+
+    @Test
+    void aCancelledJobLeavesTheQueueButARunningOneKeepsItsDiskUntilItEnds() {
+        JobQueue.Schedule<String> schedule = new JobQueue.Schedule<>();
+        Set<Object> disk = Set.of("C:");
+        schedule.add("first", JobQueue.Priority.NORMAL, disk);
+        schedule.add("second", JobQueue.Priority.NORMAL, disk);
+        schedule.add("third", JobQueue.Priority.NORMAL, disk);
+        assertEquals(List.of("first"), schedule.next(1));
+
+        assertTrue(schedule.remove("second"), "a waiting job is dropped");
+        assertFalse(schedule.remove("first"), "a running job is not waiting");
+        assertEquals(List.of(), schedule.next(1), "the cancelled job still holds the disk");
+        assertEquals(1, schedule.running());
+
+        schedule.ended("first");
+        assertEquals(List.of("third"), schedule.next(1));
+        assertEquals(0, schedule.waiting());
+    }
+}
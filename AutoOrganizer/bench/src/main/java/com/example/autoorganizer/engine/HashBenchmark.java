@@ -0,0 +1,60 @@
+package com.example.autoorganizer.engine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SHA-256 throughput per file size and read buffer size. The file stays in the page cache,
+ * this measures the hashing, not the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashBenchmark {
+
+    @Param({"4096", "1048576", "16777216", "134217728"})
+    int fileSize;
+
+    @Param({"8192", "65536", "262144", "1048576"})
+    int bufferSize;
+
+    private Path file;
+    private ByteBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = Files.createTempFile("doomsorter-hash", ".bin");
+        Random r = new Random(fileSize);
+        byte[] chunk = new byte[1 << 20];
+        r.nextBytes(chunk);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (int left = fileSize; left > 0; left -= chunk.length) out.write(chunk, 0, Math.min(left, chunk.length));
+        }
+        buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Digest sha256() throws IOException {
+        return FileHasher.sha256(file, buffer);
+    }
+
+    @Benchmark
+    public Digest partial() throws IOException {
+        return FileHasher.partial(file, fileSize, DuplicateFinder.PARTIAL_BYTES);
+    }
+}
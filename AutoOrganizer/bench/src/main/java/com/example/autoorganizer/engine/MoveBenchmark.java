@@ -0,0 +1,64 @@
+package com.example.autoorganizer.engine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code moveFileSafe} when the target name is taken {@code collisions} times already, i.e. the
+ * cost of probing {@code name_1}, {@code name_2}, ... before the move. A fresh source file is
+ * created before each move and the moved file removed after it, outside the measurement.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MoveBenchmark {
+
+    @Param({"0", "1", "10", "100"})
+    int collisions;
+
+    private Path dir;
+    private Path src;
+    private Path dst;
+    private Path moved;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("doomsorter-move");
+        dst = dir.resolve("target").resolve("photo.jpg");
+        Files.createDirectories(dst.getParent());
+        if (collisions > 0) Files.createFile(dst);
+        for (int i = 1; i < collisions; i++) Files.createFile(dst.resolveSibling("photo_" + i + ".jpg"));
+        moved = collisions == 0 ? dst : dst.resolveSibling("photo_" + collisions + ".jpg");
+        src = dir.resolve("photo.jpg");
+    }
+
+    @Setup(Level.Invocation)
+    public void createSource() throws IOException {
+        Files.write(src, new byte[1024]);
+    }
+
+    @TearDown(Level.Invocation)
+    public void removeMoved() throws IOException {
+        Files.delete(moved);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+        }
+    }
+
+    @Benchmark
+    public void moveFileSafe() throws IOException {
+        Engine.moveFileSafe(src, dst);
+    }
+}
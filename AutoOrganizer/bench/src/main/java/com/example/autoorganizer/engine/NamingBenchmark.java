@@ -0,0 +1,124 @@
+package com.example.autoorganizer.engine;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-file helpers of the organizer and renamer, over a fixed mix of names. {@code classify}
+ * uses the default extension map only, {@code classifyWithRules} puts name, size and path rules
+ * in front of it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NamingBenchmark {
+
+    private static final String[] NAMES = {"IMG_0001.JPG", "holiday.jpeg", "scan.pdf", "movie.final.mkv", "README",
+            "archive.tar.gz", "photo.heic", "report.docx", ".bashrc", "clip.MOV"};
+
+    private Path[] paths;
+    private String[] exts;
+    private RuleSet.Matcher defaults;
+    private RuleSet.Matcher withRules;
+    private final BasicFileAttributes attrs = new Attrs(200_000);
+
+    @Setup
+    public void setup() {
+        Random r = new Random(42);
+        paths = new Path[1024];
+        exts = new String[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = Path.of("/data/downloads/sub" + r.nextInt(100), NAMES[r.nextInt(NAMES.length)]);
+            exts[i] = Engine.ext(paths[i]);
+        }
+        Settings s = Settings.defaultSettings();
+        defaults = RuleSet.compile(List.of(), s.categoryMap, Path.of("/data/downloads")).matcher();
+        Rule screenshots = new Rule("Screenshots", null);
+        screenshots.name = "*screenshot*";
+        Rule camera = new Rule("Camera", List.of("jpg", "heic"));
+        camera.name = "IMG_*";
+        Rule big = new Rule("Big", null);
+        big.minSize = 1L << 30;
+        Rule scans = new Rule("Scans", List.of("pdf"));
+        scans.under = "sub7";
+        Rule numbered = new Rule("Numbered", null);
+        numbered.name = "*_[0-9][0-9][0-9].*";
+        withRules = RuleSet.compile(List.of(screenshots, camera, big, scans, numbered), s.categoryMap, Path.of("/data/downloads")).matcher();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1024)
+    public void ext(Blackhole bh) {
+        for (Path p : paths) bh.consume(Engine.ext(p));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1024)
+    public void suffix(Blackhole bh) {
+        for (Path p : paths) bh.consume(Engine.suffix(p));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1024)
+    public void classify(Blackhole bh) {
+        for (Path p : paths) bh.consume(defaults.match(p, attrs));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1024)
+    public void classifyWithRules(Blackhole bh) {
+        for (Path p : paths) bh.consume(withRules.match(p, attrs));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1024)
+    public void isImage(Blackhole bh) {
+        for (String e : exts) bh.consume(Engine.isImage(e));
+    }
+
+    private record Attrs(long size) implements BasicFileAttributes {
+        private static final FileTime MTIME = FileTime.fromMillis(1_700_000_000_000L);
+
+        public FileTime lastModifiedTime() {
+            return MTIME;
+        }
+
+        public FileTime lastAccessTime() {
+            return MTIME;
+        }
+
+        public FileTime creationTime() {
+            return MTIME;
+        }
+
+        public boolean isRegularFile() {
+            return true;
+        }
+
+        public boolean isDirectory() {
+            return false;
+        }
+
+        public boolean isSymbolicLink() {
+            return false;
+        }
+
+        public boolean isOther() {
+            return false;
+        }
+
+        public Object fileKey() {
+            return null;
+        }
+    }
+}
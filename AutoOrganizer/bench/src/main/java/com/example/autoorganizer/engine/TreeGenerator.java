@@ -0,0 +1,76 @@
+package com.example.autoorganizer.engine;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Builds a reproducible synthetic tree: the same file count and seed always give the same
+ * directory layout, names, extensions and sizes. Trees are generated once below
+ * {@code java.io.tmpdir/doomsorter-bench} and reused by later runs, since a million files take
+ * minutes to create.
+ *
+ * <p>Usage: {@code java ... TreeGenerator FILES [SEED] [DIR]}
+ */
+public final class TreeGenerator {
+
+    static final int FILES_PER_DIR = 100;
+    static final int DIRS_PER_DIR = 10;
+    private static final String[] EXTS = {"jpg", "jpeg", "png", "mp4", "mov", "pdf", "docx", "txt", "zip", "log", "heic", ""};
+    private static final String DONE = ".complete";
+
+    private TreeGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int files = Integer.parseInt(args[0]);
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        Path dir = args.length > 2 ? Path.of(args[2]) : defaultDir(files, seed);
+        System.out.println(generate(dir, files, seed));
+    }
+
+    static Path defaultDir(int files, long seed) {
+        return Path.of(System.getProperty("java.io.tmpdir"), "doomsorter-bench", "tree-" + files + "-" + seed);
+    }
+
+    /** Returns the tree for these parameters, generating it only if an earlier run did not finish it. */
+    static Path cached(int files, long seed) throws IOException {
+        return generate(defaultDir(files, seed), files, seed);
+    }
+
+    static Path generate(Path root, int files, long seed) throws IOException {
+        if (Files.exists(root.resolve(DONE))) return root;
+        Files.createDirectories(root);
+        Random r = new Random(seed);
+        byte[] data = new byte[64 * 1024];
+        r.nextBytes(data);
+        for (int i = 0; i < files; i++) {
+            Path file = root.resolve(dirOf(i / FILES_PER_DIR)).resolve(name(r, i));
+            Files.createDirectories(file.getParent());
+            // mostly small files, as in a downloads folder; sizes come from the same seed
+            int size = r.nextInt(100) < 90 ? r.nextInt(4096) : r.nextInt(data.length);
+            try (OutputStream out = Files.newOutputStream(file)) {
+                out.write(data, r.nextInt(data.length - size + 1), size);
+            }
+        }
+        Files.createFile(root.resolve(DONE));
+        return root;
+    }
+
+    /** Directory number {@code n} as a path, {@link #DIRS_PER_DIR} wide, so depth grows with the file count. */
+    private static Path dirOf(int n) {
+        StringBuilder sb = new StringBuilder("d").append(n % DIRS_PER_DIR);
+        for (int rest = n / DIRS_PER_DIR; rest > 0; rest /= DIRS_PER_DIR) {
+            sb.insert(0, "d" + (rest % DIRS_PER_DIR) + "/");
+        }
+        return Path.of(sb.toString());
+    }
+
+    private static String name(Random r, int i) {
+        String ext = EXTS[r.nextInt(EXTS.length)];
+        String upper = r.nextInt(10) == 0 ? ext.toUpperCase() : ext;
+        return "file_" + i + (ext.isEmpty() ? "" : "." + upper);
+    }
+}
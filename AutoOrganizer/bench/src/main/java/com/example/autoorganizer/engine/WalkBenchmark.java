@@ -0,0 +1,53 @@
+package com.example.autoorganizer.engine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Full walks over generated trees with the sequential and the fork-join walker. The trees come
+ * from {@link TreeGenerator} and are kept between runs; the first run with a million files
+ * spends most of its time generating it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WalkBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int files;
+
+    @Param({"1", "4", "16"})
+    int parallelism;
+
+    private Path root;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        root = TreeGenerator.cached(files, 1);
+    }
+
+    @Benchmark
+    public long scan() throws IOException {
+        LongAdder count = new LongAdder();
+        new FileScanner(FileScanner.DEFAULT_EXCLUDES).parallelism(parallelism).scan(root, (p, attrs) -> count.increment());
+        return count.sum();
+    }
+
+    @Benchmark
+    public long scanAndClassify() throws IOException {
+        Settings settings = Settings.defaultSettings();
+        ThreadLocal<RuleSet.Matcher> matchers = ThreadLocal.withInitial(RuleSet.compile(settings.rules, settings.categoryMap, root)::matcher);
+        LongAdder matched = new LongAdder();
+        new FileScanner(FileScanner.DEFAULT_EXCLUDES).parallelism(parallelism).scan(root, (p, attrs) -> {
+            if (matchers.get().match(p, attrs) != null) matched.increment();
+        });
+        return matched.sum();
+    }
+}
@@ -0,0 +1,491 @@
+package com.example.autoorganizer.engine;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archive backups: the source tree streamed into one {@code .tar.gz} at the target, so a USB
+ * stick sees one long sequential write instead of thousands of file creations. The tar stream
+ * is cut into {@link #BLOCK} pieces that are compressed independently on every core and
+ * written in order as consecutive gzip members, which {@code tar xzf} reads as one archive.
+ * At most two blocks per core are in flight, so memory stays at a few megabytes per core
+ * whatever the size of the tree.
+ *
+ * <p>The last tar entry is an index: the file offset of every gzip member and, per file, where
+ * its data starts in the uncompressed stream. The final member, which carries the tar end
+ * marker, names the index position in a gzip extra field. A single file is restored by
+ * decompressing from the member its data starts in, not from the start of the archive.
+ */
+final class ArchiveStore {
+
+    static final String PREFIX = "doomsorter-";
+    static final String SUFFIX = ".tar.gz";
+    private static final String INDEX_NAME = ".doomsorter-index";
+    private static final int BLOCK = 1 << 20;
+    private static final int MAGIC = 0x44534149; // "DSAI"
+    private static final int VERSION = 1;
+    private static final int TAR_RECORD = 512;
+    private static final int END_OF_ARCHIVE = 2 * TAR_RECORD;
+    private static final int EXTRA = 4 + 12; // subfield header, member offset and position of the index
+    private static final int TRAILER = 12 + EXTRA + 5 + END_OF_ARCHIVE + 8;
+    private static final long MAX_OCTAL_SIZE = 077777777777L;
+    private static final DateTimeFormatter NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    /** {@code position}: offset of the file's data in the uncompressed tar stream. */
+    record Entry(String path, long size, long mtime, long position) {
+    }
+
+    private final Path target;
+
+    ArchiveStore(Path target) {
+        this.target = target;
+    }
+
+    static boolean isArchive(String name) {
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    /** Archive file names, oldest first. */
+    List<String> archives() throws IOException {
+        if (!Files.isDirectory(target)) return List.of();
+        try (Stream<Path> s = Files.list(target)) {
+            return s.map(p -> p.getFileName().toString()).filter(ArchiveStore::isArchive).sorted().toList();
+        }
+    }
+
+    Backup.Summary backup(Path src, FileScanner scanner, int keep, long bytesPerSecond, ProgressMeter meter)
+            throws IOException, InterruptedException {
+        meter.phase("Archiválás", -1);
+        Files.createDirectories(target);
+        String name = PREFIX + LocalDateTime.now().format(NAME) + SUFFIX;
+        Path part = target.resolve("." + name + ".part");
+        Path spool = target.resolve("." + name + ".index");
+        Path targetAbs = target.toAbsolutePath().normalize();
+        long files = 0, skipped = 0, bytes;
+        Map<Path, String> errors = new TreeMap<>();
+        try (Writer w = new Writer(part, Runtime.getRuntime().availableProcessors(), bytesPerSecond, meter);
+             FileScanner.Feed feed = scanner.feed(src, 1024)) {
+            try (DataOutputStream index = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spool), 1 << 16))) {
+                FileScanner.Entry entry;
+                while ((entry = feed.take()) != null) {
+                    if (entry.path().toAbsolutePath().normalize().startsWith(targetAbs)) continue;
+                    String rel = src.relativize(entry.path()).toString().replace(src.getFileSystem().getSeparator(), "/");
+                    long size = entry.attrs().size();
+                    FileTime mtime = entry.attrs().lastModifiedTime();
+                    long start = System.nanoTime();
+                    FileChannel in;
+                    try {
+                        // opened before its header goes out, so a locked or vanished file leaves no trace in the stream
+                        in = FileChannel.open(entry.path(), StandardOpenOption.READ);
+                    } catch (IOException e) {
+                        errors.put(entry.path(), String.valueOf(e.getMessage()));
+                        skipped++;
+                        meter.item(entry.path());
+                        continue;
+                    }
+                    try (in) {
+                        w.header(rel, size, mtime.to(TimeUnit.SECONDS));
+                        long position = w.position();
+                        w.write(in, size);
+                        byte[] path = rel.getBytes(StandardCharsets.UTF_8);
+                        index.writeInt(path.length);
+                        index.write(path);
+                        index.writeLong(size);
+                        index.writeLong(mtime.to(TimeUnit.NANOSECONDS));
+                        index.writeLong(position);
+                    }
+                    meter.record(RunStats.Op.READ, entry.path(), start, size);
+                    files++;
+                    meter.item(entry.path(), size);
+                }
+            }
+            for (Path p : feed.failed()) errors.put(p, "A bejárás nem tudta olvasni");
+            w.finish(spool, files);
+            bytes = w.offset();
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            Files.deleteIfExists(part);
+            throw e;
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+        // the archive only gets its name once complete, an interrupted run leaves no half archive behind
+        Files.move(part, target.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+        return new Backup.Summary(files, skipped, prune(keep, meter), bytes, null, errors);
+    }
+
+    /** Deletes all but the newest {@code keep} archives; returns how many went. */
+    long prune(int keep, ProgressMeter meter) throws IOException {
+        List<String> all = archives();
+        long removed = 0;
+        meter.phase("Régi archívumok törlése", -1);
+        for (int i = 0; i < all.size() - Math.max(1, keep); i++) {
+            Path old = target.resolve(all.get(i));
+            meter.item(old);
+            Files.deleteIfExists(old);
+            removed++;
+        }
+        return removed;
+    }
+
+    /**
+     * Restores the files of archive {@code name} below {@code into}: all of them in one pass
+     * over the archive, or with {@code path} set only that file or folder. A selection is read
+     * on in one stream from the gzip member its first file starts in; only a gap of a block or
+     * more is skipped by starting again at the member of the next file.
+     */
+    long restore(String name, String path, Path into, ProgressMeter meter) throws IOException {
+        Path file = target.resolve(name);
+        try (IndexReader index = new IndexReader(file)) {
+            meter.phase("Visszaállítás", path == null ? index.count : -1);
+            long restored = 0;
+            InputStream data = null;
+            long at = 0; // position of data in the uncompressed stream
+            try {
+                Entry e;
+                while ((e = index.next()) != null) {
+                    if (!Backup.selected(e.path(), path)) continue;
+                    if (e.size() == 0) {
+                        extract(InputStream.nullInputStream(), e, into, meter);
+                        restored++;
+                        continue;
+                    }
+                    if (data == null || (path != null && (e.position() < at || e.position() - at >= BLOCK))) {
+                        if (data != null) data.close();
+                        int block = path == null ? 0 : (int) (e.position() / BLOCK);
+                        data = open(file, index.members[block]);
+                        at = (long) block * BLOCK;
+                    }
+                    data.skipNBytes(e.position() - at);
+                    extract(data, e, into, meter);
+                    at = e.position() + e.size();
+                    restored++;
+                }
+            } finally {
+                if (data != null) data.close();
+            }
+            return restored;
+        }
+    }
+
+    /** The uncompressed stream from the gzip member at {@code offset} on. */
+    private static InputStream open(Path file, long offset) throws IOException {
+        InputStream raw = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+        try {
+            raw.skipNBytes(offset);
+            return new GZIPInputStream(raw, 1 << 16);
+        } catch (IOException | RuntimeException e) {
+            raw.close();
+            throw e;
+        }
+    }
+
+    private static void extract(InputStream data, Entry e, Path into, ProgressMeter meter) throws IOException {
+        Path base = into.toAbsolutePath().normalize();
+        Path out = base.resolve(e.path()).normalize();
+        if (!out.startsWith(base) || out.equals(base)) throw new IOException("Érvénytelen útvonal az archívumban: " + e.path());
+        Files.createDirectories(out.getParent());
+        byte[] buf = new byte[(int) Math.max(1, Math.min(1 << 16, e.size()))];
+        try (OutputStream os = Files.newOutputStream(out)) {
+            for (long left = e.size(); left > 0; ) {
+                int n = data.read(buf, 0, (int) Math.min(buf.length, left));
+                if (n < 0) throw new EOFException("Csonka archívum: " + e.path());
+                os.write(buf, 0, n);
+                left -= n;
+            }
+        }
+        Files.setLastModifiedTime(out, FileTime.from(e.mtime(), TimeUnit.NANOSECONDS));
+        meter.item(out, e.size());
+    }
+
+    /**
+     * Builds the tar stream block by block and hands every full block to the compression pool.
+     * Compressed members are written in block order by the thread that produces the blocks, once
+     * the oldest one is done; that keeps the number of blocks in memory fixed.
+     */
+    private static final class Writer implements AutoCloseable {
+        private final Path file;
+        private final FileChannel out;
+        private final ExecutorService pool;
+        private final int maxPending;
+        private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        private final CopyEngine.Throttle throttle;
+        private final ProgressMeter meter;
+        private long[] members = new long[64]; // file offset of the member of every block written
+        private int blocks; // blocks handed to the pool
+        private int written; // members on the disk
+        private long offset; // bytes on the disk
+        private byte[] block = new byte[BLOCK];
+        private int used;
+
+        Writer(Path file, int threads, long bytesPerSecond, ProgressMeter meter) throws IOException {
+            this.file = file;
+            this.out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            this.pool = Executors.newFixedThreadPool(Math.max(1, threads), Thread.ofPlatform().daemon().name("DoomSorter-Gzip").factory());
+            this.maxPending = 2 * Math.max(1, threads);
+            this.throttle = new CopyEngine.Throttle(bytesPerSecond);
+            this.meter = meter;
+        }
+
+        long position() {
+            return (long) blocks * BLOCK + used;
+        }
+
+        long offset() {
+            return offset;
+        }
+
+        /** A ustar header; paths that do not fit and sizes beyond 8 GB go into a pax header first. */
+        void header(String path, long size, long mtimeSeconds) throws IOException, InterruptedException {
+            byte[] name = path.getBytes(StandardCharsets.UTF_8);
+            boolean ascii = name.length == path.length();
+            if (name.length > 100 || !ascii || size > MAX_OCTAL_SIZE) {
+                ByteArrayOutputStream pax = new ByteArrayOutputStream();
+                if (name.length > 100 || !ascii) pax.writeBytes(paxRecord("path", path));
+                if (size > MAX_OCTAL_SIZE) pax.writeBytes(paxRecord("size", Long.toString(size)));
+                byte[] records = pax.toByteArray();
+                write(ustar("PaxHeaders/" + Math.abs(path.hashCode()), records.length, mtimeSeconds, 'x'));
+                write(records, records.length);
+                pad(records.length);
+            }
+            write(ustar(ascii ? path : "?", size, mtimeSeconds, '0'));
+        }
+
+        /** Copies {@code size} bytes of {@code in}; a file that shrank while being read is padded with zeros. */
+        void write(FileChannel in, long size) throws IOException, InterruptedException {
+            long left = size;
+            while (left > 0) {
+                int n = in.read(ByteBuffer.wrap(block, used, (int) Math.min(left, BLOCK - used)));
+                if (n < 0) break;
+                advance(n);
+                left -= n;
+            }
+            zeros(left);
+            pad(size);
+        }
+
+        /** Writes the index entry and the tar end marker, then forces the archive to the disk. */
+        void finish(Path spool, long files) throws IOException, InterruptedException {
+            emit();
+            drain(0);
+            long entries = Files.size(spool);
+            long size = 4 + 4 + 4 + 8L * blocks + 4 + entries;
+            header(INDEX_NAME, size, System.currentTimeMillis() / 1000);
+            long indexMember = offset;
+            int within = used;
+            ByteArrayOutputStream head = new ByteArrayOutputStream();
+            DataOutputStream d = new DataOutputStream(head);
+            d.writeInt(MAGIC);
+            d.writeInt(VERSION);
+            d.writeInt(blocks);
+            for (int i = 0; i < blocks; i++) d.writeLong(members[i]);
+            d.writeInt(Math.toIntExact(files));
+            write(head.toByteArray(), head.size());
+            try (FileChannel in = FileChannel.open(spool, StandardOpenOption.READ)) {
+                write(in, entries);
+            }
+            emit();
+            drain(0);
+            ByteBuffer trailer = trailer(indexMember, within);
+            while (trailer.hasRemaining()) out.write(trailer);
+            offset += TRAILER;
+            out.force(true);
+        }
+
+        private void write(byte[] b) throws IOException, InterruptedException {
+            write(b, b.length);
+        }
+
+        private void write(byte[] b, int len) throws IOException, InterruptedException {
+            for (int off = 0; off < len; ) {
+                int n = Math.min(len - off, BLOCK - used);
+                System.arraycopy(b, off, block, used, n);
+                advance(n);
+                off += n;
+            }
+        }
+
+        private void pad(long size) throws IOException, InterruptedException {
+            int rest = (int) (size % TAR_RECORD);
+            if (rest != 0) zeros(TAR_RECORD - rest);
+        }
+
+        private void zeros(long n) throws IOException, InterruptedException {
+            while (n > 0) {
+                int k = (int) Math.min(n, BLOCK - used);
+                Arrays.fill(block, used, used + k, (byte) 0);
+                advance(k);
+                n -= k;
+            }
+        }
+
+        private void advance(int n) throws IOException, InterruptedException {
+            used += n;
+            if (used == BLOCK) emit();
+        }
+
+        private void emit() throws IOException, InterruptedException {
+            if (used == 0) return;
+            byte[] data = block;
+            int len = used;
+            pending.add(pool.submit(() -> gzip(data, len)));
+            blocks++;
+            block = new byte[BLOCK];
+            used = 0;
+            drain(maxPending - 1);
+        }
+
+        /** Writes finished members in order until at most {@code keep} are pending. */
+        private void drain(int keep) throws IOException, InterruptedException {
+            while (pending.size() > keep) {
+                byte[] member;
+                try {
+                    member = pending.poll().get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException io) throw io;
+                    if (e.getCause() instanceof RuntimeException r) throw r;
+                    throw new IllegalStateException(e.getCause());
+                }
+                throttle.acquire(member.length);
+                long start = System.nanoTime();
+                ByteBuffer bb = ByteBuffer.wrap(member);
+                while (bb.hasRemaining()) out.write(bb);
+                meter.record(RunStats.Op.WRITE, file, start, member.length);
+                if (written == members.length) members = Arrays.copyOf(members, 2 * written);
+                members[written++] = offset;
+                offset += member.length;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            pool.shutdownNow();
+            out.close();
+        }
+    }
+
+    private static byte[] gzip(byte[] data, int len) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(len / 2 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(bos, 1 << 16)) {
+            gz.write(data, 0, len);
+        }
+        return bos.toByteArray();
+    }
+
+    private static byte[] ustar(String path, long size, long mtimeSeconds, char type) {
+        byte[] h = new byte[TAR_RECORD];
+        byte[] name = path.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(name, 0, h, 0, Math.min(100, name.length));
+        octal(h, 100, 8, 0644);
+        octal(h, 108, 8, 0);
+        octal(h, 116, 8, 0);
+        octal(h, 124, 12, Math.min(size, MAX_OCTAL_SIZE));
+        octal(h, 136, 12, Math.max(0, mtimeSeconds));
+        h[156] = (byte) type;
+        System.arraycopy("ustar\0".getBytes(StandardCharsets.US_ASCII), 0, h, 257, 6);
+        h[263] = '0';
+        h[264] = '0';
+        Arrays.fill(h, 148, 156, (byte) ' ');
+        long sum = 0;
+        for (byte b : h) sum += b & 0xff;
+        octal(h, 148, 7, sum);
+        return h;
+    }
+
+    /** {@code len - 1} zero-padded octal digits and a NUL. */
+    private static void octal(byte[] h, int off, int len, long v) {
+        String s = Long.toOctalString(v);
+        s = "0".repeat(Math.max(0, len - 1 - s.length())) + s;
+        System.arraycopy(s.getBytes(StandardCharsets.US_ASCII), 0, h, off, len - 1);
+        h[off + len - 1] = 0;
+    }
+
+    /** One pax record, "LEN key=value\n", where LEN counts its own digits. */
+    private static byte[] paxRecord(String key, String value) {
+        byte[] kv = (" " + key + "=" + value + "\n").getBytes(StandardCharsets.UTF_8);
+        int len = kv.length + String.valueOf(kv.length).length();
+        if (String.valueOf(len).length() + kv.length != len) len++;
+        return (len + new String(kv, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The last gzip member, built by hand so its length is fixed: the tar end marker as one
+     * stored deflate block, with the index position in a "DS" extra subfield that gzip and tar
+     * skip over.
+     */
+    private static ByteBuffer trailer(long indexMember, int within) {
+        ByteBuffer b = ByteBuffer.allocate(TRAILER).order(ByteOrder.LITTLE_ENDIAN);
+        b.put((byte) 0x1f).put((byte) 0x8b).put((byte) 8).put((byte) 4); // deflate, FEXTRA
+        b.putInt(0).put((byte) 0).put((byte) 255);
+        b.putShort((short) EXTRA).put((byte) 'D').put((byte) 'S').putShort((short) 12);
+        b.putLong(indexMember).putInt(within);
+        b.put((byte) 1).putShort((short) END_OF_ARCHIVE).putShort((short) ~END_OF_ARCHIVE); // final stored block
+        b.put(new byte[END_OF_ARCHIVE]);
+        CRC32 crc = new CRC32();
+        crc.update(new byte[END_OF_ARCHIVE]);
+        b.putInt((int) crc.getValue()).putInt(END_OF_ARCHIVE);
+        return b.flip();
+    }
+
+    /** Reads the member table, then the file entries one by one. */
+    private static final class IndexReader implements AutoCloseable {
+        final long[] members;
+        final int count;
+        private final DataInputStream in;
+        private int read;
+
+        IndexReader(Path archive) throws IOException {
+            ByteBuffer t = ByteBuffer.allocate(TRAILER).order(ByteOrder.LITTLE_ENDIAN);
+            try (FileChannel ch = FileChannel.open(archive, StandardOpenOption.READ)) {
+                if (ch.size() < TRAILER) throw new IOException("Nem DoomSorter archívum: " + archive.getFileName());
+                ch.position(ch.size() - TRAILER);
+                while (t.hasRemaining() && ch.read(t) >= 0) {
+                }
+            }
+            t.flip();
+            if (t.getInt(0) != 0x04088b1f || t.get(12) != 'D' || t.get(13) != 'S') {
+                throw new IOException("Nem DoomSorter archívum vagy sérült a vége: " + archive.getFileName());
+            }
+            long indexMember = t.getLong(16);
+            int within = t.getInt(24);
+            InputStream raw = new BufferedInputStream(Files.newInputStream(archive), 1 << 16);
+            try {
+                raw.skipNBytes(indexMember);
+                in = new DataInputStream(new GZIPInputStream(raw, 1 << 16));
+                in.skipNBytes(within);
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("Ismeretlen archívum index: " + archive.getFileName());
+                members = new long[in.readInt()];
+                for (int i = 0; i < members.length; i++) members[i] = in.readLong();
+                count = in.readInt();
+            } catch (IOException | RuntimeException e) {
+                raw.close();
+                throw e;
+            }
+        }
+
+        Entry next() throws IOException {
+            if (read == count) return null;
+            read++;
+            byte[] path = new byte[in.readInt()];
+            in.readFully(path);
+            return new Entry(new String(path, StandardCharsets.UTF_8), in.readLong(), in.readLong(), in.readLong());
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
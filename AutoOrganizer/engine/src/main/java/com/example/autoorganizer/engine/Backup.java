@@ -0,0 +1,205 @@
+package com.example.autoorganizer.engine;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies a source tree to a backup target. {@link Mode#FULL} rewrites every file,
+ * {@link Mode#INCREMENTAL} consults the {@link BackupManifest} at the target and only
+ * copies files whose size or mtime changed since the last run, {@link Mode#SNAPSHOT}
+ * writes a deduplicated snapshot into a {@link SnapshotStore}, {@link Mode#ARCHIVE} streams
+ * the tree into one compressed archive file through an {@link ArchiveStore}.
+ *
+ * <p>With verification on, FULL and INCREMENTAL take the SHA-256 of every file as it is copied,
+ * keep it in the manifest and afterwards read the target back through a {@link BackupVerifier}.
+ */
+public final class Backup {
+
+    public enum Mode {
+        FULL, INCREMENTAL, SNAPSHOT, ARCHIVE
+    }
+
+    /** {@code bytesPerSecond} of 0 or less copies without a bandwidth limit. */
+    record Options(Mode mode, boolean propagateDeletes, boolean digests, boolean verify, int keepSnapshots, int threads,
+                   long bytesPerSecond) {
+    }
+
+    /**
+     * {@code verification} is null when the target was not read back. {@code errors} holds the
+     * files and folders that could not be read, with the reason; they are not in the backup.
+     */
+    public record Summary(long copied, long skipped, long deleted, long bytes, Verification verification, Map<Path, String> errors) {
+    }
+
+    /**
+     * Files read back and compared, files skipped because they were verified before and have not
+     * changed at the target, files without a digest to compare with, and the mismatches by
+     * relative path with their reason. {@code report} is the JSON report at the target.
+     */
+    public record Verification(long checked, long unchanged, long withoutDigest, Map<String, String> mismatches, Path report) {
+    }
+
+    private Backup() {
+    }
+
+    static Summary run(Path src, Path dst, FileScanner scanner, Options options, ProgressMeter meter)
+            throws IOException, InterruptedException {
+        if (options.mode() == Mode.SNAPSHOT) {
+            return new SnapshotStore(dst).backup(src, scanner, options.keepSnapshots(), meter);
+        }
+        if (options.mode() == Mode.ARCHIVE) {
+            return new ArchiveStore(dst).backup(src, scanner, options.keepSnapshots(), options.bytesPerSecond(), meter);
+        }
+        meter.phase("Másolás", -1);
+        boolean incremental = options.mode() == Mode.INCREMENTAL;
+        boolean hash = options.digests() || options.verify();
+        BackupManifest manifest = incremental || options.verify() ? BackupManifest.load(dst) : null;
+        Set<String> seen = new HashSet<>();
+        List<Copied> pending = new ArrayList<>();
+        Set<Path> createdDirs = new HashSet<>();
+        Path dstAbs = dst.toAbsolutePath().normalize();
+        long copied = 0, skipped = 0, deleted = 0, bytes = 0;
+        List<String> unreadable = new ArrayList<>();
+        Map<Path, String> errors = new TreeMap<>();
+
+        try (FileScanner.Feed feed = scanner.feed(src, 1024);
+             CopyEngine engine = new CopyEngine(options.threads(), options.bytesPerSecond(), hash, options.verify(), meter)) {
+            try {
+                FileScanner.Entry entry;
+                while ((entry = feed.take()) != null) {
+                    // a target inside the source must not be copied into itself
+                    if (entry.path().toAbsolutePath().normalize().startsWith(dstAbs)) continue;
+                    Path rel = src.relativize(entry.path());
+                    Path out = dst.resolve(rel);
+                    BasicFileAttributes attrs = entry.attrs();
+                    String key = key(rel);
+                    long mtime = attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+                    if (manifest != null) seen.add(key);
+                    if (incremental) {
+                        BackupManifest.Entry old = manifest.get(key);
+                        if (old != null && old.size() == attrs.size()) {
+                            if (old.mtime() == mtime) {
+                                skipped++;
+                                meter.item(entry.path());
+                                continue;
+                            }
+                            // only the timestamp moved, e.g. after a touch or a copy without attributes; a
+                            // target deleted or changed by hand on the backup drive is copied again
+                            if (options.digests() && old.digest() != null && targetSize(out) == attrs.size()) {
+                                long start = System.nanoTime();
+                                Digest d = FileHasher.sha256(entry.path());
+                                meter.record(RunStats.Op.READ, entry.path(), start, attrs.size());
+                                if (d.equals(old.digest())) {
+                                    Files.setLastModifiedTime(out, attrs.lastModifiedTime());
+                                    manifest.put(key, new BackupManifest.Entry(attrs.size(), mtime, d, old.verified()));
+                                    skipped++;
+                                    meter.item(entry.path());
+                                    continue;
+                                }
+                            }
+                        }
+                    }
+                    copy(engine, entry, out, createdDirs);
+                    if (manifest != null) pending.add(new Copied(key, out, attrs.size(), mtime));
+                }
+                engine.finish();
+                copied = engine.files();
+                bytes = engine.bytes();
+                errors.putAll(engine.unreadable());
+                for (Path p : feed.failed()) {
+                    unreadable.add(key(src.relativize(p)));
+                    errors.put(p, "A bejárás nem tudta olvasni");
+                }
+            } finally {
+                // the digests were taken from the bytes on their way to the target. A file that was not
+                // copied (unreadable, or the run stopped first) keeps its old entry, which still describes
+                // an untouched target or, after a torn copy, differs from the source and is copied again
+                for (Copied c : pending) {
+                    if (engine.copied(c.out())) manifest.put(c.key(), new BackupManifest.Entry(c.size(), c.mtime(), engine.digest(c.out())));
+                }
+            }
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            // keep what was copied, so the next run does not start over after a failure or a cancel
+            if (manifest != null) {
+                try {
+                    manifest.save();
+                } catch (IOException saving) {
+                    e.addSuppressed(saving);
+                }
+            }
+            throw e;
+        }
+
+        if (incremental) {
+            meter.phase("Törlés a célból", -1);
+            for (Iterator<String> it = manifest.entries().keySet().iterator(); it.hasNext(); ) {
+                String key = it.next();
+                if (seen.contains(key) || !options.propagateDeletes() || belowAny(key, unreadable)) continue;
+                Path gone = dst.resolve(key);
+                meter.item(gone);
+                long start = System.nanoTime();
+                Files.deleteIfExists(gone);
+                meter.record(RunStats.Op.DELETE, gone, start, 0);
+                it.remove();
+                deleted++;
+            }
+        } else if (manifest != null) {
+            // a full run vouches for what it copied now; files gone from the source stay on the target unchecked
+            manifest.entries().keySet().retainAll(seen);
+        }
+        if (manifest == null) return new Summary(copied, skipped, deleted, bytes, null, errors);
+        manifest.save();
+        Verification verification = null;
+        if (options.verify()) {
+            verification = BackupVerifier.verify(dst, manifest, options.threads(), meter);
+            manifest.save();
+        }
+        return new Summary(copied, skipped, deleted, bytes, verification, errors);
+    }
+
+    private record Copied(String key, Path out, long size, long mtime) {
+    }
+
+    /** Size of a file on the target, or -1 if it is gone. */
+    private static long targetSize(Path out) {
+        try {
+            return Files.size(out);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static void copy(CopyEngine engine, FileScanner.Entry from, Path to, Set<Path> createdDirs)
+            throws IOException, InterruptedException {
+        if (createdDirs.add(to.getParent())) Files.createDirectories(to.getParent());
+        engine.copy(from.path(), to, from.attrs().size(), from.attrs().lastModifiedTime());
+    }
+
+    /**
+     * True if {@code key} is one of {@code failed} or lies below one. A folder that could not
+     * be listed (permissions, an unplugged share) looks empty to the scan, so its files must
+     * not count as deleted from the source; an empty key is the source itself.
+     */
+    static boolean belowAny(String key, List<String> failed) {
+        for (String f : failed) {
+            if (f.isEmpty() || selected(key, f)) return true;
+        }
+        return false;
+    }
+
+    /** True if {@code key} is {@code path} or lies below it; a null {@code path} selects everything. */
+    static boolean selected(String key, String path) {
+        if (path == null) return true;
+        String p = path.replace('\\', '/');
+        while (p.endsWith("/")) p = p.substring(0, p.length() - 1);
+        return key.equals(p) || key.startsWith(p + "/");
+    }
+
+    /** Manifest keys always use '/' so a target can be moved between Windows and Unix hosts. */
+    private static String key(Path rel) {
+        return rel.toString().replace(rel.getFileSystem().getSeparator(), "/");
+    }
+}
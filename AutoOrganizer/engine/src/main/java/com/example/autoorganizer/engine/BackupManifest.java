@@ -0,0 +1,99 @@
+package com.example.autoorganizer.engine;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * What the last backup wrote to the target: relative path, size, mtime and optionally the
+ * digest of every file, and whether the copy at the target was read back and matched that
+ * digest. Stored next to the backed-up files as {@value #FILE_NAME}, in the same compact
+ * binary layout as the digest cache.
+ */
+final class BackupManifest {
+
+    static final String FILE_NAME = ".doomsorter-backup.bin";
+    private static final int MAGIC = 0x4453424d; // "DSBM"
+    private static final int VERSION = 2;
+    private static final int HAS_DIGEST = 1;
+    private static final int VERIFIED = 2;
+
+    /** {@code verified}: the target file was last read back with this digest. */
+    record Entry(long size, long mtime, Digest digest, boolean verified) {
+        Entry(long size, long mtime, Digest digest) {
+            this(size, mtime, digest, false);
+        }
+    }
+
+    private final Path file;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private BackupManifest(Path file) {
+        this.file = file;
+    }
+
+    static BackupManifest load(Path target) {
+        BackupManifest m = new BackupManifest(target.resolve(FILE_NAME));
+        if (!Files.isRegularFile(m.file)) return m;
+        try {
+            // read, not mapped, so that save() can replace the file on Windows
+            ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(m.file));
+            if (buf.getInt() != MAGIC) return m;
+            int version = buf.getInt();
+            if (version != 1 && version != VERSION) return m;
+            int count = buf.getInt();
+            for (int i = 0; i < count; i++) {
+                byte[] path = new byte[buf.getInt()];
+                buf.get(path);
+                long size = buf.getLong();
+                long mtime = buf.getLong();
+                int flags = buf.get(); // version 1 only had the digest flag
+                Digest digest = (flags & HAS_DIGEST) != 0 ? Digest.read(buf) : null;
+                m.entries.put(new String(path, StandardCharsets.UTF_8), new Entry(size, mtime, digest, (flags & VERIFIED) != 0));
+            }
+        } catch (IOException | RuntimeException e) {
+            // without a readable manifest every file counts as changed
+            m.entries.clear();
+        }
+        return m;
+    }
+
+    Entry get(String rel) {
+        return entries.get(rel);
+    }
+
+    void put(String rel, Entry e) {
+        entries.put(rel, e);
+    }
+
+    Entry remove(String rel) {
+        return entries.remove(rel);
+    }
+
+    Map<String, Entry> entries() {
+        return entries;
+    }
+
+    void save() throws IOException {
+        Path tmp = file.resolveSibling(FILE_NAME + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (var e : entries.entrySet()) {
+                byte[] path = e.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(path.length);
+                out.write(path);
+                out.writeLong(e.getValue().size());
+                out.writeLong(e.getValue().mtime());
+                Digest d = e.getValue().digest();
+                out.writeByte((d != null ? HAS_DIGEST : 0) | (e.getValue().verified() ? VERIFIED : 0));
+                if (d != null) out.write(d.toBytes());
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
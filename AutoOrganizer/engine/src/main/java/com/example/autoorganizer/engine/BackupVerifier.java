@@ -0,0 +1,134 @@
+package com.example.autoorganizer.engine;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Reads back what a backup wrote and compares it with the digests the copy took on the way.
+ * Files are checked in parallel; one already verified is only stat'ed, and read again only if
+ * its size or mtime at the target moved since, so a nightly run re-reads what it copied and
+ * not the whole stick. The outcome goes into the manifest and into {@value #REPORT_NAME} at the
+ * target, for scripts and monitoring.
+ *
+ * <p>A file that does not match drops out of the manifest, so the next incremental run
+ * copies it again.
+ */
+final class BackupVerifier {
+
+    static final String REPORT_NAME = ".doomsorter-verify.json";
+    private static final long MTIME_SLACK_NANOS = 2_000_000_000L; // FAT keeps mtimes in 2 s steps
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private record Mismatch(String path, String reason, String expected, String actual) {
+    }
+
+    private record Report(String finished, String target, long checked, long unchanged, long withoutDigest, List<Mismatch> mismatches) {
+    }
+
+    /** {@code reason} is null for a match; {@code read} is false for a file skipped as unchanged. */
+    private record Outcome(String key, BackupManifest.Entry entry, boolean read, String reason, Digest actual) {
+    }
+
+    private BackupVerifier() {
+    }
+
+    static Backup.Verification verify(Path dst, BackupManifest manifest, int threads, ProgressMeter meter)
+            throws IOException, InterruptedException {
+        List<String> todo = new ArrayList<>();
+        long withoutDigest = 0;
+        for (var e : manifest.entries().entrySet()) {
+            if (e.getValue().digest() == null) withoutDigest++;
+            else todo.add(e.getKey());
+        }
+
+        meter.phase("Ellenőrzés", todo.size());
+        long checked = 0, unchanged = 0;
+        Map<String, String> mismatches = new TreeMap<>();
+        List<Mismatch> report = new ArrayList<>();
+        // every check reads a whole file back from the target, so the work waits on the disk
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads), Thread.ofVirtual().name("DoomSorter-Verify").factory());
+        try {
+            for (int from = 0; from < todo.size(); from += MovePlan.BATCH) {
+                List<Future<Outcome>> done = new ArrayList<>();
+                for (String key : todo.subList(from, Math.min(todo.size(), from + MovePlan.BATCH))) {
+                    BackupManifest.Entry entry = manifest.get(key);
+                    done.add(pool.submit(() -> check(dst, key, entry, meter)));
+                }
+                for (Future<Outcome> f : done) {
+                    Outcome o;
+                    try {
+                        o = f.get();
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof RuntimeException r) throw r;
+                        throw new IllegalStateException(e.getCause());
+                    }
+                    BackupManifest.Entry entry = o.entry();
+                    if (!o.read()) {
+                        unchanged++;
+                    } else if (o.reason() == null) {
+                        checked++;
+                        manifest.put(o.key(), new BackupManifest.Entry(entry.size(), entry.mtime(), entry.digest(), true));
+                    } else {
+                        checked++;
+                        manifest.remove(o.key());
+                        mismatches.put(o.key(), o.reason());
+                        report.add(new Mismatch(o.key(), o.reason(), entry.digest().toHex(), o.actual() == null ? null : o.actual().toHex()));
+                    }
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        report.sort(Comparator.comparing(Mismatch::path));
+        Path file = dst.resolve(REPORT_NAME);
+        Path tmp = dst.resolve(REPORT_NAME + ".tmp");
+        Files.writeString(tmp, GSON.toJson(new Report(Instant.now().toString(), dst.toAbsolutePath().toString(),
+                checked, unchanged, withoutDigest, report)), StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new Backup.Verification(checked, unchanged, withoutDigest, mismatches, file);
+    }
+
+    private static Outcome check(Path dst, String key, BackupManifest.Entry entry, ProgressMeter meter) {
+        Path p = dst.resolve(key);
+        meter.at(p);
+        Outcome o = compare(p, key, entry, meter);
+        meter.item(p, o.read() ? entry.size() : 0);
+        return o;
+    }
+
+    private static Outcome compare(Path p, String key, BackupManifest.Entry entry, ProgressMeter meter) {
+        try {
+            BasicFileAttributes a;
+            try {
+                a = Files.readAttributes(p, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                return new Outcome(key, entry, true, "Hiányzik a célból", null);
+            }
+            if (entry.verified() && untouched(a, entry)) return new Outcome(key, entry, false, null, null);
+            if (a.size() != entry.size()) {
+                return new Outcome(key, entry, true, "Eltérő méret: " + a.size() + " / " + entry.size(), null);
+            }
+            long start = System.nanoTime();
+            Digest actual = FileHasher.sha256(p);
+            meter.record(RunStats.Op.READ, p, start, a.size());
+            return actual.equals(entry.digest()) ? new Outcome(key, entry, true, null, actual)
+                    : new Outcome(key, entry, true, "A tartalom eltér a másoláskor számolt SHA-256-tól", actual);
+        } catch (IOException e) {
+            return new Outcome(key, entry, true, "Nem olvasható: " + e.getMessage(), null);
+        }
+    }
+
+    /** True if the target file still has the size and (within the file system's resolution) the mtime it was verified with. */
+    private static boolean untouched(BasicFileAttributes a, BackupManifest.Entry entry) {
+        return a.size() == entry.size() && Math.abs(a.lastModifiedTime().to(TimeUnit.NANOSECONDS) - entry.mtime()) <= MTIME_SLACK_NANOS;
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.autoorganizer.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Reads when a photo or video was taken from its metadata: EXIF DateTimeOriginal in JPEG,
+ * TIFF and HEIC files, the movie header creation time in MOV and MP4 files. Only the boxes,
+ * segments and directories on the way to the date are read, with small positional reads, so
+ * the cost does not grow with the file size.
+ */
+final class CaptureDate {
+
+    private static final DateTimeFormatter EXIF = DateTimeFormatter.ofPattern("yyyy:MM:dd HH:mm:ss");
+    private static final long QUICKTIME_EPOCH = -2_082_844_800L; // 1904-01-01 in Unix seconds
+    private static final int MAX_BOX_READ = 1 << 20;
+    private static final int TAG_DATE_TIME = 0x0132, TAG_EXIF_IFD = 0x8769, TAG_ORIGINAL = 0x9003, TAG_DIGITIZED = 0x9004;
+
+    private CaptureDate() {
+    }
+
+    /** The capture time in the camera's local time, or {@code null} if the file does not say. */
+    static LocalDateTime read(Path p) throws IOException {
+        try (FileChannel ch = FileChannel.open(p, StandardOpenOption.READ)) {
+            ByteBuffer head = read(ch, 0, ContentType.HEAD_BYTES);
+            byte[] b = new byte[head.remaining()];
+            head.get(b);
+            String type = ContentType.of(b, b.length);
+            if (type == null) return null;
+            return switch (type) {
+                case "image/jpeg" -> jpeg(ch);
+                case "image/tiff" -> tiff(ch, 0);
+                case "image/heic", "video/quicktime", "video/mp4" -> isoMedia(ch);
+                default -> null;
+            };
+        } catch (RuntimeException e) {
+            // a damaged header is a file without a date, not a failed run
+            return null;
+        }
+    }
+
+    /** Walks the marker segments up to the image data, looking for the APP1 Exif segment. */
+    private static LocalDateTime jpeg(FileChannel ch) throws IOException {
+        long pos = 2;
+        while (true) {
+            ByteBuffer seg = read(ch, pos, 10);
+            if (seg.remaining() < 4 || (seg.get(0) & 0xFF) != 0xFF) return null;
+            int marker = seg.get(1) & 0xFF;
+            if (marker == 0xDA || marker == 0xD9) return null; // image data: no more metadata
+            int len = seg.getShort(2) & 0xFFFF;
+            if (marker == 0xE1 && seg.remaining() >= 10 && seg.getInt(4) == 0x45786966 && seg.getShort(8) == 0) { // "Exif\0\0"
+                return tiff(ch, pos + 10);
+            }
+            pos += 2 + len;
+        }
+    }
+
+    /** Reads the date from the TIFF structure whose header starts at {@code base}. */
+    private static LocalDateTime tiff(FileChannel ch, long base) throws IOException {
+        ByteBuffer h = read(ch, base, 8);
+        if (h.remaining() < 8) return null;
+        ByteOrder order = h.get(0) == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+        h.order(order);
+        if (h.getShort(2) != 42) return null;
+        ByteBuffer ifd0 = ifd(ch, base, h.getInt(4) & 0xFFFFFFFFL, order);
+        if (ifd0 == null) return null;
+        int exif = entry(ifd0, TAG_EXIF_IFD);
+        if (exif >= 0) {
+            ByteBuffer sub = ifd(ch, base, ifd0.getInt(exif + 8) & 0xFFFFFFFFL, order);
+            if (sub != null) {
+                LocalDateTime d = date(ch, base, sub, entry(sub, TAG_ORIGINAL));
+                if (d == null) d = date(ch, base, sub, entry(sub, TAG_DIGITIZED));
+                if (d != null) return d;
+            }
+        }
+        return date(ch, base, ifd0, entry(ifd0, TAG_DATE_TIME));
+    }
+
+    /** The 12-byte entries of the directory at {@code offset}, or {@code null} if it does not fit. */
+    private static ByteBuffer ifd(FileChannel ch, long base, long offset, ByteOrder order) throws IOException {
+        ByteBuffer n = read(ch, base + offset, 2).order(order);
+        if (n.remaining() < 2) return null;
+        int count = n.getShort(0) & 0xFFFF;
+        if (count == 0 || count > 1000) return null;
+        ByteBuffer entries = read(ch, base + offset + 2, count * 12).order(order);
+        return entries.remaining() == count * 12 ? entries : null;
+    }
+
+    private static int entry(ByteBuffer ifd, int tag) {
+        for (int i = 0; i + 12 <= ifd.limit(); i += 12) {
+            if ((ifd.getShort(i) & 0xFFFF) == tag) return i;
+        }
+        return -1;
+    }
+
+    /** An ASCII date entry: 20 bytes, so the entry holds the offset of the text. */
+    private static LocalDateTime date(FileChannel ch, long base, ByteBuffer ifd, int entry) throws IOException {
+        if (entry < 0 || ifd.getShort(entry + 2) != 2 || ifd.getInt(entry + 4) < 19) return null;
+        ByteBuffer text = read(ch, base + (ifd.getInt(entry + 8) & 0xFFFFFFFFL), 19);
+        if (text.remaining() < 19) return null;
+        try {
+            return LocalDateTime.parse(StandardCharsets.US_ASCII.decode(text), EXIF);
+        } catch (DateTimeParseException e) {
+            return null; // "0000:00:00 00:00:00" and blanks are common
+        }
+    }
+
+    /**
+     * ISO base media files: the movie header of {@code moov} for MOV and MP4, the Exif item
+     * of {@code meta} for HEIC. Only box headers are read on the way, so a large {@code mdat}
+     * in front costs one read.
+     */
+    private static LocalDateTime isoMedia(FileChannel ch) throws IOException {
+        long size = ch.size();
+        long pos = 0;
+        while (pos + 8 <= size) {
+            ByteBuffer h = read(ch, pos, 16);
+            if (h.remaining() < 8) return null;
+            long len = h.getInt(0) & 0xFFFFFFFFL;
+            int type = h.getInt(4);
+            int header = 8;
+            if (len == 1 && h.remaining() >= 16) {
+                len = h.getLong(8);
+                header = 16;
+            } else if (len == 0) {
+                len = size - pos;
+            }
+            if (len < header) return null;
+            LocalDateTime d = null;
+            if (type == box("moov")) {
+                d = movieHeader(ch, pos + header, pos + len);
+            } else if (type == box("meta") && len <= MAX_BOX_READ) {
+                d = heicExif(ch, read(ch, pos + header, (int) len - header));
+            }
+            if (d != null) return d;
+            pos += len;
+        }
+        return null;
+    }
+
+    /**
+     * {@code mvhd} creation time: seconds since 1904 in UTC, shown in the local zone. The sample
+     * tables make {@code moov} megabytes long in long videos, so only child headers are read.
+     */
+    private static LocalDateTime movieHeader(FileChannel ch, long pos, long end) throws IOException {
+        while (pos + 8 <= end) {
+            ByteBuffer h = read(ch, pos, 20);
+            if (h.remaining() < 8) return null;
+            long len = h.getInt(0) & 0xFFFFFFFFL;
+            if (len < 8) return null;
+            if (h.getInt(4) == box("mvhd")) return h.remaining() < 20 ? null : movieTime(h.get(8) == 1 ? h.getLong(12) : h.getInt(12) & 0xFFFFFFFFL);
+            pos += len;
+        }
+        return null;
+    }
+
+    private static LocalDateTime movieTime(long seconds) {
+        if (seconds == 0) return null;
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(seconds + QUICKTIME_EPOCH), ZoneId.systemDefault());
+    }
+
+    /** Finds the {@code Exif} item in {@code iinf}, its location in {@code iloc}, then reads it as TIFF. */
+    private static LocalDateTime heicExif(FileChannel ch, ByteBuffer meta) throws IOException {
+        int start = 4; // full box: version and flags
+        int iinf = child(meta, start, meta.limit(), box("iinf"));
+        int iloc = child(meta, start, meta.limit(), box("iloc"));
+        if (iinf < 0 || iloc < 0) return null;
+
+        int at = iinf + 8;
+        int version = meta.get(at);
+        at += 4;
+        at += version == 0 ? 2 : 4; // entry count
+        int end = iinf + meta.getInt(iinf);
+        long exifId = -1;
+        for (int infe; (infe = child(meta, at, end, box("infe"))) >= 0; at = infe + meta.getInt(infe)) {
+            int v = meta.get(infe + 8);
+            if (v < 2) continue;
+            int p = infe + 12;
+            long id = v == 2 ? meta.getShort(p) & 0xFFFF : meta.getInt(p) & 0xFFFFFFFFL;
+            p += (v == 2 ? 2 : 4) + 2; // item id, protection index
+            if (meta.getInt(p) == box("Exif")) {
+                exifId = id;
+                break;
+            }
+        }
+        if (exifId < 0) return null;
+
+        at = iloc + 8;
+        version = meta.get(at);
+        at += 4;
+        int offsetSize = (meta.get(at) >> 4) & 0xF, lengthSize = meta.get(at) & 0xF;
+        int baseSize = (meta.get(at + 1) >> 4) & 0xF, indexSize = version > 0 ? meta.get(at + 1) & 0xF : 0;
+        at += 2;
+        long items = version < 2 ? meta.getShort(at) & 0xFFFF : meta.getInt(at) & 0xFFFFFFFFL;
+        at += version < 2 ? 2 : 4;
+        for (long i = 0; i < items; i++) {
+            long id = version < 2 ? meta.getShort(at) & 0xFFFF : meta.getInt(at) & 0xFFFFFFFFL;
+            at += version < 2 ? 2 : 4;
+            int method = 0;
+            if (version > 0) {
+                method = meta.getShort(at) & 0xF;
+                at += 2;
+            }
+            at += 2; // data reference index
+            long baseOffset = uint(meta, at, baseSize);
+            at += baseSize;
+            int extents = meta.getShort(at) & 0xFFFF;
+            at += 2;
+            long first = -1;
+            for (int e = 0; e < extents; e++) {
+                at += indexSize;
+                long offset = uint(meta, at, offsetSize);
+                at += offsetSize + lengthSize;
+                if (e == 0) first = offset;
+            }
+            if (id == exifId) {
+                if (method != 0 || first < 0) return null; // only items stored in the file itself
+                long item = baseOffset + first;
+                ByteBuffer skip = read(ch, item, 4);
+                if (skip.remaining() < 4) return null;
+                return tiff(ch, item + 4 + (skip.getInt(0) & 0xFFFFFFFFL));
+            }
+        }
+        return null;
+    }
+
+    /** Start of the first child box of {@code type} between {@code from} and {@code to}, or -1. */
+    private static int child(ByteBuffer b, int from, int to, int type) {
+        int pos = from;
+        while (pos + 8 <= to) {
+            int len = b.getInt(pos);
+            if (len < 8 || pos + len > to) return -1;
+            if (b.getInt(pos + 4) == type) return pos;
+            pos += len;
+        }
+        return -1;
+    }
+
+    private static long uint(ByteBuffer b, int at, int size) {
+        return switch (size) {
+            case 0 -> 0;
+            case 4 -> b.getInt(at) & 0xFFFFFFFFL;
+            case 8 -> b.getLong(at);
+            default -> throw new IllegalArgumentException("Hibás iloc mezőméret: " + size);
+        };
+    }
+
+    private static int box(String type) {
+        return type.charAt(0) << 24 | type.charAt(1) << 16 | type.charAt(2) << 8 | type.charAt(3);
+    }
+
+    /** Up to {@code len} bytes at {@code pos}, fewer at the end of the file; big-endian. */
+    private static ByteBuffer read(FileChannel ch, long pos, int len) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(len);
+        while (b.hasRemaining()) {
+            if (ch.read(b, pos + b.position()) < 0) break;
+        }
+        return b.flip();
+    }
+}
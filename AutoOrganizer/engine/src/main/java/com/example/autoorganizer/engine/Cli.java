@@ -0,0 +1,353 @@
+package com.example.autoorganizer.engine;
+
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Command line front end for servers and cron: runs one engine operation without starting
+ * JavaFX and writes JSON lines to stdout, one per result item and a final {@code "result"}
+ * line. With {@code --progress} the meter's updates are written as {@code "progress"} lines too.
+ * Exit code 0 means success, 1 a failed run and 2 a usage error.
+ */
+public final class Cli {
+
+    private static final String USAGE = """
+            Használat: doomsorter [--config DIR] [--progress] [--dry-run] PARANCS ...
+              organize DIR
+              rename DIR (--date MINTA | --prefix NÉV [--start N]) [--recursive]
+              duplicates DIR
+              similar DIR [--distance BIT]
+              dedup DIR [--mode AUTO|HARDLINK|REFLINK]
+              backup [FORRÁS CÉL] [--mode FULL|INCREMENTAL|SNAPSHOT|ARCHIVE]
+              snapshots CÉL
+              restore CÉL SNAPSHOT HOVÁ [--path ÚTVONAL]
+              watch DIR
+              journal | resume | rollback | undo""";
+
+    private final Gson gson = new Gson();
+    private final PrintStream out;
+
+    Cli(PrintStream out) {
+        this.out = out;
+    }
+
+    public static void main(String[] args) {
+        System.exit(new Cli(System.out).run(args));
+    }
+
+    int run(String[] args) {
+        List<String> positional = new ArrayList<>();
+        Map<String, String> options = new HashMap<>();
+        boolean progress = false;
+        boolean dryRun = false;
+        boolean recursive = false;
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            if (a.equals("--progress")) {
+                progress = true;
+            } else if (a.equals("--dry-run")) {
+                dryRun = true;
+            } else if (a.equals("--recursive")) {
+                recursive = true;
+            } else if (a.startsWith("--")) {
+                if (i + 1 >= args.length) return usage("Hiányzó érték: " + a);
+                options.put(a.substring(2), args[++i]);
+            } else {
+                positional.add(a);
+            }
+        }
+        if (positional.isEmpty()) return usage(null);
+
+        Path configDir = Path.of(options.getOrDefault("config", Settings.DEFAULT_DIR.toString()));
+        Settings settings = Settings.load(configDir.resolve("config.json"));
+        if (settings == null) settings = Settings.defaultSettings();
+        Engine engine = new Engine(settings, configDir);
+
+        String command = positional.get(0);
+        List<String> params = positional.subList(1, positional.size());
+        Job job;
+        try {
+            // only arguments are checked here; an IllegalArgumentException of the run itself is a failed run, not a usage error
+            job = parse(engine, command, params, options, dryRun, recursive);
+        } catch (IllegalArgumentException e) {
+            return usage(e.getMessage());
+        }
+        Runnable report;
+        ProgressMeter meter = progress ? ProgressMeter.start(this::progress) : ProgressMeter.silent();
+        try (meter) {
+            report = job.run(meter);
+        } catch (Exception e) {
+            emit("error", "message", String.valueOf(e.getMessage()), "type", e.getClass().getSimpleName());
+            saveRunStats(engine, command, "FAILED", meter);
+            return 1;
+        }
+        // the meter is closed by now, so its last progress line comes before the results
+        report.run();
+        saveRunStats(engine, command, "SUCCEEDED", meter);
+        return 0;
+    }
+
+    /** One parsed command; running it returns what writes its result lines. */
+    private interface Job {
+        Runnable run(ProgressMeter meter) throws Exception;
+    }
+
+    /** Checks the arguments of {@code command}; throws IllegalArgumentException for a usage error. */
+    private Job parse(Engine engine, String command, List<String> params, Map<String, String> options, boolean dryRun, boolean recursive) {
+        Settings settings = engine.settings();
+        if (dryRun && !Set.of("organize", "rename", "dedup").contains(command)) {
+            throw new IllegalArgumentException("A --dry-run csak az organize, a rename és a dedup parancsnál használható");
+        }
+        return switch (command) {
+            case "organize" -> {
+                expect(params, 1);
+                Path dir = dir(params.get(0));
+                yield meter -> {
+                    MovePlan plan = engine.planOrganize(dir, meter);
+                    return moves(command, plan, dryRun ? null : engine.execute(plan, meter));
+                };
+            }
+            case "rename" -> {
+                expect(params, 1);
+                Path dir = dir(params.get(0));
+                if (options.containsKey("prefix")) {
+                    String prefix = options.get("prefix");
+                    int start = Integer.parseInt(options.getOrDefault("start", "1"));
+                    yield meter -> {
+                        MovePlan plan = engine.planRenameNumbered(dir, prefix, start, recursive, meter);
+                        return moves(command, plan, dryRun ? null : engine.execute(plan, meter));
+                    };
+                }
+                String date = options.getOrDefault("date", "yyyyMMdd_HHmmss");
+                DateTimeFormatter.ofPattern(date);
+                yield meter -> {
+                    MovePlan plan = engine.planRenameByDate(dir, date, recursive, meter);
+                    return moves(command, plan, dryRun ? null : engine.execute(plan, meter));
+                };
+            }
+            case "duplicates" -> {
+                expect(params, 1);
+                Path dir = dir(params.get(0));
+                yield meter -> {
+                    DuplicateFinder.Result result = engine.findDuplicates(dir, meter);
+                    return () -> {
+                        for (DuplicateFinder.Group g : result.groups()) {
+                            emit("duplicate", "hash", g.digest().toHex(), "size", g.size(), "files", g.files().stream().map(Path::toString).toList());
+                        }
+                        result.errors().forEach((p, e) -> emit("unreadable", "path", p.toString(), "error", e));
+                        emit("result", "command", command, "groups", result.groups().size(), "unreadable", result.errors().size());
+                    };
+                };
+            }
+            case "similar" -> {
+                expect(params, 1);
+                Path dir = dir(params.get(0));
+                if (options.containsKey("distance")) settings.similarDistance = Integer.parseInt(options.get("distance"));
+                yield meter -> {
+                    SimilarImages.Result result = engine.findSimilarImages(dir, meter);
+                    return () -> {
+                        for (SimilarImages.Group g : result.groups()) {
+                            emit("similar", "files", g.images().stream().map(i -> i.path().toString()).toList(),
+                                    "hashes", g.images().stream().map(i -> HexFormat.of().toHexDigits(i.hash())).toList());
+                        }
+                        result.errors().forEach((p, e) -> emit("unreadable", "path", p.toString(), "error", e));
+                        emit("result", "command", command, "groups", result.groups().size(), "unreadable", result.errors().size());
+                    };
+                };
+            }
+            case "dedup" -> {
+                expect(params, 1);
+                Path dir = dir(params.get(0));
+                Dedup.Mode mode = Dedup.Mode.valueOf(options.getOrDefault("mode", "AUTO").toUpperCase(Locale.ROOT));
+                yield meter -> {
+                    DuplicateFinder.Result found = engine.findDuplicates(dir, meter);
+                    List<Dedup.Pair> pairs = new ArrayList<>();
+                    for (DuplicateFinder.Group g : found.groups()) {
+                        for (Path p : g.files().subList(1, g.files().size())) pairs.add(new Dedup.Pair(g.files().get(0), p));
+                    }
+                    Dedup.Summary sum = dryRun ? null : engine.dedup(pairs, mode, meter);
+                    return () -> {
+                        if (sum == null) {
+                            for (Dedup.Pair p : pairs) emit("link", "keep", p.keep().toString(), "copy", p.copy().toString());
+                            emit("result", "command", command, "dryRun", true, "planned", pairs.size());
+                        } else {
+                            sum.errors().forEach((p, e) -> emit("skipped", "path", p.toString(), "reason", e));
+                            emit("result", "command", command, "mode", mode.name(), "replaced", sum.replaced(),
+                                    "bytes", sum.bytes(), "skipped", sum.errors().size());
+                        }
+                    };
+                };
+            }
+            case "backup" -> {
+                if (!params.isEmpty()) expect(params, 2);
+                if (options.containsKey("mode")) settings.backupMode = Backup.Mode.valueOf(options.get("mode").toUpperCase(Locale.ROOT));
+                Path src = dir(params.isEmpty() ? settings.backupSource : params.get(0));
+                String target = params.isEmpty() ? settings.backupTarget : params.get(1);
+                if (target == null || target.isBlank()) throw new IllegalArgumentException("Hiányzó cél");
+                Path dst = Path.of(target);
+                String mode = settings.backupMode.name();
+                yield meter -> {
+                    Backup.Summary sum = engine.backup(src, dst, meter);
+                    Backup.Verification v = sum.verification();
+                    return () -> {
+                        sum.errors().forEach((p, e) -> emit("unreadable", "path", p.toString(), "error", e));
+                        if (v == null) {
+                            emit("result", "command", command, "mode", mode, "copied", sum.copied(), "skipped", sum.skipped(),
+                                    "deleted", sum.deleted(), "bytes", sum.bytes(), "unreadable", sum.errors().size());
+                            return;
+                        }
+                        v.mismatches().forEach((path, reason) -> emit("mismatch", "path", path, "reason", reason));
+                        emit("result", "command", command, "mode", mode, "copied", sum.copied(), "skipped", sum.skipped(),
+                                "deleted", sum.deleted(), "bytes", sum.bytes(), "unreadable", sum.errors().size(),
+                                "verified", v.checked(), "unchanged", v.unchanged(), "mismatches", v.mismatches().size(), "report", v.report().toString());
+                    };
+                };
+            }
+            case "snapshots" -> {
+                expect(params, 1);
+                Path target = Path.of(params.get(0));
+                yield meter -> {
+                    List<String> names = engine.snapshots(target);
+                    return () -> {
+                        for (String name : names) emit("snapshot", "name", name);
+                        emit("result", "command", command, "snapshots", names.size());
+                    };
+                };
+            }
+            case "restore" -> {
+                expect(params, 3);
+                Path target = Path.of(params.get(0)), into = Path.of(params.get(2));
+                String snapshot = params.get(1), path = options.get("path");
+                yield meter -> {
+                    long files = engine.restore(target, snapshot, path, into, meter);
+                    return () -> emit("result", "command", command, "files", files);
+                };
+            }
+            case "journal" -> {
+                expect(params, 0);
+                yield meter -> {
+                    Journal.Info interrupted = engine.interrupted();
+                    Journal.Info last = engine.lastRun();
+                    return () -> {
+                        if (interrupted != null) journal("interrupted", interrupted);
+                        if (last != null) journal("last", last);
+                        emit("result", "command", command, "interrupted", interrupted != null);
+                    };
+                };
+            }
+            case "resume", "rollback", "undo" -> {
+                expect(params, 0);
+                yield meter -> {
+                    MovePlan.Result result = switch (command) {
+                        case "resume" -> engine.resume(meter);
+                        case "rollback" -> engine.rollback(meter);
+                        default -> engine.undo(meter);
+                    };
+                    return () -> {
+                        result.errors().forEach((p, e) -> emit("error", "path", p.toString(), "message", e));
+                        emit("result", "command", command, "moved", result.moved(), "failed", result.errors().size());
+                    };
+                };
+            }
+            case "watch" -> {
+                expect(params, 1);
+                Path dir = dir(params.get(0));
+                yield meter -> {
+                    watch(engine, dir);
+                    return () -> {
+                    };
+                };
+            }
+            default -> throw new IllegalArgumentException("Ismeretlen parancs: " + command);
+        };
+    }
+
+    /** The statistics are a by-product: a config directory that cannot be written must not fail the run. */
+    private void saveRunStats(Engine engine, String command, String outcome, ProgressMeter meter) {
+        try {
+            engine.saveRunStats(command, outcome, meter);
+        } catch (IOException e) {
+            emit("warning", "message", "A futási statisztika nem menthető: " + e.getMessage());
+        }
+    }
+
+    /** Lists the planned moves for a dry run ({@code result} null), otherwise only what failed. */
+    private Runnable moves(String command, MovePlan plan, MovePlan.Result result) {
+        return () -> {
+            if (result == null) {
+                for (MovePlan.Move m : plan.moves()) emit("move", "from", m.from().toString(), "to", m.to().toString());
+                emit("result", "command", command, "dryRun", true, "planned", plan.moves().size(), "renamed", plan.renamed());
+            } else {
+                result.errors().forEach((p, e) -> emit("error", "path", p.toString(), "message", e));
+                emit("result", "command", command, "moved", result.moved(), "failed", result.errors().size(), "renamed", plan.renamed());
+            }
+        };
+    }
+
+    private void journal(String which, Journal.Info info) {
+        emit("journal", "which", which, "kind", info.kind().name(), "started", info.started().toString(),
+                "total", info.total(), "committed", info.committed());
+    }
+
+    /** Runs until the process is stopped; every sorted file is reported as it happens. */
+    private void watch(Engine engine, Path base) throws Exception {
+        CountDownLatch stopped = new CountDownLatch(1);
+        FolderWatcher watcher = engine.watch(base, new FolderWatcher.Listener() {
+            @Override
+            public void handled(Path file) {
+                emit("sorted", "path", file.toString());
+            }
+
+            @Override
+            public void failed(Path file, Exception e) {
+                emit("error", "path", file.toString(), "message", String.valueOf(e.getMessage()));
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                watcher.close();
+            } catch (Exception ignored) {
+            }
+            stopped.countDown();
+        }));
+        emit("watching", "path", base.toString(), "directories", watcher.watchedDirectories());
+        stopped.await();
+    }
+
+    private static void expect(List<String> params, int count) {
+        if (params.size() != count) throw new IllegalArgumentException("Hibás paraméterszám");
+    }
+
+    private static Path dir(String s) {
+        if (s == null || s.isBlank()) throw new IllegalArgumentException("Hiányzó mappa");
+        Path p = Path.of(s);
+        if (!Files.isDirectory(p)) throw new IllegalArgumentException("Nem mappa: " + s);
+        return p;
+    }
+
+    private void progress(String message, long done, long total) {
+        emit("progress", "message", message, "done", done, "total", total);
+    }
+
+    private int usage(String problem) {
+        if (problem != null) emit("error", "message", problem);
+        System.err.println(USAGE);
+        return 2;
+    }
+
+    /** Writes one JSON line; {@code kv} alternates keys and values. */
+    private synchronized void emit(String event, Object... kv) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("event", event);
+        for (int i = 0; i + 1 < kv.length; i += 2) line.put((String) kv[i], kv[i + 1]);
+        out.println(gson.toJson(line));
+        out.flush();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.autoorganizer.engine;
+
+/**
+ * Guesses a MIME type from the first bytes of a file, for files whose name says nothing
+ * (no extension, or a wrong one). Only signatures that are unambiguous in the first
+ * {@link #HEAD_BYTES} bytes are known.
+ */
+final class ContentType {
+
+    static final int HEAD_BYTES = 16;
+
+    private ContentType() {
+    }
+
+    /** MIME type for the first {@code len} bytes of a file, or {@code null} if unknown. */
+    static String of(byte[] b, int len) {
+        if (starts(b, len, 0xFF, 0xD8, 0xFF)) return "image/jpeg";
+        if (starts(b, len, 0x89, 'P', 'N', 'G')) return "image/png";
+        if (starts(b, len, 'G', 'I', 'F', '8')) return "image/gif";
+        if (starts(b, len, 'B', 'M') && len >= 6) return "image/bmp";
+        if (starts(b, len, 'I', 'I', 0x2A, 0x00) || starts(b, len, 'M', 'M', 0x00, 0x2A)) return "image/tiff";
+        if (starts(b, len, 'R', 'I', 'F', 'F') && at(b, len, 8, 'W', 'E', 'B', 'P')) return "image/webp";
+        if (starts(b, len, 'R', 'I', 'F', 'F') && at(b, len, 8, 'W', 'A', 'V', 'E')) return "audio/wav";
+        if (starts(b, len, 'R', 'I', 'F', 'F') && at(b, len, 8, 'A', 'V', 'I', ' ')) return "video/x-msvideo";
+        if (at(b, len, 4, 'f', 't', 'y', 'p')) {
+            if (at(b, len, 8, 'h', 'e', 'i', 'c') || at(b, len, 8, 'h', 'e', 'i', 'x') || at(b, len, 8, 'm', 'i', 'f', '1')) return "image/heic";
+            if (at(b, len, 8, 'q', 't', ' ', ' ')) return "video/quicktime";
+            if (at(b, len, 8, 'M', '4', 'A', ' ')) return "audio/mp4";
+            return "video/mp4";
+        }
+        if (starts(b, len, 0x1A, 0x45, 0xDF, 0xA3)) return "video/x-matroska";
+        if (starts(b, len, 'I', 'D', '3') || starts(b, len, 0xFF, 0xFB)) return "audio/mpeg";
+        if (starts(b, len, 'f', 'L', 'a', 'C')) return "audio/flac";
+        if (starts(b, len, 'O', 'g', 'g', 'S')) return "audio/ogg";
+        if (starts(b, len, '%', 'P', 'D', 'F')) return "application/pdf";
+        if (starts(b, len, 'P', 'K', 0x03, 0x04)) return "application/zip";
+        if (starts(b, len, 'R', 'a', 'r', '!')) return "application/vnd.rar";
+        if (starts(b, len, '7', 'z', 0xBC, 0xAF)) return "application/x-7z-compressed";
+        if (starts(b, len, 0x1F, 0x8B)) return "application/gzip";
+        if (starts(b, len, 0x7F, 'E', 'L', 'F')) return "application/x-executable";
+        if (starts(b, len, 'M', 'Z')) return "application/x-msdownload";
+        if (starts(b, len, 0xD0, 0xCF, 0x11, 0xE0)) return "application/x-ole-storage"; // old .doc/.xls
+        return null;
+    }
+
+    private static boolean starts(byte[] b, int len, int... sig) {
+        return at(b, len, 0, sig);
+    }
+
+    private static boolean at(byte[] b, int len, int offset, int... sig) {
+        if (len < offset + sig.length) return false;
+        for (int i = 0; i < sig.length; i++) {
+            if ((b[offset + i] & 0xFF) != sig[i]) return false;
+        }
+        return true;
+    }
+}
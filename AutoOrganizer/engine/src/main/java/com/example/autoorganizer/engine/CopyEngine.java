@@ -0,0 +1,309 @@
+package com.example.autoorganizer.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Parallel copy pipeline used by the backup. Large files are copied with
+ * {@link FileChannel#transferTo} by the reader threads; small files are read ahead into memory
+ * and handed to writer threads through a bounded queue, so many small files are in flight at
+ * once without unbounded buffering. All writes pass one bandwidth limiter.
+ *
+ * <p>With hashing on, every file's SHA-256 is taken from the bytes on their way to the target:
+ * small files from the buffer that is written, large files through a read-hash-write loop
+ * instead of {@code transferTo}. The source is never read a second time for its digest.
+ * With forcing on, every file is forced to the device before it counts as copied, so a
+ * read-back afterwards compares against what the target accepted, not against dirty pages.
+ *
+ * <p>A source file that cannot be opened or read (locked, no permission, deleted since the scan)
+ * is left out and reported by {@link #unreadable}; its target is not touched. Any other failure,
+ * such as a full or vanished target, stops the run.
+ */
+final class CopyEngine implements AutoCloseable {
+
+    static final long LARGE_FILE = 1L << 20;
+    private static final long TRANSFER_SLICE = 8L << 20;
+    private static final int MAX_BUFFERED_KB = 64 * 1024;
+    private static final ThreadLocal<ByteBuffer> HASH_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(1 << 20));
+
+    private record Job(Path from, Path to, long size, FileTime mtime) {
+    }
+
+    private record Loaded(Job job, byte[] data, int permits) {
+    }
+
+    private final Job endJob = new Job(null, null, 0, null);
+    private final Loaded endLoaded = new Loaded(null, null, 0);
+    private final BlockingQueue<Job> jobs = new ArrayBlockingQueue<>(256);
+    private final BlockingQueue<Loaded> writes = new ArrayBlockingQueue<>(256);
+    private final Semaphore memory = new Semaphore(MAX_BUFFERED_KB);
+    private final Throttle throttle;
+    private final int threads;
+    private final ExecutorService pool;
+    private final List<Future<?>> readers = new ArrayList<>();
+    private final List<Future<?>> writers = new ArrayList<>();
+    private final AtomicReference<Exception> failure = new AtomicReference<>(); // IOException or RuntimeException
+    private final Map<Path, String> unreadable = new ConcurrentHashMap<>();
+    private final Set<Path> copied = ConcurrentHashMap.newKeySet(); // by target
+    private final AtomicLong files = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final ProgressMeter meter;
+    private final Map<Path, Digest> digests; // by target, null without hashing
+    private final boolean force;
+
+    /** {@code bytesPerSecond} of 0 or less means no limit. Finished copies are counted on {@code meter}. */
+    CopyEngine(int threads, long bytesPerSecond, ProgressMeter meter) {
+        this(threads, bytesPerSecond, false, false, meter);
+    }
+
+    /**
+     * With {@code hash}, the digest of every copied file is available from {@link #digest} after
+     * {@link #finish}; with {@code force}, every file is forced to the device once written.
+     */
+    CopyEngine(int threads, long bytesPerSecond, boolean hash, boolean force, ProgressMeter meter) {
+        this.meter = meter;
+        this.digests = hash ? new ConcurrentHashMap<>() : null;
+        this.force = force;
+        this.threads = Math.max(1, threads);
+        this.throttle = new Throttle(bytesPerSecond);
+        this.pool = Executors.newFixedThreadPool(this.threads * 2, r -> {
+            Thread t = new Thread(r, "DoomSorter-Copy");
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < this.threads; i++) {
+            readers.add(pool.submit(() -> {
+                read();
+                return null;
+            }));
+            writers.add(pool.submit(() -> {
+                write();
+                return null;
+            }));
+        }
+    }
+
+    /** Queues a copy; blocks while the pipeline is full. The target directory must exist. */
+    void copy(Path from, Path to, long size, FileTime mtime) throws IOException, InterruptedException {
+        rethrow();
+        jobs.put(new Job(from, to, size, mtime));
+    }
+
+    /** Waits for all queued copies and rethrows the first failure. */
+    void finish() throws IOException, InterruptedException {
+        for (int i = 0; i < threads; i++) jobs.put(endJob);
+        await(readers);
+        for (int i = 0; i < threads; i++) writes.put(endLoaded);
+        await(writers);
+        rethrow();
+    }
+
+    private void rethrow() throws IOException {
+        Exception f = failure.get();
+        if (f instanceof RuntimeException r) throw r;
+        if (f != null) throw (IOException) f;
+    }
+
+    long files() {
+        return files.get();
+    }
+
+    long bytes() {
+        return bytes.get();
+    }
+
+    /** True once {@code to} is completely written; also usable after a failed or cancelled run. */
+    boolean copied(Path to) {
+        return copied.contains(to);
+    }
+
+    /** Source files that were left out because they could not be read, with the reason. */
+    Map<Path, String> unreadable() {
+        return unreadable;
+    }
+
+    /** The SHA-256 of what was written to {@code to}, or null if it was not copied with hashing on. */
+    Digest digest(Path to) {
+        return digests == null ? null : digests.get(to);
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    private void read() throws InterruptedException {
+        Job job;
+        while ((job = jobs.take()) != endJob) {
+            if (failure.get() != null) continue;
+            try {
+                if (job.size >= LARGE_FILE) {
+                    FileChannel in = source(job);
+                    if (in == null) continue;
+                    // read and write overlap inside transferTo, so a large file counts as one write
+                    long start = System.nanoTime();
+                    long n = digests != null ? transferHashing(job, in) : transfer(job, in);
+                    meter.record(RunStats.Op.WRITE, job.to, start, n);
+                    done(job, n);
+                } else {
+                    int permits = (int) Math.min(MAX_BUFFERED_KB, (job.size >> 10) + 1);
+                    memory.acquire(permits);
+                    long start = System.nanoTime();
+                    byte[] data = readSource(job);
+                    if (data == null) {
+                        memory.release(permits);
+                        continue;
+                    }
+                    meter.record(RunStats.Op.READ, job.from, start, data.length);
+                    writes.put(new Loaded(job, data, permits));
+                }
+            } catch (IOException | RuntimeException e) {
+                // the thread keeps taking jobs, or the queues fill up and finish() never returns
+                failure.compareAndSet(null, e);
+            }
+        }
+    }
+
+    private void write() throws InterruptedException {
+        Loaded l;
+        while ((l = writes.take()) != endLoaded) {
+            try {
+                if (failure.get() != null) continue;
+                throttle.acquire(l.data.length);
+                long start = System.nanoTime();
+                writeFile(l.job.to, l.data);
+                Files.setLastModifiedTime(l.job.to, l.job.mtime);
+                if (digests != null) digests.put(l.job.to, FileHasher.sha256(l.data));
+                meter.record(RunStats.Op.WRITE, l.job.to, start, l.data.length);
+                done(l.job, l.data.length);
+            } catch (IOException | RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                memory.release(l.permits);
+            }
+        }
+    }
+
+    private void writeFile(Path to, byte[] data) throws IOException {
+        if (!force) {
+            Files.write(to, data);
+            return;
+        }
+        try (FileChannel out = FileChannel.open(to, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = ByteBuffer.wrap(data);
+            while (buf.hasRemaining()) out.write(buf);
+            out.force(true);
+        }
+    }
+
+    /** The bytes of a small file, or null if it is recorded as unreadable. */
+    private byte[] readSource(Job job) {
+        try {
+            return Files.readAllBytes(job.from);
+        } catch (IOException e) {
+            unreadable.put(job.from, String.valueOf(e.getMessage()));
+            return null;
+        }
+    }
+
+    /** Opens the source of a large file, or records it as unreadable and returns null. */
+    private FileChannel source(Job job) {
+        try {
+            return FileChannel.open(job.from, StandardOpenOption.READ);
+        } catch (IOException e) {
+            unreadable.put(job.from, String.valueOf(e.getMessage()));
+            return null;
+        }
+    }
+
+    private long transfer(Job job, FileChannel in) throws IOException, InterruptedException {
+        long pos = 0;
+        try (in;
+             FileChannel out = FileChannel.open(job.to, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long size = in.size();
+            while (pos < size) {
+                long slice = Math.min(TRANSFER_SLICE, size - pos);
+                throttle.acquire(slice);
+                long n = in.transferTo(pos, slice, out);
+                if (n <= 0) break;
+                pos += n;
+            }
+            if (force) out.force(true);
+        }
+        Files.setLastModifiedTime(job.to, job.mtime);
+        return pos;
+    }
+
+    /** Like {@link #transfer}, but through a buffer, so the bytes can be hashed on the way. */
+    private long transferHashing(Job job, FileChannel in) throws IOException, InterruptedException {
+        MessageDigest md = FileHasher.newSha256();
+        long pos = 0;
+        ByteBuffer buf = HASH_BUFFER.get();
+        try (in;
+             FileChannel out = FileChannel.open(job.to, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (in.read(buf.clear()) >= 0) {
+                buf.flip();
+                throttle.acquire(buf.remaining());
+                md.update(buf.duplicate());
+                while (buf.hasRemaining()) pos += out.write(buf);
+            }
+            if (force) out.force(true);
+        }
+        Files.setLastModifiedTime(job.to, job.mtime);
+        digests.put(job.to, Digest.of(md.digest()));
+        return pos;
+    }
+
+    private void done(Job job, long size) {
+        copied.add(job.to);
+        files.incrementAndGet();
+        bytes.addAndGet(size);
+        meter.item(job.from, size);
+    }
+
+    private static void await(List<Future<?>> futures) throws IOException, InterruptedException {
+        for (Future<?> f : futures) {
+            try {
+                f.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException r) throw r;
+                throw new IOException(e.getCause());
+            }
+        }
+    }
+
+    /** Spaces writes out so that on average no more than the configured rate reaches the target. */
+    static final class Throttle {
+        private final long bytesPerSecond;
+        private long nextFree = System.nanoTime();
+
+        Throttle(long bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        void acquire(long bytes) throws InterruptedException {
+            if (bytesPerSecond <= 0) return;
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                if (nextFree < now) nextFree = now;
+                wait = nextFree - now;
+                nextFree += (long) (bytes * 1e9 / bytesPerSecond);
+            }
+            if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+}
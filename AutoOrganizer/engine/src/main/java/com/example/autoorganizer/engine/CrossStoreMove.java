@@ -0,0 +1,119 @@
+package com.example.autoorganizer.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Moves a file to another {@link FileStore}, where a rename is impossible: copy to a temporary
+ * name next to the target while hashing the source bytes as they pass, force the copy to the
+ * disk, read it back and compare size and SHA-256, rename it to the target name, and only then
+ * delete the source. At every point one complete copy exists under a real name.
+ *
+ * <p>The temporary name is derived from the target name, so a run that dies mid-copy leaves
+ * one {@code .doomsorter-part} file that the resumed run overwrites.
+ */
+final class CrossStoreMove {
+
+    private static final int BUFFER = 1 << 20;
+    private static final String PART_SUFFIX = ".doomsorter-part";
+
+    private CrossStoreMove() {
+    }
+
+    /** Caches the store of every directory; targets that do not exist yet use their nearest existing parent. */
+    static final class Stores {
+        private final Map<Path, Object> byDir = new ConcurrentHashMap<>();
+
+        boolean same(Path a, Path b) {
+            return store(a.toAbsolutePath().getParent()).equals(store(b.toAbsolutePath().getParent()));
+        }
+
+        private Object store(Path dir) {
+            if (dir == null) return "?";
+            Object cached = byDir.get(dir);
+            if (cached != null) return cached;
+            Object store;
+            if (Files.isDirectory(dir)) {
+                try {
+                    store = Files.getFileStore(dir);
+                } catch (IOException e) {
+                    store = dir; // unknown: treated as a store of its own, so the copy path is taken
+                }
+            } else {
+                store = store(dir.getParent());
+            }
+            byDir.put(dir, store);
+            return store;
+        }
+    }
+
+    /** Moves {@code from} to {@code to}, which must not exist; returns the bytes copied. {@code meter} may be null. */
+    static long move(Path from, Path to, ProgressMeter meter) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(from, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        if (!attrs.isRegularFile()) throw new IOException("Csak fájl mozgatható másik lemezre: " + from);
+        Files.createDirectories(to.getParent());
+        Path part = to.resolveSibling("." + to.getFileName() + PART_SUFFIX);
+        try {
+            long start = System.nanoTime();
+            Digest copied = copy(from, part, attrs.size());
+            Files.setLastModifiedTime(part, attrs.lastModifiedTime());
+            record(meter, RunStats.Op.WRITE, part, start, attrs.size());
+
+            start = System.nanoTime();
+            long size = Files.size(part);
+            if (size != attrs.size()) throw new IOException("Eltérő méret a másolás után: " + size + " / " + attrs.size());
+            if (!copied.equals(FileHasher.sha256(part))) throw new IOException("A másolat tartalma eltér: " + to);
+            record(meter, RunStats.Op.READ, part, start, size);
+
+            start = System.nanoTime();
+            // a rename replaces silently on most systems, and the target name may have been taken since planning
+            if (Files.exists(to, LinkOption.NOFOLLOW_LINKS)) throw new FileAlreadyExistsException(to.toString());
+            Files.move(part, to, StandardCopyOption.ATOMIC_MOVE);
+            record(meter, RunStats.Op.MOVE, to, start, 0);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(part);
+            throw e;
+        }
+        long start = System.nanoTime();
+        Files.delete(from);
+        record(meter, RunStats.Op.DELETE, from, start, 0);
+        return attrs.size();
+    }
+
+    /**
+     * For a replayed move that died between placing the copy and deleting the source: if both
+     * ends hold the same bytes, the source goes and the move counts as done.
+     */
+    static boolean finish(Path from, Path to) throws IOException {
+        if (Files.size(from) != Files.size(to) || !FileHasher.sha256(from).equals(FileHasher.sha256(to))) return false;
+        Files.delete(from);
+        return true;
+    }
+
+    /** Copies {@code from} to {@code to}, flushed to the disk, and returns the SHA-256 of the bytes read. */
+    private static Digest copy(Path from, Path to, long size) throws IOException {
+        MessageDigest md = FileHasher.newSha256();
+        ByteBuffer buf = ByteBuffer.allocate((int) Math.max(8192, Math.min(BUFFER, size)));
+        try (FileChannel in = FileChannel.open(from, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(to, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (in.read(buf) >= 0) {
+                buf.flip();
+                md.update(buf.duplicate());
+                while (buf.hasRemaining()) out.write(buf);
+                buf.clear();
+            }
+            out.force(true);
+        }
+        return Digest.of(md.digest());
+    }
+
+    private static void record(ProgressMeter meter, RunStats.Op op, Path p, long start, long bytes) {
+        if (meter != null) meter.record(op, p, start, bytes);
+    }
+}
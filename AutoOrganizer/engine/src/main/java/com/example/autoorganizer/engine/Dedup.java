@@ -0,0 +1,160 @@
+package com.example.autoorganizer.engine;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Frees the space of duplicates without removing any path: each copy is replaced by a hard
+ * link to the kept file, or by a copy-on-write clone of it where the file system can clone.
+ * The two files are compared byte by byte right before the swap, and the swap itself is a
+ * rename of the new link over the copy, so the path never disappears, not even briefly.
+ */
+public final class Dedup {
+
+    public enum Mode {
+        /** Hard links: the files share one inode, so they also share permissions and mtime. */
+        HARDLINK,
+        /** Clones (Btrfs, XFS, APFS): separate files sharing blocks until one is written. */
+        REFLINK,
+        /** Clones where the file system can, hard links elsewhere. */
+        AUTO
+    }
+
+    /** {@code copy} is to become a link to {@code keep}. */
+    public record Pair(Path keep, Path copy) {
+    }
+
+    /** Replaced copies, the bytes they freed, and the copies left alone with the reason. */
+    public record Summary(long replaced, long bytes, Map<Path, String> errors) {
+    }
+
+    private static final String TEMP_PREFIX = ".doomsorter-link-";
+    private static final boolean MAC = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("mac");
+    private static final boolean LINUX = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("linux");
+
+    private final Mode mode;
+    private final Map<FileStore, Boolean> canClone = new ConcurrentHashMap<>();
+
+    private Dedup(Mode mode) {
+        this.mode = mode;
+    }
+
+    static Summary run(List<Pair> pairs, Mode mode, int threads, ProgressMeter meter) throws InterruptedException {
+        return new Dedup(mode).run(pairs, threads, meter);
+    }
+
+    private Summary run(List<Pair> pairs, int threads, ProgressMeter meter) throws InterruptedException {
+        meter.phase("Linkelés", pairs.size());
+        Map<Path, String> errors = new ConcurrentHashMap<>();
+        long replaced = 0, bytes = 0;
+        // verifying reads both files completely, so the work waits on the disk
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads), Thread.ofVirtual().name("DoomSorter-Dedup").factory());
+        try {
+            for (int from = 0; from < pairs.size(); from += MovePlan.BATCH) {
+                List<Future<Long>> done = new ArrayList<>();
+                for (Pair pair : pairs.subList(from, Math.min(pairs.size(), from + MovePlan.BATCH))) {
+                    done.add(pool.submit(() -> {
+                        try {
+                            return replace(pair, meter);
+                        } catch (IOException e) {
+                            errors.put(pair.copy(), String.valueOf(e.getMessage()));
+                            meter.item(pair.copy());
+                            return -1L;
+                        }
+                    }));
+                }
+                for (Future<Long> f : done) {
+                    try {
+                        long freed = f.get();
+                        if (freed >= 0) {
+                            replaced++;
+                            bytes += freed;
+                        }
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof RuntimeException r) throw r;
+                        throw new IllegalStateException(e.getCause());
+                    }
+                }
+                if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return new Summary(replaced, bytes, new TreeMap<>(errors));
+    }
+
+    /** Swaps one copy for a link; returns the bytes freed, or throws why the copy was left alone. */
+    private long replace(Pair pair, ProgressMeter meter) throws IOException {
+        Path keep = pair.keep(), copy = pair.copy();
+        meter.at(copy);
+        BasicFileAttributes keepAttrs = Files.readAttributes(keep, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        BasicFileAttributes copyAttrs = Files.readAttributes(copy, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        if (!keepAttrs.isRegularFile() || !copyAttrs.isRegularFile()) throw new IOException("Nem közönséges fájl");
+        if (Files.isSameFile(keep, copy)) throw new IOException("Már ugyanaz a fájl");
+        FileStore store = Files.getFileStore(copy);
+        if (!store.equals(Files.getFileStore(keep))) throw new IOException("Más lemezen van, mint a megtartott példány");
+        long start = System.nanoTime();
+        if (keepAttrs.size() != copyAttrs.size() || Files.mismatch(keep, copy) != -1L) {
+            throw new IOException("A tartalom megváltozott a keresés óta");
+        }
+        meter.record(RunStats.Op.READ, copy, start, 2 * copyAttrs.size());
+        meter.bytes(2 * copyAttrs.size());
+
+        Path temp = copy.resolveSibling(TEMP_PREFIX + UUID.randomUUID());
+        try {
+            if (clone(store, keep, temp)) {
+                // a clone is a file of its own, so it can keep the copy's metadata
+                Files.setLastModifiedTime(temp, copyAttrs.lastModifiedTime());
+                PosixFileAttributeView posix = Files.getFileAttributeView(copy, PosixFileAttributeView.class);
+                if (posix != null) {
+                    PosixFileAttributes a = posix.readAttributes();
+                    Files.setPosixFilePermissions(temp, a.permissions());
+                }
+            } else {
+                Files.createLink(temp, keep);
+            }
+            start = System.nanoTime();
+            Files.move(temp, copy, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            meter.record(RunStats.Op.MOVE, copy, start, 0);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        meter.item(copy);
+        return copyAttrs.size();
+    }
+
+    /**
+     * Clones {@code src} to {@code dst} with {@code cp}, which issues the clone ioctl (Linux) or
+     * {@code clonefile} (macOS) that the JDK does not expose. Returns false when hard links are to
+     * be used instead; a store that cannot clone is only asked once.
+     */
+    private boolean clone(FileStore store, Path src, Path dst) throws IOException {
+        if (mode == Mode.HARDLINK) return false;
+        if (Boolean.FALSE.equals(canClone.get(store)) || (!LINUX && !MAC)) {
+            if (mode == Mode.REFLINK) throw new IOException("A fájlrendszer nem támogatja a reflinket: " + store.name());
+            return false;
+        }
+        List<String> cmd = MAC ? List.of("cp", "-c", src.toString(), dst.toString())
+                : List.of("cp", "--reflink=always", "--", src.toString(), dst.toString());
+        Process p = new ProcessBuilder(cmd).redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        try {
+            if (p.waitFor() == 0) {
+                canClone.put(store, true);
+                return true;
+            }
+        } catch (InterruptedException e) {
+            p.destroy();
+            Thread.currentThread().interrupt();
+            throw new IOException("Megszakítva");
+        }
+        Files.deleteIfExists(dst);
+        canClone.putIfAbsent(store, false);
+        if (mode == Mode.REFLINK) throw new IOException("A fájlrendszer nem támogatja a reflinket: " + store.name());
+        return false;
+    }
+}
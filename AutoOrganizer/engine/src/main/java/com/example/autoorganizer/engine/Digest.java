@@ -0,0 +1,42 @@
+package com.example.autoorganizer.engine;
+
+import java.nio.ByteBuffer;
+import java.util.HexFormat;
+
+/**
+ * A SHA-256 value held in four longs, so it can be used as a map key without
+ * keeping a byte array or hex string per file.
+ */
+public record Digest(long h0, long h1, long h2, long h3) {
+
+    static final int BYTES = 32;
+
+    static Digest of(byte[] b) {
+        ByteBuffer buf = ByteBuffer.wrap(b);
+        return new Digest(buf.getLong(), buf.getLong(), buf.getLong(), buf.getLong());
+    }
+
+    static Digest read(ByteBuffer buf) {
+        return new Digest(buf.getLong(), buf.getLong(), buf.getLong(), buf.getLong());
+    }
+
+    void write(ByteBuffer buf) {
+        buf.putLong(h0).putLong(h1).putLong(h2).putLong(h3);
+    }
+
+    byte[] toBytes() {
+        ByteBuffer buf = ByteBuffer.allocate(BYTES);
+        write(buf);
+        return buf.array();
+    }
+
+    public String toHex() {
+        HexFormat hex = HexFormat.of();
+        return hex.toHexDigits(h0) + hex.toHexDigits(h1) + hex.toHexDigits(h2) + hex.toHexDigits(h3);
+    }
+
+    @Override
+    public String toString() {
+        return toHex();
+    }
+}
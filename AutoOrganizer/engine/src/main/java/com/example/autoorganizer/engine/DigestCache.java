@@ -0,0 +1,158 @@
+package com.example.autoorganizer.engine;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent SHA-256 cache keyed by path, size, modification time and file key (inode).
+ * A file is only read again when one of these changed since it was last hashed.
+ *
+ * <p>File layout: magic, version, entry count, then per entry the UTF-8 path, size,
+ * mtime in nanoseconds, UTF-8 file key and the 32 raw digest bytes.
+ */
+final class DigestCache {
+
+    private static final int MAGIC = 0x44534443; // "DSDC"
+    private static final int VERSION = 1;
+
+    private record Entry(long size, long mtime, String fileKey, Digest digest) {
+    }
+
+    private final Path file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    private DigestCache(Path file) {
+        this.file = file;
+    }
+
+    static DigestCache load(Path file) {
+        DigestCache cache = new DigestCache(file);
+        if (!Files.isRegularFile(file)) return cache;
+        try {
+            // read, not mapped: a mapping would outlive load() and block the rename in save() on Windows
+            ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) return cache;
+            int count = buf.getInt();
+            for (int i = 0; i < count; i++) {
+                String path = readString(buf);
+                long size = buf.getLong();
+                long mtime = buf.getLong();
+                String fileKey = readString(buf);
+                cache.entries.put(path, new Entry(size, mtime, fileKey, Digest.read(buf)));
+            }
+        } catch (IOException | RuntimeException e) {
+            // a truncated or foreign file only costs a rehash
+            cache.entries.clear();
+        }
+        return cache;
+    }
+
+    /** Returns the cached digest of {@code p} if it is still valid, otherwise {@code null}. */
+    Digest cached(Path p, BasicFileAttributes attrs) {
+        Entry e = entries.get(p.toAbsolutePath().toString());
+        if (e != null && e.size == attrs.size() && e.mtime == attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS)
+                && e.fileKey.equals(fileKey(attrs))) {
+            return e.digest;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the cached digest of {@code p}, or hashes the file and remembers the result.
+     * {@code attrs} are the attributes the caller already read while walking the tree.
+     */
+    Digest sha256(Path p, BasicFileAttributes attrs) throws IOException {
+        String key = p.toAbsolutePath().toString();
+        long mtime = attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        String fileKey = fileKey(attrs);
+        Entry e = entries.get(key);
+        if (e != null && e.size == attrs.size() && e.mtime == mtime && e.fileKey.equals(fileKey)) {
+            return e.digest;
+        }
+        Digest digest = FileHasher.sha256(p);
+        entries.put(key, new Entry(attrs.size(), mtime, fileKey, digest));
+        dirty = true;
+        return digest;
+    }
+
+    /**
+     * Starts tracking which cached files below {@code root} still exist. Entries that were
+     * present when the sweep started and not {@link Sweep#seen seen} by the time
+     * {@link Sweep#finish} is called are dropped.
+     */
+    Sweep sweep(Path root) {
+        String base = root.toAbsolutePath().toString();
+        String separator = root.getFileSystem().getSeparator();
+        String prefix = base.endsWith(separator) ? base : base + separator; // a file system root already ends with one
+        Set<String> stale = ConcurrentHashMap.newKeySet();
+        for (String k : entries.keySet()) {
+            if (k.startsWith(prefix)) stale.add(k);
+        }
+        return new Sweep(stale);
+    }
+
+    final class Sweep {
+        private final Set<String> stale;
+
+        private Sweep(Set<String> stale) {
+            this.stale = stale;
+        }
+
+        void seen(Path p) {
+            if (!stale.isEmpty()) stale.remove(p.toAbsolutePath().toString());
+        }
+
+        void finish() {
+            if (stale.isEmpty()) return;
+            entries.keySet().removeAll(stale);
+            dirty = true;
+        }
+    }
+
+    void save() throws IOException {
+        if (!dirty) return;
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            var snapshot = List.copyOf(entries.entrySet());
+            out.writeInt(snapshot.size());
+            for (var e : snapshot) {
+                writeString(out, e.getKey());
+                out.writeLong(e.getValue().size);
+                out.writeLong(e.getValue().mtime);
+                writeString(out, e.getValue().fileKey);
+                out.write(e.getValue().digest.toBytes());
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+
+    private static String fileKey(BasicFileAttributes attrs) {
+        Object k = attrs.fileKey();
+        return k == null ? "" : k.toString();
+    }
+
+    private static String readString(ByteBuffer buf) {
+        byte[] b = new byte[buf.getInt()];
+        buf.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+}
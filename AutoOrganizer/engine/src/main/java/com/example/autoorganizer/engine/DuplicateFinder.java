@@ -0,0 +1,107 @@
+package com.example.autoorganizer.engine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Staged duplicate detection: files are grouped by size first, same-size candidates
+ * are compared by a hash of their head and tail, and only groups that still collide
+ * are read completely for the full SHA-256.
+ *
+ * <p>The stages overlap with the walk: as soon as a second file of some size shows up,
+ * both are queued for hashing while the rest of the tree is still being listed.
+ */
+public final class DuplicateFinder {
+
+    static final int PARTIAL_BYTES = 4096;
+
+    public record Group(Digest digest, long size, List<Path> files) {
+    }
+
+    /** Duplicate groups, and the files that could not be read. */
+    public record Result(List<Group> groups, Map<Path, String> errors) {
+    }
+
+    private record PartialKey(long size, Digest digest) {
+    }
+
+    private DuplicateFinder() {
+    }
+
+    static Result find(Path root, FileScanner scanner, HashEngine engine, DigestCache digests, ProgressMeter meter)
+            throws IOException, InterruptedException {
+        Map<Long, List<Path>> bySize = new ConcurrentHashMap<>();
+        Map<Path, BasicFileAttributes> attrsOf = new ConcurrentHashMap<>();
+        Map<Path, String> errors = new ConcurrentHashMap<>();
+        DigestCache.Sweep sweep = digests.sweep(root);
+        meter.phase("Bejárás és hash", 0);
+
+        try (HashEngine.Session<PartialKey> partial = engine.open(p -> {
+                 long size = attrsOf.get(p).size();
+                 meter.bytes(2L * PARTIAL_BYTES);
+                 return new PartialKey(size, FileHasher.partial(p, size, PARTIAL_BYTES));
+             }, meter);
+             HashEngine.Session<Digest> full = engine.open(p -> {
+                 BasicFileAttributes attrs = attrsOf.get(p);
+                 Digest d = digests.cached(p, attrs);
+                 if (d != null) return d;
+                 meter.bytes(attrs.size());
+                 return digests.sha256(p, attrs);
+             }, meter)) {
+
+            scanner.scan(root, new FileScanner.Visitor() {
+                @Override
+                public void file(Path p, BasicFileAttributes attrs) {
+                    meter.at(p);
+                    sweep.seen(p);
+                    attrsOf.put(p, attrs);
+                    // small files are covered entirely by the head and tail, they skip the partial stage
+                    HashEngine.Session<?> next = attrs.size() <= 2L * PARTIAL_BYTES ? full : partial;
+                    bySize.compute(attrs.size(), (k, same) -> {
+                        if (same == null) same = new ArrayList<>(1);
+                        same.add(p);
+                        // the first file of a size is held back until a second one shows up
+                        if (same.size() == 2) {
+                            next.add(same.get(0));
+                            next.add(p);
+                        } else if (same.size() > 2) {
+                            next.add(p);
+                        }
+                        return same;
+                    });
+                }
+
+                @Override
+                public void failed(Path p, IOException e) {
+                    errors.put(p, e.toString());
+                }
+            });
+            for (List<Path> same : bySize.values()) {
+                if (same.size() == 1) attrsOf.remove(same.get(0));
+            }
+            bySize.clear();
+
+            meter.label("Gyors hash");
+            HashEngine.Grouping<PartialKey> byPartial = partial.finish();
+            meter.label("Hash");
+            for (List<Path> group : byPartial.groups().values()) {
+                if (group.size() > 1) {
+                    for (Path p : group) full.add(p);
+                }
+            }
+            HashEngine.Grouping<Digest> byHash = full.finish();
+
+            List<Group> groups = new ArrayList<>();
+            byHash.groups().forEach((digest, files) -> {
+                if (files.size() > 1) groups.add(new Group(digest, attrsOf.get(files.get(0)).size(), files));
+            });
+            errors.putAll(byPartial.errors());
+            errors.putAll(byHash.errors());
+            sweep.finish();
+            return new Result(groups, new TreeMap<>(errors));
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.autoorganizer.engine;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Duplicate groups in columns of primitive arrays, for results with millions of files. Each
+ * digest and size is stored once per group; each path is stored once as UTF-8 bytes in large
+ * pages. A file costs its path bytes plus about twenty bytes, and nothing becomes an object
+ * until someone asks for that row.
+ *
+ * <p>Files are addressed by a stable file index; rows are the current view of them: groups in
+ * the chosen {@link Order}, their files together, removed files and groups left with a single
+ * file skipped. The store is not thread-safe; the GUI only uses it from the FX thread once
+ * the scan has built it.
+ */
+public final class DuplicateStore {
+
+    public enum Order {
+        /** Groups that free the most space first. */
+        WASTED,
+        /** Groups by digest, so the same hash always lands in the same place. */
+        HASH
+    }
+
+    private static final int PAGE = 1 << 20;
+
+    private final long[] digests; // four longs per group
+    private final long[] sizes;
+    private final int[] live; // files of the group not removed yet
+    private final int[] firstFile; // groups + 1 entries
+    private final int[] groupOf;
+    private final List<byte[]> pages = new ArrayList<>();
+    private final long[] pathAt; // page << 32 | offset
+    private final int[] pathLength;
+    private final long[] fileSizes; // similar images only: each file has its own size
+    private final long[] fileHashes; // and its own perceptual hash
+    private final BitSet removed = new BitSet();
+    private byte[] page; // being filled while packing
+    private int used;
+    private int files;
+    private Order order = Order.WASTED;
+    private int[] rowFile = new int[0];
+
+    private DuplicateStore(int groups, int files, boolean similar) {
+        digests = new long[groups * 4];
+        sizes = new long[groups];
+        live = new int[groups];
+        firstFile = new int[groups + 1];
+        groupOf = new int[files];
+        pathAt = new long[files];
+        pathLength = new int[files];
+        fileSizes = similar ? new long[files] : null;
+        fileHashes = similar ? new long[files] : null;
+    }
+
+    /** Packs {@code groups}; the {@code Group} objects can be dropped afterwards. */
+    public static DuplicateStore of(List<DuplicateFinder.Group> groups) {
+        int files = 0;
+        for (DuplicateFinder.Group g : groups) files += g.files().size();
+        DuplicateStore store = new DuplicateStore(groups.size(), files, false);
+        for (int g = 0; g < groups.size(); g++) {
+            DuplicateFinder.Group group = groups.get(g);
+            Digest d = group.digest();
+            store.digests[4 * g] = d.h0();
+            store.digests[4 * g + 1] = d.h1();
+            store.digests[4 * g + 2] = d.h2();
+            store.digests[4 * g + 3] = d.h3();
+            store.sizes[g] = group.size();
+            store.startGroup(g, group.files().size());
+            for (Path p : group.files()) store.addFile(g, p);
+        }
+        store.firstFile[groups.size()] = store.files;
+        store.sort(Order.WASTED);
+        return store;
+    }
+
+    /**
+     * Packs groups of similar images. Their files differ, so each keeps its own size and
+     * perceptual hash, and a group wastes everything but its largest file.
+     */
+    public static DuplicateStore ofSimilar(List<SimilarImages.Group> groups) {
+        int files = 0;
+        for (SimilarImages.Group g : groups) files += g.images().size();
+        DuplicateStore store = new DuplicateStore(groups.size(), files, true);
+        for (int g = 0; g < groups.size(); g++) {
+            List<SimilarImages.Image> images = groups.get(g).images();
+            store.digests[4 * g] = images.get(0).hash(); // for the hash order
+            store.startGroup(g, images.size());
+            for (SimilarImages.Image img : images) {
+                store.fileSizes[store.files] = img.size();
+                store.fileHashes[store.files] = img.hash();
+                store.addFile(g, img.path());
+            }
+        }
+        store.firstFile[groups.size()] = store.files;
+        store.sort(Order.WASTED);
+        return store;
+    }
+
+    private void startGroup(int g, int count) {
+        live[g] = count;
+        firstFile[g] = files;
+    }
+
+    private void addFile(int g, Path p) {
+        byte[] b = p.toString().getBytes(StandardCharsets.UTF_8);
+        if (page == null || used + b.length > page.length) {
+            page = new byte[Math.max(PAGE, b.length)];
+            pages.add(page);
+            used = 0;
+        }
+        System.arraycopy(b, 0, page, used, b.length);
+        pathAt[files] = (long) (pages.size() - 1) << 32 | used;
+        pathLength[files] = b.length;
+        groupOf[files] = g;
+        used += b.length;
+        files++;
+    }
+
+    /** Reorders the groups; files within a group stay in path order. */
+    public void sort(Order order) {
+        this.order = order;
+        int groups = sizes.length;
+        Integer[] byOrder = new Integer[groups];
+        long[] wasted = new long[groups];
+        for (int g = 0; g < groups; g++) {
+            byOrder[g] = g;
+            wasted[g] = wastedOfGroup(g);
+        }
+        Comparator<Integer> cmp = order == Order.WASTED
+                ? Comparator.comparingLong((Integer g) -> wasted[g]).reversed()
+                : (a, b) -> compareDigests(a, b);
+        Arrays.sort(byOrder, cmp);
+        int rows = 0;
+        for (int g = 0; g < groups; g++) if (live[g] > 1) rows += live[g];
+        int[] view = new int[rows];
+        int r = 0;
+        for (int g : byOrder) {
+            if (live[g] < 2) continue;
+            for (int f = firstFile[g]; f < firstFile[g + 1]; f++) {
+                if (!removed.get(f)) view[r++] = f;
+            }
+        }
+        rowFile = view;
+    }
+
+    /** Drops deleted files from the view; a group left with one file is no longer a duplicate. */
+    public void remove(Collection<Integer> files) {
+        for (int f : files) {
+            if (!removed.get(f)) {
+                removed.set(f);
+                live[groupOf[f]]--;
+            }
+        }
+        sort(order);
+    }
+
+    public Order order() {
+        return order;
+    }
+
+    public int rows() {
+        return rowFile.length;
+    }
+
+    /** The stable index of the file shown in {@code row}. */
+    public int file(int row) {
+        return rowFile[row];
+    }
+
+    public Path path(int file) {
+        long at = pathAt[file];
+        return Path.of(new String(pages.get((int) (at >>> 32)), (int) at, pathLength[file], StandardCharsets.UTF_8));
+    }
+
+    /** True if the groups are similar images rather than identical files. */
+    public boolean similar() {
+        return fileSizes != null;
+    }
+
+    /** What groups the file: its SHA-256, or for similar images its own perceptual hash. */
+    public String key(int file) {
+        return similar() ? HexFormat.of().toHexDigits(fileHashes[file]) : digest(file).toHex();
+    }
+
+    public Digest digest(int file) {
+        int g = groupOf[file];
+        return new Digest(digests[4 * g], digests[4 * g + 1], digests[4 * g + 2], digests[4 * g + 3]);
+    }
+
+    public long size(int file) {
+        return similar() ? fileSizes[file] : sizes[groupOf[file]];
+    }
+
+    /** Bytes freed by keeping one file (for similar images the largest) of this file's group. */
+    public long wasted(int file) {
+        return wastedOfGroup(groupOf[file]);
+    }
+
+    /** The files of {@code file}'s group not removed yet, itself included, in path order. */
+    public int[] group(int file) {
+        int g = groupOf[file];
+        int[] files = new int[live[g]];
+        int i = 0;
+        for (int f = firstFile[g]; f < firstFile[g + 1]; f++) {
+            if (!removed.get(f)) files[i++] = f;
+        }
+        return files;
+    }
+
+    /** True for the first shown file of its group, e.g. to draw group separators. */
+    public boolean startsGroup(int row) {
+        return row == 0 || groupOf[rowFile[row]] != groupOf[rowFile[row - 1]];
+    }
+
+    /** Bytes freed by keeping one file of every group still shown. */
+    public long wastedTotal() {
+        long total = 0;
+        for (int g = 0; g < sizes.length; g++) if (live[g] > 1) total += wastedOfGroup(g);
+        return total;
+    }
+
+    private long wastedOfGroup(int g) {
+        if (!similar()) return sizes[g] * Math.max(0, live[g] - 1);
+        long total = 0, largest = 0;
+        for (int f = firstFile[g]; f < firstFile[g + 1]; f++) {
+            if (removed.get(f)) continue;
+            total += fileSizes[f];
+            largest = Math.max(largest, fileSizes[f]);
+        }
+        return total - largest;
+    }
+
+    private int compareDigests(int a, int b) {
+        for (int i = 0; i < 4; i++) {
+            int c = Long.compareUnsigned(digests[4 * a + i], digests[4 * b + i]);
+            if (c != 0) return c;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,440 @@
+package com.example.autoorganizer.engine;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * The operations behind the GUI tabs and the CLI commands. Nothing here touches JavaFX;
+ * progress goes to the {@link ProgressMeter} the caller passes in. Settings are read on every
+ * call, so changes made in the GUI apply to the next run.
+ */
+public final class Engine {
+
+    private static final Set<String> IMAGE_EXTS = Set.of("jpg", "jpeg", "png", "gif", "bmp", "heic", "webp", "tif", "tiff");
+    static final String RUNS_FILE = "runs.jsonl";
+    private static final Set<String> VIDEO_EXTS = Set.of("mov", "mp4", "m4v", "3gp");
+
+    private final Settings settings;
+    private final Path configDir;
+    private DigestCache digestCache;
+    /** Set while a run of this process holds the journal; the file on disk cannot tell a live run from a dead one. */
+    private final AtomicBoolean journaling = new AtomicBoolean();
+
+    public Engine(Settings settings, Path configDir) {
+        this.settings = settings;
+        this.configDir = configDir;
+    }
+
+    public Settings settings() {
+        return settings;
+    }
+
+    /** Moves every file below {@code base} into the folder of its category. */
+    public MovePlan.Result organize(Path base, ProgressMeter meter) throws IOException, InterruptedException {
+        return execute(planOrganize(base, meter), meter);
+    }
+
+    /** Decides where every file below {@code base} goes, without moving anything. */
+    public MovePlan planOrganize(Path base, ProgressMeter meter) throws IOException {
+        meter.phase("Vizsgálat", -1);
+        RuleSet rules = rules(base);
+        ThreadLocal<RuleSet.Matcher> matchers = ThreadLocal.withInitial(rules::matcher);
+        Map<String, List<Path>> classified = new ConcurrentHashMap<>();
+        AtomicLong matched = new AtomicLong();
+        scanner().timed(meter).scan(base, (p, attrs) -> {
+            meter.item(p);
+            String target = matchers.get().match(p, attrs);
+            if (target != null) {
+                classified.computeIfAbsent(target, k -> Collections.synchronizedList(new ArrayList<>())).add(p);
+                matched.incrementAndGet();
+            }
+        });
+        meter.phase("Tervezés", matched.get());
+        MovePlan.Builder plan = new MovePlan.Builder(Journal.Kind.ORGANIZE);
+        for (var e : classified.entrySet()) {
+            Path targetDir = base.resolve(e.getKey());
+            for (Path p : e.getValue()) {
+                plan.add(p, targetDir.resolve(p.getFileName()));
+                meter.item(p);
+            }
+        }
+        return plan.build();
+    }
+
+    /**
+     * Plans renaming the photos and videos in {@code dir} (with {@code recursive}, in every
+     * folder below it too) to the time they were taken in {@code pattern}. The time comes from
+     * the EXIF or QuickTime header where there is one, otherwise from the modification time.
+     */
+    public MovePlan planRenameByDate(Path dir, String pattern, boolean recursive, ProgressMeter meter)
+            throws IOException, InterruptedException {
+        DateTimeFormatter format = DateTimeFormatter.ofPattern(pattern);
+        Map<Path, FileTime> files = media(dir, recursive, p -> isImage(ext(p)) || isVideo(ext(p)), meter);
+        Map<Path, LocalDateTime> taken = captureDates(files, meter);
+        return planRename(files.keySet(), Journal.Kind.RENAME, meter, (i, p) -> format.format(taken.get(p)) + suffix(p));
+    }
+
+    /**
+     * Plans renaming the images in {@code dir} (with {@code recursive}, in every folder below it
+     * too) to {@code prefix_N}, counting from {@code start} in each folder.
+     */
+    public MovePlan planRenameNumbered(Path dir, String prefix, int start, boolean recursive, ProgressMeter meter) throws IOException {
+        Map<Path, FileTime> files = media(dir, recursive, p -> isImage(ext(p)), meter);
+        return planRename(files.keySet(), Journal.Kind.RENAME, meter, (i, p) -> prefix + "_" + (start + i) + suffix(p));
+    }
+
+    /**
+     * Runs a plan, in parallel across target directories with the configured number of threads.
+     * The plan is journaled first, so a run that dies can be resumed or rolled back and a
+     * finished one undone.
+     */
+    public MovePlan.Result execute(MovePlan plan, ProgressMeter meter) throws IOException, InterruptedException {
+        if (plan.moves().isEmpty()) return new MovePlan.Result(0, Map.of());
+        Journal journal = begin(plan.kind(), plan.moves());
+        try (journal) {
+            MovePlan.Result result = plan.execute(settings.moveThreads, settings.crossStoreThreads, meter, journal);
+            journal.finish();
+            return result;
+        } finally {
+            journaling.set(false);
+        }
+    }
+
+    /** The organize, rename or delete run that did not finish, or {@code null}; also null while this process runs one. */
+    public Journal.Info interrupted() throws IOException {
+        return journaling.get() ? null : Journal.peek(journalDir().resolve(Journal.RUNNING));
+    }
+
+    /** Finishes the interrupted run from its last committed batch. */
+    public MovePlan.Result resume(ProgressMeter meter) throws IOException, InterruptedException {
+        claim();
+        try (Journal journal = Journal.interrupted(journalDir())) {
+            if (journal == null) throw new IllegalStateException("Nincs félbeszakadt művelet");
+            MovePlan.Result result = journal.info().kind() == Journal.Kind.DELETE
+                    ? deleteAll(journal.pending(), meter, journal)
+                    : new MovePlan(journal.info().kind(), journal.pending(), 0, true).execute(settings.moveThreads, settings.crossStoreThreads, meter, journal);
+            journal.finish();
+            return result;
+        } finally {
+            journaling.set(false);
+        }
+    }
+
+    /** Moves back what the interrupted run moved; deleted files are gone, so a delete run only stops. */
+    public MovePlan.Result rollback(ProgressMeter meter) throws IOException, InterruptedException {
+        claim();
+        try (Journal journal = Journal.interrupted(journalDir())) {
+            if (journal == null) throw new IllegalStateException("Nincs félbeszakadt művelet");
+            MovePlan.Result result = journal.info().kind() == Journal.Kind.DELETE
+                    ? new MovePlan.Result(0, Map.of())
+                    : revert(journal.info().kind(), journal.started(), meter);
+            journal.discard();
+            return result;
+        } finally {
+            journaling.set(false);
+        }
+    }
+
+    /** The last finished run, or {@code null}; only organize and rename runs can be undone. */
+    public Journal.Info lastRun() throws IOException {
+        return Journal.peek(journalDir().resolve(Journal.LAST));
+    }
+
+    /** Moves every file of the last finished organize or rename run back where it was. */
+    public MovePlan.Result undo(ProgressMeter meter) throws IOException, InterruptedException {
+        claim();
+        try (Journal journal = Journal.last(journalDir())) {
+            if (Journal.peek(journalDir().resolve(Journal.RUNNING)) != null) throw new IllegalStateException("Félbeszakadt művelet van: előbb folytasd vagy vond vissza");
+            if (journal == null) throw new IllegalStateException("Nincs visszavonható művelet");
+            if (journal.info().kind() == Journal.Kind.DELETE) throw new IllegalStateException("A törlés nem vonható vissza");
+            MovePlan.Result result = revert(journal.info().kind(), journal.entries(), meter);
+            journal.discard();
+            return result;
+        } finally {
+            journaling.set(false);
+        }
+    }
+
+    private MovePlan.Result revert(Journal.Kind kind, List<MovePlan.Move> moves, ProgressMeter meter) throws IOException, InterruptedException {
+        List<MovePlan.Move> back = new ArrayList<>(moves.size());
+        for (int i = moves.size() - 1; i >= 0; i--) back.add(new MovePlan.Move(moves.get(i).to(), moves.get(i).from()));
+        return new MovePlan(kind, back, 0, true).execute(settings.moveThreads, settings.crossStoreThreads, meter, null);
+    }
+
+    /**
+     * Journals a new run; refused while an interrupted one waits to be resumed or rolled back.
+     * The caller clears {@link #journaling} once the journal is closed.
+     */
+    private Journal begin(Journal.Kind kind, List<MovePlan.Move> entries) throws IOException {
+        claim();
+        try {
+            if (Journal.peek(journalDir().resolve(Journal.RUNNING)) != null) throw new IllegalStateException("Félbeszakadt művelet van: előbb folytasd vagy vond vissza");
+            return Journal.create(journalDir(), kind, entries);
+        } catch (IOException | RuntimeException e) {
+            journaling.set(false);
+            throw e;
+        }
+    }
+
+    /** Resume, rollback and undo would work on the journal of a live run, so they wait until it has ended. */
+    private void claim() {
+        if (!journaling.compareAndSet(false, true)) throw new IllegalStateException("Egy áthelyezés vagy törlés még fut");
+    }
+
+    private Path journalDir() {
+        return configDir.resolve("journal");
+    }
+
+    private interface Namer {
+        String name(int index, Path p);
+    }
+
+    /** The matching files with their modification times, sorted by path so folders stay together. */
+    private Map<Path, FileTime> media(Path dir, boolean recursive, Predicate<Path> filter, ProgressMeter meter) throws IOException {
+        Map<Path, FileTime> files = new ConcurrentSkipListMap<>();
+        FileScanner scanner = scanner().timed(meter);
+        if (!recursive) scanner.maxDepth(1);
+        scanner.scan(dir, (p, attrs) -> {
+            if (filter.test(p)) files.put(p, attrs.lastModifiedTime());
+        });
+        return files;
+    }
+
+    /**
+     * Reads the capture dates of {@code files} on the reader pools of {@link HashEngine}, so
+     * headers on one disk are parsed in parallel like digests are. Files without a date in their
+     * header, or whose header cannot be read, fall back to their modification time.
+     */
+    private Map<Path, LocalDateTime> captureDates(Map<Path, FileTime> files, ProgressMeter meter) throws InterruptedException {
+        meter.phase("Dátumok olvasása", 0);
+        HashEngine engine = new HashEngine(settings.hashThreadsPerStore, settings.hashThreads);
+        HashEngine.Grouping<LocalDateTime> byDate = engine.group(files.keySet(), p -> {
+            LocalDateTime d = CaptureDate.read(p);
+            return d != null ? d : LocalDateTime.ofInstant(files.get(p).toInstant(), ZoneId.systemDefault());
+        }, meter);
+        Map<Path, LocalDateTime> taken = new HashMap<>(files.size() * 2);
+        byDate.groups().forEach((d, paths) -> {
+            for (Path p : paths) taken.put(p, d);
+        });
+        byDate.errors().keySet().forEach(p -> taken.put(p, LocalDateTime.ofInstant(files.get(p).toInstant(), ZoneId.systemDefault())));
+        return taken;
+    }
+
+    /** Every file keeps its folder; {@code index} counts within the folder. */
+    private MovePlan planRename(Collection<Path> files, Journal.Kind kind, ProgressMeter meter, Namer namer) throws IOException {
+        meter.phase("Tervezés", files.size());
+        MovePlan.Builder plan = new MovePlan.Builder(kind);
+        Map<Path, Integer> counters = new HashMap<>();
+        for (Path p : files) {
+            int i = counters.merge(p.getParent(), 1, Integer::sum) - 1;
+            plan.add(p, p.resolveSibling(namer.name(i, p)));
+            meter.item(p);
+        }
+        return plan.build();
+    }
+
+    /** Duplicate groups below {@code root}; digests are cached in the config directory between runs. */
+    public DuplicateFinder.Result findDuplicates(Path root, ProgressMeter meter) throws IOException, InterruptedException {
+        HashEngine engine = new HashEngine(settings.hashThreadsPerStore, settings.hashThreads);
+        DigestCache digests = digestCache();
+        DuplicateFinder.Result result = DuplicateFinder.find(root, scanner().timed(meter), engine, digests, meter);
+        digests.save();
+        return result;
+    }
+
+    /**
+     * Groups the images below {@code root} that look alike: perceptual hashes at most
+     * {@code Settings.similarDistance} bits apart. Decoding runs on the reader pools of
+     * {@link HashEngine}, like hashing does.
+     */
+    public SimilarImages.Result findSimilarImages(Path root, ProgressMeter meter) throws IOException, InterruptedException {
+        meter.phase("Bejárás", -1);
+        Map<Path, Long> sizes = new ConcurrentHashMap<>();
+        scanner().timed(meter).scan(root, (p, attrs) -> {
+            meter.at(p);
+            String ext = ext(p);
+            if (isImage(ext) && ImageHash.readable(ext)) sizes.put(p, attrs.size());
+        });
+        meter.phase("Képek hash-elése", 0);
+        HashEngine engine = new HashEngine(settings.hashThreadsPerStore, settings.hashThreads);
+        HashEngine.Grouping<Long> byHash = engine.group(sizes.keySet(), p -> {
+            meter.bytes(sizes.get(p));
+            return ImageHash.dHash(p);
+        }, meter);
+        List<SimilarImages.Group> groups = SimilarImages.group(byHash.groups(), sizes, settings.similarDistance, meter);
+        return new SimilarImages.Result(groups, byHash.errors());
+    }
+
+    /** Deletes {@code files}, journaled like a move run so an interrupted delete can be finished. */
+    public long delete(Collection<Path> files, ProgressMeter meter) throws IOException, InterruptedException {
+        if (files.isEmpty()) return 0;
+        List<MovePlan.Move> entries = new ArrayList<>(files.size());
+        for (Path p : files) entries.add(new MovePlan.Move(p, null));
+        Journal journal = begin(Journal.Kind.DELETE, entries);
+        try (journal) {
+            MovePlan.Result result = deleteAll(entries, meter, journal);
+            journal.finish();
+            if (!result.errors().isEmpty()) {
+                var e = result.errors().entrySet().iterator().next();
+                throw new IOException("Nem törölhető: " + e.getKey() + ": " + e.getValue());
+            }
+            return result.moved();
+        } finally {
+            journaling.set(false);
+        }
+    }
+
+    private static MovePlan.Result deleteAll(List<MovePlan.Move> entries, ProgressMeter meter, Journal journal) throws IOException, InterruptedException {
+        meter.phase("Törlés", entries.size());
+        Map<Path, String> errors = new LinkedHashMap<>();
+        long deleted = 0;
+        for (int from = 0; from < entries.size(); from += MovePlan.BATCH) {
+            List<MovePlan.Move> batch = entries.subList(from, Math.min(entries.size(), from + MovePlan.BATCH));
+            for (MovePlan.Move m : batch) {
+                long start = System.nanoTime();
+                try {
+                    if (Files.deleteIfExists(m.from())) deleted++;
+                    meter.record(RunStats.Op.DELETE, m.from(), start, 0);
+                } catch (IOException e) {
+                    errors.put(m.from(), String.valueOf(e.getMessage()));
+                }
+                meter.item(m.from());
+            }
+            if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
+            journal.commit(batch.size());
+        }
+        return new MovePlan.Result(deleted, errors);
+    }
+
+    /**
+     * Replaces each copy with a hard link to, or a clone of, the file it duplicates, after
+     * checking once more that the two are byte-identical. Nothing is deleted, so this is not
+     * journaled: an interrupted run leaves every path with its old content.
+     */
+    public Dedup.Summary dedup(List<Dedup.Pair> pairs, Dedup.Mode mode, ProgressMeter meter) throws InterruptedException {
+        return Dedup.run(pairs, mode, settings.hashThreads, meter);
+    }
+
+    /** Backs {@code src} up into {@code dst} with the mode, threads and bandwidth from the settings. */
+    public Backup.Summary backup(Path src, Path dst, ProgressMeter meter) throws IOException, InterruptedException {
+        Backup.Options options = new Backup.Options(settings.backupMode, settings.backupPropagateDeletes, settings.backupDigests,
+                settings.backupVerify, settings.backupKeepSnapshots, settings.backupThreads, settings.backupBandwidthMBps * (1L << 20));
+        return Backup.run(src, dst, scanner().timed(meter), options, meter);
+    }
+
+    /** Snapshot and archive names in the backup target, oldest first. */
+    public List<String> snapshots(Path target) throws IOException {
+        List<String> names = new ArrayList<>(new SnapshotStore(target).snapshots());
+        names.addAll(new ArchiveStore(target).archives());
+        names.sort(Comparator.comparing(n -> n.startsWith(ArchiveStore.PREFIX) ? n.substring(ArchiveStore.PREFIX.length()) : n));
+        return names;
+    }
+
+    public long restore(Path target, String snapshot, Path into, ProgressMeter meter) throws IOException {
+        return restore(target, snapshot, null, into, meter);
+    }
+
+    /** Restores only {@code path} (a file or folder, relative to the backed up source) of a snapshot or archive. */
+    public long restore(Path target, String snapshot, String path, Path into, ProgressMeter meter) throws IOException {
+        if (ArchiveStore.isArchive(snapshot)) return new ArchiveStore(target).restore(snapshot, path, into, meter);
+        return new SnapshotStore(target).restore(snapshot, path, into, meter);
+    }
+
+    /** Starts sorting files into their category folders as they arrive below {@code base}. */
+    public FolderWatcher watch(Path base, FolderWatcher.Listener listener) throws IOException {
+        RuleSet rules = rules(base);
+        RuleSet.Matcher matcher = rules.matcher(); // the handler only runs on the watch thread
+        Set<Path> categoryDirs = new HashSet<>();
+        for (String dir : rules.targets()) categoryDirs.add(base.resolve(dir));
+        FolderWatcher watcher = new FolderWatcher(base, categoryDirs, scanner(), settings.watchSettleMillis, p -> {
+            String target = matcher.match(p, Files.readAttributes(p, BasicFileAttributes.class));
+            if (target != null) moveFileSafe(p, base.resolve(target).resolve(p.getFileName()));
+        }, listener);
+        try {
+            watcher.start();
+        } catch (IOException e) {
+            watcher.close();
+            throw e;
+        }
+        return watcher;
+    }
+
+    /**
+     * Appends the statistics of the run measured by {@code meter} to {@code runs.jsonl} next to
+     * {@code config.json}: one JSON object per run with phase times, throughput and per-disk
+     * latency histograms. {@code outcome} says how the run ended, e.g. {@code SUCCEEDED}.
+     */
+    public void saveRunStats(String task, String outcome, ProgressMeter meter) throws IOException {
+        meter.stats().append(configDir.resolve(RUNS_FILE), task, outcome);
+    }
+
+    FileScanner scanner() {
+        return new FileScanner(settings.excludeGlobs).parallelism(settings.scanThreads);
+    }
+
+    RuleSet rules(Path base) {
+        return RuleSet.compile(settings.rules, settings.categoryMap, base);
+    }
+
+    private synchronized DigestCache digestCache() {
+        if (digestCache == null) digestCache = DigestCache.load(configDir.resolve("digests.bin"));
+        return digestCache;
+    }
+
+    static String ext(Path p) {
+        String n = p.getFileName().toString();
+        int i = n.lastIndexOf('.');
+        return i >= 0 ? n.substring(i + 1) : "";
+    }
+
+    static String suffix(Path p) {
+        String n = p.getFileName().toString();
+        int i = n.lastIndexOf('.');
+        return i >= 0 ? n.substring(i) : "";
+    }
+
+    static boolean isImage(String ext) {
+        return IMAGE_EXTS.contains(ext.toLowerCase());
+    }
+
+    static boolean isVideo(String ext) {
+        return VIDEO_EXTS.contains(ext.toLowerCase());
+    }
+
+    static void moveFileSafe(Path src, Path dst) throws IOException {
+        if (Files.exists(dst)) {
+            String base = dst.getFileName().toString();
+            String name;
+            String ext = "";
+            int dot = base.lastIndexOf('.');
+            if (dot >= 0) {
+                name = base.substring(0, dot);
+                ext = base.substring(dot);
+            } else name = base;
+            int i = 1;
+            Path alt;
+            do {
+                alt = dst.getParent().resolve(name + "_" + i + ext);
+                i++;
+            } while (Files.exists(alt));
+            dst = alt;
+        }
+        Files.createDirectories(dst.getParent());
+        try {
+            Files.move(src, dst, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            CrossStoreMove.move(src, dst, null); // category folder on another disk
+        }
+    }
+}
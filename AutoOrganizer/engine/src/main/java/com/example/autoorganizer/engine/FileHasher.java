@@ -0,0 +1,127 @@
+package com.example.autoorganizer.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * SHA-256 over {@link FileChannel}s. Digests and direct read buffers are pooled and reused
+ * across files. Files are read with positional reads, not mapped: a mapping stays until the GC
+ * unmaps it, which keeps the file locked on Windows, and a file truncated under it faults with
+ * an {@link InternalError} instead of an {@link IOException}.
+ */
+final class FileHasher {
+
+    static final int BUFFER_BYTES = 256 * 1024;
+
+    private static final class State {
+        final MessageDigest md;
+        final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        final byte[] out = new byte[Digest.BYTES];
+
+        State() {
+            md = newSha256();
+        }
+    }
+
+    private static final ConcurrentLinkedQueue<State> POOL = new ConcurrentLinkedQueue<>();
+
+    private FileHasher() {
+    }
+
+    /** A fresh SHA-256 digest; every JDK has it, so its absence is a broken runtime. */
+    static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static Digest sha256(Path p) throws IOException {
+        State s = borrow();
+        try {
+            return sha256(p, s, s.buf);
+        } finally {
+            release(s);
+        }
+    }
+
+    /** Same as {@link #sha256(Path)} but reads through {@code buf}; lets the benchmarks compare buffer sizes. */
+    static Digest sha256(Path p, ByteBuffer buf) throws IOException {
+        State s = borrow();
+        try {
+            return sha256(p, s, buf);
+        } finally {
+            release(s);
+        }
+    }
+
+    private static Digest sha256(Path p, State s, ByteBuffer buf) throws IOException {
+        try (FileChannel ch = FileChannel.open(p, StandardOpenOption.READ)) {
+            long pos = 0;
+            int r;
+            while ((r = ch.read(buf.clear(), pos)) != -1) {
+                pos += r;
+                s.md.update(buf.flip());
+            }
+            return finish(s);
+        }
+    }
+
+    /** SHA-256 of bytes already in memory, e.g. a small file on its way through the copy pipeline. */
+    static Digest sha256(byte[] data) throws IOException {
+        State s = borrow();
+        try {
+            s.md.update(data);
+            return finish(s);
+        } finally {
+            release(s);
+        }
+    }
+
+    /** Hashes only the first and last {@code bytes} of a file of the given size. */
+    static Digest partial(Path p, long size, int bytes) throws IOException {
+        State s = borrow();
+        try (FileChannel ch = FileChannel.open(p, StandardOpenOption.READ)) {
+            int n = Math.min(bytes, BUFFER_BYTES);
+            readAt(ch, s.buf.clear().limit(n), 0);
+            s.md.update(s.buf.flip());
+            readAt(ch, s.buf.clear().limit(n), Math.max(0, size - n));
+            s.md.update(s.buf.flip());
+            return finish(s);
+        } finally {
+            release(s);
+        }
+    }
+
+    private static void readAt(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        long pos = position;
+        int r;
+        while (buf.hasRemaining() && (r = ch.read(buf, pos)) != -1) pos += r;
+    }
+
+    private static Digest finish(State s) throws IOException {
+        try {
+            s.md.digest(s.out, 0, Digest.BYTES);
+        } catch (java.security.DigestException e) {
+            throw new IOException(e);
+        }
+        return Digest.of(s.out);
+    }
+
+    private static State borrow() {
+        State s = POOL.poll();
+        return s != null ? s : new State();
+    }
+
+    private static void release(State s) {
+        s.md.reset();
+        POOL.offer(s);
+    }
+}
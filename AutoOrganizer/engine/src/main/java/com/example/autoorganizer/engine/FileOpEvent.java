@@ -0,0 +1,32 @@
+package com.example.autoorganizer.engine;
+
+import jdk.jfr.*;
+
+/**
+ * A file operation slower than {@link RunStats#SLOW_NANOS}. The latency is a field rather than
+ * the event duration because the operations are timed by {@link RunStats}, which only knows
+ * afterwards whether one was slow; fast ones are never allocated as events.
+ */
+@Name("com.example.autoorganizer.FileOperation")
+@Label("Slow file operation")
+@Category("DoomSorter")
+@StackTrace(false)
+final class FileOpEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Path")
+    String path;
+
+    @Label("Disk")
+    String disk;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+}
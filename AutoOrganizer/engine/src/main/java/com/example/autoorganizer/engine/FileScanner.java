@@ -0,0 +1,282 @@
+package com.example.autoorganizer.engine;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tree walker shared by all tabs. Every regular file is handed to the visitor together with
+ * the attributes read during the walk, so callers never have to stat it again, and excluded
+ * directories are pruned before they are entered. A symbolic link to a regular file counts as
+ * that file, with the target's attributes; links to directories are not followed.
+ *
+ * <p>With a parallelism above one, directories are listed by a work-stealing fork-join pool,
+ * which hides the per-directory latency of network mounts; the visitor is then called from
+ * several threads at once.
+ */
+final class FileScanner {
+
+    interface Visitor {
+        void file(Path p, BasicFileAttributes attrs) throws IOException;
+
+        default void failed(Path p, IOException e) {
+        }
+    }
+
+    record Entry(Path path, BasicFileAttributes attrs) {
+    }
+
+    static final List<String> DEFAULT_EXCLUDES = List.of(
+            ".git", "node_modules", "$RECYCLE.BIN", "System Volume Information",
+            "/proc", "/sys", "/dev", "/run");
+
+    private final List<PathMatcher> nameMatchers = new ArrayList<>();
+    private final List<PathMatcher> pathMatchers = new ArrayList<>();
+    private int maxDepth = Integer.MAX_VALUE;
+    private int parallelism = 1;
+    private ProgressMeter meter;
+
+    /**
+     * Globs without a separator ({@code .git}, {@code *.tmp}) match a directory name anywhere
+     * in the tree, globs with one ({@code /proc}, {@code C:/Windows}) match the absolute path.
+     */
+    FileScanner(List<String> excludeGlobs) {
+        FileSystem fs = FileSystems.getDefault();
+        if (excludeGlobs == null) return;
+        for (String g : excludeGlobs) {
+            String glob = g.trim();
+            if (glob.isEmpty()) continue;
+            if (glob.indexOf('/') >= 0 || glob.indexOf('\\') >= 0) pathMatchers.add(fs.getPathMatcher("glob:" + glob));
+            else nameMatchers.add(fs.getPathMatcher("glob:" + glob));
+        }
+    }
+
+    FileScanner maxDepth(int depth) {
+        this.maxDepth = depth;
+        return this;
+    }
+
+    FileScanner parallelism(int threads) {
+        this.parallelism = Math.max(1, threads);
+        return this;
+    }
+
+    /** Records the stat of every entry in the run statistics of {@code meter}. */
+    FileScanner timed(ProgressMeter meter) {
+        this.meter = meter;
+        return this;
+    }
+
+    boolean isExcluded(Path dir) {
+        Path name = dir.getFileName();
+        if (name != null) {
+            for (PathMatcher m : nameMatchers) {
+                if (m.matches(name)) return true;
+            }
+        }
+        if (!pathMatchers.isEmpty()) {
+            Path abs = dir.toAbsolutePath();
+            for (PathMatcher m : pathMatchers) {
+                if (m.matches(abs)) return true;
+            }
+        }
+        return false;
+    }
+
+    /** Walks {@code root}; unreadable entries are reported to the visitor and skipped. */
+    void scan(Path root, Visitor visitor) throws IOException {
+        if (parallelism > 1) {
+            scanParallel(root, visitor);
+            return;
+        }
+        Files.walkFileTree(root, EnumSet.noneOf(FileVisitOption.class), maxDepth, new SimpleFileVisitor<>() {
+            // the walker stats inside the JDK, so an entry's stat is timed as the gap since the previous callback returned
+            long returned = System.nanoTime();
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                checkInterrupted();
+                if (meter != null) meter.record(RunStats.Op.STAT, dir, returned, 0);
+                FileVisitResult r = !dir.equals(root) && isExcluded(dir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                returned = System.nanoTime();
+                return r;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (meter != null) meter.record(RunStats.Op.STAT, file, returned, 0);
+                BasicFileAttributes a = attrs.isSymbolicLink() ? target(file) : attrs;
+                if (a != null && a.isRegularFile()) visitor.file(file, a);
+                returned = System.nanoTime();
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                visitor.failed(file, e);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+                if (e != null) visitor.failed(dir, e);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Walks {@code root} on a background thread and hands the files over through a bounded
+     * queue, so the caller can already process entries while directories are still listed.
+     */
+    Feed feed(Path root, int capacity) {
+        return new Feed(root, capacity);
+    }
+
+    final class Feed implements AutoCloseable {
+        private final Entry end = new Entry(null, null);
+        private final BlockingQueue<Entry> queue;
+        private final AtomicReference<IOException> failure = new AtomicReference<>();
+        private final List<Path> failed = new CopyOnWriteArrayList<>();
+        private final Thread producer;
+
+        private Feed(Path root, int capacity) {
+            queue = new ArrayBlockingQueue<>(capacity);
+            producer = Thread.ofVirtual().name("DoomSorter-Scan").start(() -> {
+                try {
+                    scan(root, new Visitor() {
+                        @Override
+                        public void file(Path p, BasicFileAttributes attrs) throws IOException {
+                            try {
+                                queue.put(new Entry(p, attrs));
+                            } catch (InterruptedException e) {
+                                throw new InterruptedIOException("Megszakítva");
+                            }
+                        }
+
+                        @Override
+                        public void failed(Path p, IOException e) {
+                            failed.add(p);
+                        }
+                    });
+                } catch (IOException e) {
+                    failure.set(e);
+                } finally {
+                    try {
+                        queue.put(end);
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            });
+        }
+
+        /** Next file, or {@code null} once the walk is complete. */
+        Entry take() throws IOException, InterruptedException {
+            Entry e = queue.take();
+            if (e != end) return e;
+            queue.put(end);
+            IOException f = failure.get();
+            if (f != null) throw f;
+            return null;
+        }
+
+        /** Entries that could not be read during the walk. */
+        List<Path> failed() {
+            return failed;
+        }
+
+        @Override
+        public void close() {
+            producer.interrupt();
+        }
+    }
+
+    private void scanParallel(Path root, Visitor visitor) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(new DirTask(root, 0, visitor)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Megszakítva");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException u) throw u.getCause();
+            if (cause instanceof RuntimeException r) throw r;
+            throw new IOException(cause);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @SuppressWarnings("serial") // tasks never leave the pool, so they are never serialized
+    private final class DirTask extends RecursiveAction {
+        private final Path dir;
+        private final int depth;
+        private final Visitor visitor;
+
+        DirTask(Path dir, int depth, Visitor visitor) {
+            this.dir = dir;
+            this.depth = depth;
+            this.visitor = visitor;
+        }
+
+        @Override
+        protected void compute() {
+            List<DirTask> subdirs = new ArrayList<>();
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+                for (Path p : ds) {
+                    if (Thread.currentThread().isInterrupted()) return;
+                    BasicFileAttributes attrs;
+                    long start = System.nanoTime();
+                    try {
+                        attrs = Files.readAttributes(p, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                        if (meter != null) meter.record(RunStats.Op.STAT, p, start, 0);
+                    } catch (IOException e) {
+                        visitor.failed(p, e);
+                        continue;
+                    }
+                    if (attrs.isSymbolicLink()) {
+                        attrs = target(p);
+                        if (attrs == null || !attrs.isRegularFile()) continue;
+                    }
+                    if (attrs.isDirectory()) {
+                        if (depth + 1 < maxDepth && !isExcluded(p)) {
+                            DirTask t = new DirTask(p, depth + 1, visitor);
+                            t.fork();
+                            subdirs.add(t);
+                        }
+                    } else if (attrs.isRegularFile()) {
+                        try {
+                            visitor.file(p, attrs);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                visitor.failed(dir, e instanceof DirectoryIteratorException d ? d.getCause() : (IOException) e);
+            }
+            for (DirTask t : subdirs) t.join();
+        }
+    }
+
+    /** The attributes of what {@code link} points to, or null for a dangling link. */
+    private static BasicFileAttributes target(Path link) {
+        try {
+            return Files.readAttributes(link, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void checkInterrupted() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Megszakítva");
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.autoorganizer.engine;
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The {@link FileStore} of a path, looked up once per file system rather than once per folder:
+ * {@link Files#getFileStore} reads the mount table on every call on Linux. Each file system is
+ * known by the topmost folder of it reached so far, so a lookup is a prefix match against a
+ * handful of roots however many folders a scan passes. That folder stops below the file system
+ * root, where other drives are mounted; a drive mounted deeper inside a folder already known is
+ * counted with that folder.
+ */
+final class FileStores {
+
+    /** The highest directory reached on a file system, and its store; null if it could not be read. */
+    private record Mount(Path root, FileStore store) {
+    }
+
+    private final List<Mount> mounts = new CopyOnWriteArrayList<>();
+
+    /** The store holding the file {@code p}, or null if it cannot be found. */
+    FileStore of(Path p) {
+        Path dir = p.toAbsolutePath().getParent();
+        if (dir == null) return null;
+        Mount m = mount(dir);
+        return m != null ? m.store() : resolve(dir);
+    }
+
+    private Mount mount(Path dir) {
+        Mount best = null;
+        for (Mount m : mounts) {
+            if (dir.startsWith(m.root()) && (best == null || m.root().getNameCount() > best.root().getNameCount())) best = m;
+        }
+        return best;
+    }
+
+    private synchronized FileStore resolve(Path dir) {
+        Mount known = mount(dir); // another thread may have been first
+        if (known != null) return known.store();
+        // the folder may be gone already, e.g. the source folder of a move that emptied it
+        Path root = dir;
+        while (root.getParent() != null && !Files.exists(root)) root = root.getParent();
+        FileStore store;
+        try {
+            store = Files.getFileStore(root);
+        } catch (IOException e) {
+            mounts.add(new Mount(root, null));
+            return null;
+        }
+        try {
+            for (Path up = root.getParent(); up != null && up.getParent() != null && store.equals(Files.getFileStore(up)); up = up.getParent()) {
+                root = up;
+            }
+        } catch (IOException e) {
+            // an unreadable parent ends the climb
+        }
+        mounts.add(new Mount(root, store));
+        return store;
+    }
+}
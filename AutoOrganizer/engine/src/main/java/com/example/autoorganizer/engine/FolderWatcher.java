@@ -0,0 +1,196 @@
+package com.example.autoorganizer.engine;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Continuous organizer: watches a folder tree with a {@link WatchService} and hands every new or
+ * changed file to the handler once it has stopped changing for the settle time. Directories in
+ * {@code skip} (the category folders) are never watched, so sorted files are not picked up again.
+ */
+public final class FolderWatcher implements AutoCloseable {
+
+    interface Handler {
+        void ready(Path file) throws IOException;
+    }
+
+    public interface Listener {
+        void handled(Path file);
+
+        void failed(Path file, Exception e);
+    }
+
+    private static final long POLL_MILLIS = 250;
+
+    private record Pending(long size, long mtime, long lastChange) {
+    }
+
+    private final Path base;
+    private final Set<Path> skip;
+    private final FileScanner scanner;
+    private final long settleMillis;
+    private final Handler handler;
+    private final Listener listener;
+    private final WatchService ws;
+    private final Map<WatchKey, Path> dirs = new ConcurrentHashMap<>(); // also counted from the GUI thread
+    private final Map<Path, Pending> pending = new LinkedHashMap<>();
+    private volatile boolean running;
+    private Thread thread;
+
+    FolderWatcher(Path base, Set<Path> skip, FileScanner scanner, long settleMillis, Handler handler, Listener listener) throws IOException {
+        this.base = base.toAbsolutePath().normalize();
+        this.skip = new HashSet<>();
+        for (Path p : skip) this.skip.add(p.toAbsolutePath().normalize());
+        this.scanner = scanner;
+        this.settleMillis = settleMillis;
+        this.handler = handler;
+        this.listener = listener;
+        this.ws = base.getFileSystem().newWatchService();
+    }
+
+    /** Registers the tree and starts watching; files already present are left alone. */
+    void start() throws IOException {
+        register(base, false);
+        running = true;
+        thread = Thread.ofPlatform().daemon().name("DoomSorter-Watch").start(this::loop);
+    }
+
+    public int watchedDirectories() {
+        return dirs.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (thread != null) thread.interrupt();
+        ws.close();
+    }
+
+    private void loop() {
+        try {
+            while (running) {
+                WatchKey key = ws.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                while (key != null) {
+                    handle(key);
+                    key = ws.poll();
+                }
+                settle();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // stopped
+        }
+    }
+
+    private void handle(WatchKey key) {
+        Path dir = dirs.get(key);
+        for (WatchEvent<?> ev : key.pollEvents()) {
+            if (ev.kind() == OVERFLOW) {
+                rescan();
+                continue;
+            }
+            if (dir == null) continue;
+            Path child = dir.resolve((Path) ev.context());
+            if (ev.kind() == ENTRY_DELETE) {
+                pending.remove(child);
+            } else if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                // files can land in a new directory before it is registered, so pick those up too
+                if (ev.kind() == ENTRY_CREATE) registerQuietly(child);
+            } else {
+                touch(child);
+            }
+        }
+        if (!key.reset()) dirs.remove(key);
+    }
+
+    /**
+     * Events were lost. Instead of walking the whole tree again only the watched directories
+     * are listed, one level each; their subdirectories are watched directories themselves,
+     * except those created while events were lost, which are registered now.
+     */
+    private void rescan() {
+        Set<Path> watched = new HashSet<>(dirs.values());
+        for (Path dir : watched) {
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+                for (Path p : ds) {
+                    if (Files.isRegularFile(p, LinkOption.NOFOLLOW_LINKS)) touch(p);
+                    else if (Files.isDirectory(p, LinkOption.NOFOLLOW_LINKS) && !watched.contains(p)) registerQuietly(p);
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                listener.failed(dir, e);
+            }
+        }
+    }
+
+    private void touch(Path file) {
+        Pending old = pending.get(file);
+        pending.put(file, new Pending(old == null ? -1 : old.size, old == null ? -1 : old.mtime, System.currentTimeMillis()));
+    }
+
+    /** Hands over every pending file whose size and mtime did not change during the settle time. */
+    private void settle() {
+        long now = System.currentTimeMillis();
+        for (Iterator<Map.Entry<Path, Pending>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+            var e = it.next();
+            Path file = e.getKey();
+            Pending p = e.getValue();
+            BasicFileAttributes attrs;
+            try {
+                attrs = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (IOException ex) {
+                it.remove();
+                continue;
+            }
+            long mtime = attrs.lastModifiedTime().toMillis();
+            if (attrs.size() != p.size || mtime != p.mtime) {
+                e.setValue(new Pending(attrs.size(), mtime, now));
+            } else if (now - p.lastChange >= settleMillis) {
+                it.remove();
+                if (!attrs.isRegularFile()) continue;
+                try {
+                    handler.ready(file);
+                    listener.handled(file);
+                } catch (Exception ex) {
+                    listener.failed(file, ex);
+                }
+            }
+        }
+    }
+
+    private void registerQuietly(Path dir) {
+        try {
+            register(dir, true);
+        } catch (IOException e) {
+            listener.failed(dir, e);
+        }
+    }
+
+    private void register(Path root, boolean pickUpFiles) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Path abs = dir.toAbsolutePath().normalize();
+                if (skip.contains(abs) || (!abs.equals(base) && scanner.isExcluded(dir))) return FileVisitResult.SKIP_SUBTREE;
+                dirs.put(dir.register(ws, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (pickUpFiles && attrs.isRegularFile()) touch(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                listener.failed(file, e);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
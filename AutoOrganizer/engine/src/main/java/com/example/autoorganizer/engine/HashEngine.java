@@ -0,0 +1,134 @@
+package com.example.autoorganizer.engine;
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Hashes many files at once on virtual threads. Files are queued per {@link FileStore}
+ * and each store gets its own number of readers, so an SSD can be read by many threads
+ * while a spinning USB disk is read by one or two.
+ */
+final class HashEngine {
+
+    interface Hasher<K> {
+        K hash(Path p) throws IOException;
+    }
+
+    /** Files grouped by key, plus the files that could not be read and why. */
+    record Grouping<K>(Map<K, List<Path>> groups, Map<Path, String> errors) {
+    }
+
+    private final Map<String, Integer> threadsPerStore;
+    private final int defaultThreads;
+    private final FileStores stores = new FileStores();
+
+    HashEngine(Map<String, Integer> threadsPerStore, int defaultThreads) {
+        this.threadsPerStore = threadsPerStore == null ? Map.of() : threadsPerStore;
+        this.defaultThreads = Math.max(1, defaultThreads);
+    }
+
+    /**
+     * Applies {@code hash} to every file and groups the files by the resulting key.
+     * The lists in the result are sorted, so it does not depend on thread timing.
+     */
+    <K> Grouping<K> group(Collection<Path> files, Hasher<K> hash, ProgressMeter meter) throws InterruptedException {
+        try (Session<K> session = open(hash, meter)) {
+            for (Path p : files) session.add(p);
+            return session.finish();
+        }
+    }
+
+    /**
+     * Opens a streaming session: files can be added while earlier ones are already being
+     * hashed, e.g. straight from a tree walk.
+     */
+    <K> Session<K> open(Hasher<K> hash, ProgressMeter meter) {
+        return new Session<>(hash, meter);
+    }
+
+    final class Session<K> implements AutoCloseable {
+        private final Path end = Path.of("");
+        private final Hasher<K> hash;
+        private final ProgressMeter meter;
+        private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        private final Map<Object, BlockingQueue<Path>> queues = new ConcurrentHashMap<>();
+        private final Map<Object, Integer> workers = new ConcurrentHashMap<>();
+        private final List<Future<?>> running = Collections.synchronizedList(new ArrayList<>());
+        private final Map<K, Queue<Path>> out = new ConcurrentHashMap<>();
+        private final Map<Path, String> errors = new ConcurrentHashMap<>();
+
+        private Session(Hasher<K> hash, ProgressMeter meter) {
+            this.hash = hash;
+            this.meter = meter;
+        }
+
+        /** Queues a file on the reader pool of its {@link FileStore}. Safe to call from several threads. */
+        void add(Path p) {
+            FileStore store = stores.of(p);
+            Object key = store != null ? store : "?";
+            BlockingQueue<Path> queue = queues.computeIfAbsent(key, k -> {
+                BlockingQueue<Path> q = new LinkedBlockingQueue<>();
+                int n = store != null ? threadsFor(store) : 1;
+                workers.put(k, n);
+                for (int i = 0; i < n; i++) {
+                    running.add(executor.submit(() -> {
+                        drain(q);
+                        return null;
+                    }));
+                }
+                return q;
+            });
+            meter.addTotal(1);
+            queue.add(p);
+        }
+
+        /** Waits until every added file is hashed; the lists in the result are sorted. */
+        Grouping<K> finish() throws InterruptedException {
+            queues.forEach((k, q) -> {
+                for (int i = 0; i < workers.get(k); i++) q.add(end);
+            });
+            try {
+                for (Future<?> f : List.copyOf(running)) f.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException r) throw r;
+                throw new IllegalStateException(e.getCause());
+            }
+            Map<K, List<Path>> sorted = new HashMap<>();
+            out.forEach((k, v) -> {
+                List<Path> l = new ArrayList<>(v);
+                Collections.sort(l);
+                sorted.put(k, l);
+            });
+            return new Grouping<>(sorted, new TreeMap<>(errors));
+        }
+
+        @Override
+        public void close() {
+            executor.shutdownNow();
+        }
+
+        private void drain(BlockingQueue<Path> queue) throws InterruptedException {
+            Path p;
+            while ((p = queue.take()) != end) {
+                long start = System.nanoTime();
+                try {
+                    K key = hash.hash(p);
+                    out.computeIfAbsent(key, k -> new ConcurrentLinkedQueue<>()).add(p);
+                } catch (IOException | RuntimeException e) {
+                    errors.put(p, e.toString());
+                }
+                meter.record(RunStats.Op.READ, p, start, 0);
+                meter.item(p);
+            }
+        }
+    }
+
+    int threadsFor(FileStore store) {
+        Integer n = threadsPerStore.get(store.name());
+        if (n == null) n = threadsPerStore.get(store.toString());
+        return n != null && n > 0 ? n : defaultThreads;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.autoorganizer.engine;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Perceptual hashes of images: 64-bit dHash, one bit per neighbouring pixel pair of a 9×8
+ * grayscale thumbnail, set where brightness falls from left to right. Re-encoding, resizing
+ * and mild edits flip only a few bits, so similar images are a small Hamming distance apart.
+ *
+ * <p>Images are decoded with source subsampling down to about {@link #DECODE_EDGE} pixels on
+ * the short side, so a 24 MP photo costs a fraction of the memory and pixel work of a full
+ * decode. Only the formats ImageIO can read are hashed.
+ */
+final class ImageHash {
+
+    private static final int DECODE_EDGE = 64;
+    private static final Set<String> READABLE;
+
+    static {
+        ImageIO.setUseCache(false); // no temporary files per decode
+        Set<String> suffixes = new HashSet<>();
+        for (String s : ImageIO.getReaderFileSuffixes()) suffixes.add(s.toLowerCase(Locale.ROOT));
+        READABLE = Set.copyOf(suffixes);
+    }
+
+    private ImageHash() {
+    }
+
+    /** True if ImageIO has a reader for files with this (lower-case) extension. */
+    static boolean readable(String ext) {
+        return READABLE.contains(ext);
+    }
+
+    static long dHash(Path p) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(p.toFile())) {
+            if (in == null) throw new IOException("Nem olvasható: " + p);
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) throw new IOException("Ismeretlen képformátum");
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int edge = Math.min(reader.getWidth(0), reader.getHeight(0));
+                int step = Math.max(1, edge / DECODE_EDGE);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return dHash(reader.read(0, param));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /** Averages the image into 9×8 cells of luminance, then compares each cell with its right neighbour. */
+    static long dHash(BufferedImage img) {
+        int w = img.getWidth(), h = img.getHeight();
+        double[] sum = new double[9 * 8];
+        int[] count = new int[9 * 8];
+        int[] row = new int[w];
+        for (int y = 0; y < h; y++) {
+            img.getRGB(0, y, w, 1, row, 0, w);
+            int cy = y * 8 / h;
+            for (int x = 0; x < w; x++) {
+                int rgb = row[x];
+                int cell = cy * 9 + x * 9 / w;
+                sum[cell] += 0.299 * (rgb >> 16 & 0xFF) + 0.587 * (rgb >> 8 & 0xFF) + 0.114 * (rgb & 0xFF);
+                count[cell]++;
+            }
+        }
+        long bits = 0;
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                int c = y * 9 + x;
+                // images narrower than 9 pixels leave cells empty; they read as black
+                double left = count[c] == 0 ? 0 : sum[c] / count[c];
+                double right = count[c + 1] == 0 ? 0 : sum[c + 1] / count[c + 1];
+                bits = bits << 1 | (left > right ? 1 : 0);
+            }
+        }
+        return bits;
+    }
+
+    static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.autoorganizer.engine;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Write-ahead log of an organize, rename or delete run, kept in {@code journal/} of the config
+ * directory. The whole plan is written and synced before the first file is touched; after
+ * every batch of {@link MovePlan#BATCH} entries a commit record is appended and synced, so a
+ * run pays one fsync per batch, not per file. A run that finishes renames its journal to
+ * {@value #LAST}, which is what undo reverts; a journal still named {@value #RUNNING} at the
+ * next start belongs to a run that died and can be resumed or rolled back.
+ *
+ * <p>File layout: magic, version, kind, start time, entry count, the entries (UTF-8 source
+ * path, and target path for moves), a ready tag, then commit tags with the number of entries
+ * settled so far and finally a done tag. A torn tail is read as if it had not been written.
+ */
+public final class Journal implements Closeable {
+
+    public enum Kind {
+        ORGANIZE, RENAME, DELETE
+    }
+
+    /** What a journal describes: {@code committed} of {@code total} entries are known to be settled. */
+    public record Info(Kind kind, Instant started, int total, int committed) {
+    }
+
+    static final String RUNNING = "running.dsj";
+    static final String LAST = "last.dsj";
+    private static final int MAGIC = 0x44534d4a; // "DSMJ"
+    private static final int VERSION = 1;
+    private static final int READY = 1, COMMIT = 2, DONE = 3;
+
+    private final Path file;
+    private final Info info;
+    private final List<MovePlan.Move> entries;
+    private final FileChannel channel;
+    private final DataOutputStream out;
+    private int committed;
+
+    private Journal(Path file, Info info, List<MovePlan.Move> entries, FileChannel channel) {
+        this.file = file;
+        this.info = info;
+        this.entries = entries;
+        this.channel = channel;
+        this.out = channel == null ? null : new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+        this.committed = info.committed();
+    }
+
+    /** Writes and syncs the plan of a new run; delete entries have a {@code null} target. */
+    static Journal create(Path dir, Kind kind, List<MovePlan.Move> entries) throws IOException {
+        Files.createDirectories(dir);
+        Path file = dir.resolve(RUNNING);
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        Journal j = new Journal(file, new Info(kind, Instant.now(), entries.size(), 0), entries, ch);
+        try {
+            j.out.writeInt(MAGIC);
+            j.out.writeInt(VERSION);
+            j.out.writeByte(kind.ordinal());
+            j.out.writeLong(j.info.started().toEpochMilli());
+            j.out.writeInt(entries.size());
+            for (MovePlan.Move m : entries) {
+                writeString(j.out, m.from().toString());
+                if (kind != Kind.DELETE) writeString(j.out, m.to().toString());
+            }
+            j.out.writeByte(READY);
+            j.sync();
+        } catch (IOException e) {
+            j.close();
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return j;
+    }
+
+    /** The journal of a run that did not finish, opened for appending; {@code null} if there is none. */
+    static Journal interrupted(Path dir) throws IOException {
+        Journal read = read(dir.resolve(RUNNING), true);
+        if (read == null) return null;
+        FileChannel ch = FileChannel.open(dir.resolve(RUNNING), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return new Journal(read.file, read.info, read.entries, ch);
+    }
+
+    /** The journal of the last finished run, read only; {@code null} if there is none. */
+    static Journal last(Path dir) throws IOException {
+        return read(dir.resolve(LAST), true);
+    }
+
+    /** What {@code file} holds, skipping over the entries; {@code null} if there is no usable journal. */
+    static Info peek(Path file) throws IOException {
+        Journal j = read(file, false);
+        return j == null ? null : j.info;
+    }
+
+    private static Journal read(Path file, boolean withEntries) throws IOException {
+        if (!Files.isRegularFile(file)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            Kind kind = Kind.values()[in.readByte()];
+            Instant started = Instant.ofEpochMilli(in.readLong());
+            int count = in.readInt();
+            List<MovePlan.Move> entries = new ArrayList<>(withEntries ? count : 0);
+            for (int i = 0; i < count; i++) {
+                if (!withEntries) {
+                    in.skipNBytes(in.readInt());
+                    if (kind != Kind.DELETE) in.skipNBytes(in.readInt());
+                    continue;
+                }
+                Path from = Path.of(readString(in));
+                entries.add(new MovePlan.Move(from, kind == Kind.DELETE ? null : Path.of(readString(in))));
+            }
+            if (in.readByte() != READY) return null;
+            int committed = 0;
+            try {
+                for (int tag; (tag = in.read()) >= 0; ) {
+                    if (tag == COMMIT) committed = in.readInt();
+                    else if (tag == DONE) committed = count;
+                }
+            } catch (EOFException e) {
+                // torn last record
+            }
+            return new Journal(file, new Info(kind, started, count, committed), entries, null);
+        } catch (EOFException | RuntimeException e) {
+            // the plan itself is incomplete, so no file was touched yet
+            return null;
+        }
+    }
+
+    Info info() {
+        return info;
+    }
+
+    List<MovePlan.Move> entries() {
+        return entries;
+    }
+
+    /** Entries that may not have run yet. */
+    List<MovePlan.Move> pending() {
+        return entries.subList(committed, entries.size());
+    }
+
+    /** Entries that may have run: the committed ones and the batch after them. */
+    List<MovePlan.Move> started() {
+        return entries.subList(0, Math.min(entries.size(), committed + MovePlan.BATCH));
+    }
+
+    /** Records that {@code count} more entries are settled, moved or failed. */
+    void commit(int count) throws IOException {
+        committed += count;
+        out.writeByte(COMMIT);
+        out.writeInt(committed);
+        sync();
+    }
+
+    /** Marks the run finished and keeps it as the one undo reverts. */
+    void finish() throws IOException {
+        out.writeByte(DONE);
+        sync();
+        close();
+        Files.move(file, file.resolveSibling(LAST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Forgets the run, after it was rolled back or undone. */
+    void discard() throws IOException {
+        close();
+        Files.deleteIfExists(file);
+    }
+
+    private void sync() throws IOException {
+        out.flush();
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null && channel.isOpen()) {
+            out.flush();
+            channel.close();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] b = new byte[in.readInt()];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
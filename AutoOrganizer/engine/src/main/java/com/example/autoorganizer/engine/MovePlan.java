@@ -0,0 +1,247 @@
+package com.example.autoorganizer.engine;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Every move of an organizer or renamer run, decided before anything is touched. Each target
+ * directory is listed once into a name index and all collisions are resolved against it in
+ * memory ({@code name_1}, {@code name_2}, ...), so a run costs one listing per directory instead
+ * of a stat per candidate name. The plan can be shown as a dry run and executed later.
+ *
+ * <p>Moves within one {@link FileStore} are renames. Moves to another store are found before
+ * the first one runs and go through {@link CrossStoreMove} on a pool of their own, a few
+ * copies at a time, while the renames of the same batch go on beside them.
+ *
+ * <p>Plans replayed from a {@link Journal} check both ends of every move first, since part of
+ * them may already have run: a move whose source is gone and whose target exists is done.
+ */
+public final class MovePlan {
+
+    /** Moves are executed this many at a time; the target directories of one batch run in parallel. */
+    static final int BATCH = 1024;
+
+    public record Move(Path from, Path to) {
+    }
+
+    /** Moved (for a delete run: deleted) files, and the sources that failed with the reason. */
+    public record Result(long moved, Map<Path, String> errors) {
+    }
+
+    private final Journal.Kind kind;
+    private final List<Move> moves;
+    private final int renamed;
+    private final boolean replay;
+
+    MovePlan(Journal.Kind kind, List<Move> moves, int renamed, boolean replay) {
+        this.kind = kind;
+        this.moves = moves;
+        this.renamed = renamed;
+        this.replay = replay;
+    }
+
+    public Journal.Kind kind() {
+        return kind;
+    }
+
+    public List<Move> moves() {
+        return moves;
+    }
+
+    /** Moves whose target got a {@code _N} suffix because the name was taken. */
+    public int renamed() {
+        return renamed;
+    }
+
+    /** Distinct target directories, e.g. to find the disks a run writes to. */
+    public Set<Path> targetDirs() {
+        Set<Path> dirs = new LinkedHashSet<>();
+        for (Move m : moves) dirs.add(m.to.getParent());
+        return dirs;
+    }
+
+    /**
+     * Runs the moves, renames on {@code threads} and copies to other stores on {@code copyThreads};
+     * with a {@code journal}, every finished batch is committed to it.
+     */
+    Result execute(int threads, int copyThreads, ProgressMeter meter, Journal journal) throws IOException, InterruptedException {
+        meter.phase("Lemezek vizsgálata", moves.size());
+        CrossStoreMove.Stores stores = new CrossStoreMove.Stores();
+        BitSet cross = new BitSet(moves.size());
+        for (int i = 0; i < moves.size(); i++) {
+            Move m = moves.get(i);
+            if (!stores.same(m.from, m.to)) cross.set(i);
+            meter.item(m.from);
+        }
+        meter.phase(cross.isEmpty() ? "Mozgatás" : "Mozgatás (" + cross.cardinality() + " másik lemezre)", moves.size());
+        Map<Path, String> errors = new ConcurrentHashMap<>();
+        // moves wait on the disk, not the CPU
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads), Thread.ofVirtual().name("DoomSorter-Move").factory());
+        ExecutorService copies = Executors.newFixedThreadPool(Math.max(1, copyThreads), Thread.ofVirtual().name("DoomSorter-Copy").factory());
+        long moved = 0;
+        try {
+            for (int from = 0; from < moves.size(); from += BATCH) {
+                int end = Math.min(moves.size(), from + BATCH);
+                Map<Path, List<Move>> byDir = new LinkedHashMap<>();
+                List<Future<Integer>> done = new ArrayList<>();
+                for (int i = from; i < end; i++) {
+                    Move m = moves.get(i);
+                    if (cross.get(i)) done.add(copies.submit(() -> moveAcross(m, replay, errors, meter)));
+                    else byDir.computeIfAbsent(m.to.getParent(), d -> new ArrayList<>()).add(m);
+                }
+                for (var e : byDir.entrySet()) done.add(pool.submit(() -> moveAll(e.getKey(), e.getValue(), replay, errors, meter)));
+                for (Future<Integer> f : done) {
+                    try {
+                        moved += f.get();
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof RuntimeException r) throw r;
+                        throw new IllegalStateException(e.getCause());
+                    }
+                }
+                if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
+                if (journal != null) journal.commit(end - from);
+            }
+        } finally {
+            pool.shutdownNow();
+            copies.shutdownNow();
+        }
+        return new Result(moved, errors);
+    }
+
+    private static int moveAll(Path dir, List<Move> group, boolean replay, Map<Path, String> errors, ProgressMeter meter) {
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            for (Move m : group) errors.put(m.from, "Nem hozható létre: " + dir + ": " + e.getMessage());
+            return 0;
+        }
+        int moved = 0;
+        for (Move m : group) {
+            if (Thread.currentThread().isInterrupted()) break;
+            if (Files.exists(m.to, LinkOption.NOFOLLOW_LINKS)) {
+                // a replay finds its own earlier moves here; otherwise the name was taken after planning
+                // (preview, queue), and a rename would silently replace that file
+                if (!replay || Files.exists(m.from, LinkOption.NOFOLLOW_LINKS)) errors.put(m.from, "A cél már létezik: " + m.to);
+                meter.item(m.from);
+                continue;
+            }
+            long start = System.nanoTime();
+            try {
+                Files.move(m.from, m.to, StandardCopyOption.ATOMIC_MOVE);
+                meter.record(RunStats.Op.MOVE, m.to, start, 0);
+                moved++;
+            } catch (AtomicMoveNotSupportedException e) {
+                // a store boundary the up-front check could not see, e.g. a mount point inside the target
+                moved += moveAcross(m, false, errors, meter);
+                continue;
+            } catch (IOException e) {
+                errors.put(m.from, e instanceof NoSuchFileException ? "Eltűnt a tervezés óta" : String.valueOf(e.getMessage()));
+            }
+            meter.item(m.from);
+        }
+        return moved;
+    }
+
+    /** One move to another store; returns 1 if it happened. */
+    private static int moveAcross(Move m, boolean replay, Map<Path, String> errors, ProgressMeter meter) {
+        meter.at(m.from);
+        try {
+            if (replay && Files.exists(m.to, LinkOption.NOFOLLOW_LINKS)) {
+                boolean finished = Files.exists(m.from, LinkOption.NOFOLLOW_LINKS) && CrossStoreMove.finish(m.from, m.to);
+                if (!finished && Files.exists(m.from, LinkOption.NOFOLLOW_LINKS)) errors.put(m.from, "A cél már létezik: " + m.to);
+                meter.item(m.from);
+                return finished ? 1 : 0;
+            }
+            long size = CrossStoreMove.move(m.from, m.to, meter);
+            meter.item(m.from, size);
+            return 1;
+        } catch (IOException e) {
+            errors.put(m.from, e instanceof NoSuchFileException ? "Eltűnt a tervezés óta" : String.valueOf(e.getMessage()));
+            meter.item(m.from);
+            return 0;
+        }
+    }
+
+    /** Collects moves and gives every target a name that is free at planning time. */
+    static final class Builder {
+        private final Journal.Kind kind;
+        private final Map<Path, DirIndex> dirs = new HashMap<>();
+        private final List<Move> moves = new ArrayList<>();
+        private int renamed;
+
+        Builder(Journal.Kind kind) {
+            this.kind = kind;
+        }
+
+        /**
+         * Plans moving {@code from} to {@code to}, or to {@code to}'s first free {@code _N}
+         * variant. A file that already has its target name stays where it is.
+         */
+        void add(Path from, Path to) throws IOException {
+            if (from.equals(to)) return;
+            DirIndex index = dirs.get(to.getParent());
+            if (index == null) {
+                index = DirIndex.list(to.getParent());
+                dirs.put(to.getParent(), index);
+            }
+            String name = index.claim(to.getFileName().toString());
+            if (!name.equals(to.getFileName().toString())) renamed++;
+            moves.add(new Move(from, to.resolveSibling(name)));
+        }
+
+        MovePlan build() {
+            return new MovePlan(kind, List.copyOf(moves), renamed, false);
+        }
+    }
+
+    /**
+     * The names in one target directory. Names are compared without case, so a plan made on a
+     * case-sensitive disk never overwrites on a case-insensitive one; {@code next} remembers
+     * the last suffix handed out per name, so a thousand {@code IMG_0001.jpg}s cost a thousand
+     * lookups, not half a million.
+     */
+    private static final class DirIndex {
+        private final Set<String> taken = new HashSet<>();
+        private final Map<String, Integer> next = new HashMap<>();
+
+        static DirIndex list(Path dir) throws IOException {
+            DirIndex index = new DirIndex();
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+                for (Path p : ds) index.taken.add(key(p.getFileName().toString()));
+            } catch (NoSuchFileException | NotDirectoryException e) {
+                // created when the plan runs
+            } catch (DirectoryIteratorException e) {
+                throw e.getCause();
+            }
+            return index;
+        }
+
+        String claim(String name) {
+            if (taken.add(key(name))) return name;
+            int dot = name.lastIndexOf('.');
+            String stem = dot > 0 ? name.substring(0, dot) : name;
+            String ext = dot > 0 ? name.substring(dot) : "";
+            String k = key(name);
+            int i = next.getOrDefault(k, 1);
+            String candidate;
+            while (!taken.add(key(candidate = stem + "_" + i + ext))) i++;
+            next.put(k, i + 1);
+            return candidate;
+        }
+
+        private static String key(String name) {
+            return name.toLowerCase(Locale.ROOT);
+        }
+    }
+}
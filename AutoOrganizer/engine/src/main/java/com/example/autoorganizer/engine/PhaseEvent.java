@@ -0,0 +1,21 @@
+package com.example.autoorganizer.engine;
+
+import jdk.jfr.*;
+
+/** One phase of a run, from {@link ProgressMeter#phase} to the next phase or the end of the run. */
+@Name("com.example.autoorganizer.Phase")
+@Label("Phase")
+@Category("DoomSorter")
+@StackTrace(false)
+final class PhaseEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Files")
+    long files;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+}
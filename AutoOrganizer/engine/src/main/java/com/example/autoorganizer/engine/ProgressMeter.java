@@ -0,0 +1,193 @@
+package com.example.autoorganizer.engine;
+
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress plumbing for long-running work. Workers only bump atomic counters and remember the
+ * current file; a shared timer turns that into one message and one progress value ten times a
+ * second, including files/s and MB/s. Nothing is formatted or posted per file.
+ *
+ * <p>The meter also keeps the {@link RunStats} of its run: every phase is timed when the next
+ * one starts, and file operations are recorded through {@link #record}.
+ */
+public final class ProgressMeter implements AutoCloseable {
+
+    public interface Sink {
+        void publish(String message, long done, long total);
+    }
+
+    static final long PUBLISH_MILLIS = 100;
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "DoomSorter-Progress");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Sink sink;
+    private final AtomicLong done = new AtomicLong();
+    private final AtomicLong total = new AtomicLong(-1);
+    private final AtomicLong bytes = new AtomicLong();
+    private volatile String phase = "";
+    private volatile Path current;
+    private volatile boolean cancelled;
+    private final ScheduledFuture<?> timer;
+    private final RunStats stats = new RunStats();
+    private String phaseName;
+    private long phaseStart;
+    private PhaseEvent phaseEvent;
+
+    private long lastNanos = System.nanoTime();
+    private long lastDone;
+    private long lastBytes;
+    private double filesPerSecond;
+    private double bytesPerSecond;
+
+    private ProgressMeter(Sink sink) {
+        this.sink = sink;
+        this.timer = TIMER.scheduleAtFixedRate(this::publish, PUBLISH_MILLIS, PUBLISH_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public static ProgressMeter start(Sink sink) {
+        return new ProgressMeter(sink);
+    }
+
+    /** A meter that reports nowhere, for callers without a UI. */
+    public static ProgressMeter silent() {
+        return new ProgressMeter((m, d, t) -> {
+        });
+    }
+
+    /**
+     * Asks the work reporting to this meter to stop: from now on every report throws
+     * {@link CancellationException}, so loops and worker pools end at their next file.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private void checkCancelled() {
+        if (cancelled) throw new CancellationException("Megszakítva");
+    }
+
+    /** Starts a new phase; a total below zero means unknown. Counters start over. */
+    ProgressMeter phase(String name, long total) {
+        checkCancelled();
+        endPhase();
+        phaseName = name;
+        phaseStart = System.nanoTime();
+        phaseEvent = new PhaseEvent();
+        phaseEvent.begin();
+        this.phase = name;
+        this.total.set(total);
+        this.done.set(0);
+        this.bytes.set(0);
+        this.current = null;
+        return this;
+    }
+
+    /** Renames the phase without resetting the counters. */
+    void label(String name) {
+        this.phase = name;
+    }
+
+    void addTotal(long n) {
+        total.accumulateAndGet(n, (t, x) -> t < 0 ? x : t + x);
+    }
+
+    /** Shows {@code p} as the current file without counting it. */
+    void at(Path p) {
+        checkCancelled();
+        current = p;
+    }
+
+    void item(Path p) {
+        checkCancelled();
+        current = p;
+        done.incrementAndGet();
+    }
+
+    void item(Path p, long size) {
+        checkCancelled();
+        current = p;
+        bytes.addAndGet(size);
+        done.incrementAndGet();
+    }
+
+    void bytes(long n) {
+        bytes.addAndGet(n);
+    }
+
+    /** Records one file operation that started at {@code startNanos} ({@link System#nanoTime}). */
+    void record(RunStats.Op op, Path p, long startNanos, long bytes) {
+        stats.record(op, p, System.nanoTime() - startNanos, bytes);
+    }
+
+    RunStats stats() {
+        return stats;
+    }
+
+    /** Phases are started from one thread at a time, the run's own, so this needs no lock. */
+    private void endPhase() {
+        if (phaseName == null) return;
+        stats.phase(phaseName, System.nanoTime() - phaseStart, done.get(), bytes.get());
+        phaseEvent.end();
+        if (phaseEvent.shouldCommit()) {
+            phaseEvent.phase = phaseName;
+            phaseEvent.files = done.get();
+            phaseEvent.bytes = bytes.get();
+            phaseEvent.commit();
+        }
+        phaseName = null;
+    }
+
+    long done() {
+        return done.get();
+    }
+
+    long bytesDone() {
+        return bytes.get();
+    }
+
+    /** Current throughput, e.g. {@code "310 fájl/s, 48.2 MB/s"}. */
+    synchronized String rate() {
+        String files = String.format(Locale.ROOT, "%.0f fájl/s", filesPerSecond);
+        return bytesPerSecond > 0 ? files + String.format(Locale.ROOT, ", %.1f MB/s", bytesPerSecond / (1 << 20)) : files;
+    }
+
+    @Override
+    public void close() {
+        timer.cancel(false);
+        endPhase();
+        publish();
+    }
+
+    private synchronized void publish() {
+        long now = System.nanoTime();
+        long d = done.get();
+        long b = bytes.get();
+        double seconds = (now - lastNanos) / 1e9;
+        if (seconds > 0) {
+            // smoothed, so a single slow file does not make the numbers jump
+            filesPerSecond = 0.7 * filesPerSecond + 0.3 * Math.max(0, d - lastDone) / seconds;
+            bytesPerSecond = 0.7 * bytesPerSecond + 0.3 * Math.max(0, b - lastBytes) / seconds;
+        }
+        lastNanos = now;
+        lastDone = d;
+        lastBytes = b;
+
+        long t = total.get();
+        StringBuilder sb = new StringBuilder(phase);
+        Path p = current;
+        if (p != null && p.getFileName() != null) sb.append(": ").append(p.getFileName());
+        sb.append(" (").append(d);
+        if (t >= 0) sb.append('/').append(t);
+        sb.append(", ").append(rate()).append(')');
+        long start = System.nanoTime();
+        sink.publish(sb.toString(), d, t < 0 ? -1 : t);
+        record(RunStats.Op.PROGRESS, null, start, 0);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.autoorganizer.engine;
+
+import java.util.List;
+
+/**
+ * One organizer rule as stored in {@code config.json}. Every condition that is set must hold;
+ * rules are tried in order and the first match decides the target folder. A rule without any
+ * condition catches everything that reaches it.
+ */
+public class Rule {
+
+    /** Folder below the organized directory the matching files go to. */
+    public String target;
+    /** Extensions without the dot, any case; an empty string matches files without one. */
+    public List<String> extensions;
+    /** Glob on the file name, case-insensitive, e.g. {@code IMG_*} or {@code *screenshot*}. */
+    public String name;
+    /** Regular expression on the file name. */
+    public String regex;
+    public Long minSize;
+    public Long maxSize;
+    /** Age by modification time. */
+    public Integer minAgeDays;
+    public Integer maxAgeDays;
+    /** Only files below this folder, relative to the organized directory. */
+    public String under;
+    /** Type sniffed from the first bytes, e.g. {@code application/pdf} or {@code image/*}. */
+    public String contentType;
+
+    public Rule() {
+    }
+
+    public Rule(String target, List<String> extensions) {
+        this.target = target;
+        this.extensions = extensions;
+    }
+}
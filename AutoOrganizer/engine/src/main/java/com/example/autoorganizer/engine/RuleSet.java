@@ -0,0 +1,429 @@
+package com.example.autoorganizer.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * The organizer rules compiled for one directory. Rules that only list extensions (all of the
+ * old {@code categoryMap}) go into one case-insensitive hash table; simple name globs such as
+ * {@code IMG_*} or {@code *scan*} share one Aho–Corasick automaton, so a name is read once no
+ * matter how many of them there are. Only rules that come before the table hit are evaluated,
+ * and the first bytes of a file are read only when such a rule asks for a content type.
+ *
+ * <p>{@link Matcher}s keep all their scratch state, so matching a file allocates nothing beyond
+ * its name; use one per thread.
+ */
+final class RuleSet {
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private final String[] targets;
+    private final ExtTable extOnly;
+    private final int catchAll;
+    private final Compiled[] complex;
+    private final NameAutomaton names;
+    private final Pattern[] patterns;
+
+    /**
+     * A rule with more than extensions. Conditions that are not set are null, -1 or the neutral
+     * bound; {@code glob} and {@code regex} index into the patterns, {@code literal} into the automaton.
+     */
+    private record Compiled(int index, ExtTable exts, int literal, int glob, int regex, long minSize, long maxSize,
+                            long minAgeMillis, long maxAgeMillis, Path under, String contentType, boolean typePrefix) {
+    }
+
+    private RuleSet(String[] targets, ExtTable extOnly, int catchAll, Compiled[] complex, NameAutomaton names, Pattern[] patterns) {
+        this.targets = targets;
+        this.extOnly = extOnly;
+        this.catchAll = catchAll;
+        this.complex = complex;
+        this.names = names;
+        this.patterns = patterns;
+    }
+
+    /**
+     * Compiles {@code rules} followed by the extension map, whose {@code "*"} entry becomes the
+     * last rule. {@code base} is the directory being organized.
+     */
+    static RuleSet compile(List<Rule> rules, Map<String, String> categoryMap, Path base) {
+        List<Rule> all = new ArrayList<>(rules == null ? List.of() : rules);
+        String fallback = null;
+        for (var e : categoryMap.entrySet()) {
+            if (e.getKey().equals("*")) fallback = e.getValue();
+            else all.add(new Rule(e.getValue(), List.of(e.getKey())));
+        }
+        if (fallback != null) all.add(new Rule(fallback, null));
+
+        String[] targets = new String[all.size()];
+        ExtTable extOnly = new ExtTable();
+        List<Compiled> complex = new ArrayList<>();
+        NameAutomaton.Builder names = new NameAutomaton.Builder();
+        List<Pattern> patterns = new ArrayList<>();
+        int catchAll = Integer.MAX_VALUE;
+        for (int i = 0; i < all.size(); i++) {
+            Rule r = all.get(i);
+            targets[i] = r.target;
+            if (r.target == null || r.target.isBlank()) throw new IllegalArgumentException("Szabály cél mappa nélkül: #" + (i + 1));
+            boolean hasExts = r.extensions != null && !r.extensions.isEmpty();
+            // "*" names every file, it is no condition
+            String nameGlob = r.name != null && r.name.chars().allMatch(c -> c == '*') ? null : r.name;
+            boolean other = nameGlob != null || r.regex != null || r.minSize != null || r.maxSize != null || r.minAgeDays != null
+                    || r.maxAgeDays != null || r.under != null || r.contentType != null;
+            if (!hasExts && !other) {
+                catchAll = Math.min(catchAll, i);
+                continue;
+            }
+            if (!other) {
+                for (String ext : r.extensions) extOnly.putIfAbsent(ext, i);
+                continue;
+            }
+            ExtTable exts = null;
+            if (hasExts) {
+                exts = new ExtTable();
+                for (String ext : r.extensions) exts.putIfAbsent(ext, i);
+            }
+            int literal = -1;
+            int glob = -1;
+            int regex = -1;
+            if (nameGlob != null) {
+                literal = names.add(nameGlob);
+                if (literal < 0) {
+                    patterns.add(Pattern.compile(globToRegex(nameGlob), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE));
+                    glob = patterns.size() - 1;
+                }
+            }
+            if (r.regex != null) {
+                patterns.add(Pattern.compile(r.regex));
+                regex = patterns.size() - 1;
+            }
+            String type = r.contentType == null ? null : r.contentType.toLowerCase(Locale.ROOT);
+            boolean prefix = type != null && type.endsWith("/*");
+            complex.add(new Compiled(i, exts, literal, glob, regex,
+                    r.minSize == null ? Long.MIN_VALUE : r.minSize, r.maxSize == null ? Long.MAX_VALUE : r.maxSize,
+                    r.minAgeDays == null ? Long.MIN_VALUE : r.minAgeDays * DAY_MILLIS,
+                    r.maxAgeDays == null ? Long.MAX_VALUE : r.maxAgeDays * DAY_MILLIS,
+                    r.under == null ? null : base.resolve(r.under).normalize(),
+                    prefix ? type.substring(0, type.length() - 1) : type, prefix));
+        }
+        return new RuleSet(targets, extOnly, catchAll, complex.toArray(new Compiled[0]), names.build(), patterns.toArray(new Pattern[0]));
+    }
+
+    /** Every folder a rule can send files to, relative to the organized directory. */
+    Set<String> targets() {
+        return new LinkedHashSet<>(Arrays.asList(targets));
+    }
+
+    Matcher matcher() {
+        return new Matcher();
+    }
+
+    /** Per-thread evaluation state. */
+    final class Matcher {
+        private final java.util.regex.Matcher[] regex = new java.util.regex.Matcher[patterns.length];
+        private final long[] literalHits = new long[(names.patterns() + 63) / 64];
+        private final ByteBuffer head = ByteBuffer.allocate(ContentType.HEAD_BYTES);
+        private boolean namesScanned;
+        private String type;
+        private boolean sniffed;
+
+        private Matcher() {
+            for (int i = 0; i < regex.length; i++) regex[i] = patterns[i].matcher("");
+        }
+
+        /** Target folder for the file, or {@code null} if no rule matches. */
+        String match(Path p, BasicFileAttributes attrs) {
+            String name = p.getFileName().toString();
+            int dot = name.lastIndexOf('.');
+            int extFrom = dot >= 0 ? dot + 1 : name.length();
+            int best = Math.min(catchAll, extOnly.get(name, extFrom, name.length()));
+            namesScanned = false;
+            sniffed = false;
+            type = null;
+            for (Compiled c : complex) {
+                if (c.index >= best) break;
+                if (matches(c, p, name, extFrom, attrs)) {
+                    best = c.index;
+                    break;
+                }
+            }
+            return best == Integer.MAX_VALUE ? null : targets[best];
+        }
+
+        private boolean matches(Compiled c, Path p, String name, int extFrom, BasicFileAttributes attrs) {
+            // cheapest checks first, the file is only opened for the content type
+            long size = attrs.size();
+            if (size < c.minSize || size > c.maxSize) return false;
+            if (c.minAgeMillis != Long.MIN_VALUE || c.maxAgeMillis != Long.MAX_VALUE) {
+                long age = System.currentTimeMillis() - attrs.lastModifiedTime().toMillis();
+                if (age < c.minAgeMillis || age > c.maxAgeMillis) return false;
+            }
+            if (c.exts != null && c.exts.get(name, extFrom, name.length()) == Integer.MAX_VALUE) return false;
+            if (c.under != null && !p.startsWith(c.under)) return false;
+            if (c.literal >= 0) {
+                if (!namesScanned) {
+                    names.scan(name, literalHits);
+                    namesScanned = true;
+                }
+                if ((literalHits[c.literal >>> 6] & (1L << c.literal)) == 0) return false;
+            }
+            if (c.glob >= 0 && !regex[c.glob].reset(name).matches()) return false;
+            if (c.regex >= 0 && !regex[c.regex].reset(name).matches()) return false;
+            if (c.contentType != null) {
+                if (!sniffed) {
+                    type = sniff(p);
+                    sniffed = true;
+                }
+                if (type == null) return false;
+                return c.typePrefix ? type.startsWith(c.contentType) : type.equals(c.contentType);
+            }
+            return true;
+        }
+
+        private String sniff(Path p) {
+            head.clear();
+            try (FileChannel ch = FileChannel.open(p, StandardOpenOption.READ)) {
+                while (head.hasRemaining() && ch.read(head) > 0) {
+                }
+            } catch (IOException e) {
+                return null;
+            }
+            return ContentType.of(head.array(), head.position());
+        }
+    }
+
+    /** Open-addressing table from extension to the lowest rule index, looked up on a slice of the name. */
+    static final class ExtTable {
+        private String[] keys = new String[16];
+        private int[] values = new int[16];
+        private int size;
+
+        void putIfAbsent(String ext, int value) {
+            String e = (ext.startsWith(".") ? ext.substring(1) : ext).toLowerCase(Locale.ROOT);
+            if (get(e, 0, e.length()) != Integer.MAX_VALUE) return;
+            if ((size + 1) * 2 > keys.length) grow();
+            insert(e, value);
+            size++;
+        }
+
+        /** Rule index for {@code s[from, to)} ignoring case, or {@link Integer#MAX_VALUE}. */
+        int get(String s, int from, int to) {
+            int mask = keys.length - 1;
+            int len = to - from;
+            for (int i = hash(s, from, to) & mask; keys[i] != null; i = (i + 1) & mask) {
+                String k = keys[i];
+                if (k.length() == len && s.regionMatches(true, from, k, 0, len)) return values[i];
+            }
+            return Integer.MAX_VALUE;
+        }
+
+        private void insert(String key, int value) {
+            int mask = keys.length - 1;
+            int i = hash(key, 0, key.length()) & mask;
+            while (keys[i] != null) i = (i + 1) & mask;
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        private void grow() {
+            String[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new String[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) insert(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        private static int hash(String s, int from, int to) {
+            int h = 0;
+            for (int i = from; i < to; i++) h = 31 * h + Character.toLowerCase(s.charAt(i));
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /**
+     * Aho–Corasick over the literal part of globs with at most a leading and a trailing
+     * {@code *}. One pass over a name marks every glob that matches it.
+     */
+    static final class NameAutomaton {
+        private final char[][] edges;    // per state, sorted outgoing chars
+        private final int[][] next;      // per state, target state for each char in edges
+        private final int[] fail;
+        private final int[][] output;    // per state, patterns ending here (including via fail links)
+        private final int[] length;
+        private final boolean[] atStart;
+        private final boolean[] atEnd;
+
+        private NameAutomaton(char[][] edges, int[][] next, int[] fail, int[][] output, int[] length, boolean[] atStart, boolean[] atEnd) {
+            this.edges = edges;
+            this.next = next;
+            this.fail = fail;
+            this.output = output;
+            this.length = length;
+            this.atStart = atStart;
+            this.atEnd = atEnd;
+        }
+
+        int patterns() {
+            return length.length;
+        }
+
+        void scan(String name, long[] hits) {
+            Arrays.fill(hits, 0);
+            if (length.length == 0) return;
+            int n = name.length();
+            int state = 0;
+            for (int i = 0; i < n; i++) {
+                char c = Character.toLowerCase(name.charAt(i));
+                int to;
+                while ((to = step(state, c)) < 0 && state != 0) state = fail[state];
+                state = Math.max(to, 0);
+                for (int pat : output[state]) {
+                    int start = i - length[pat] + 1;
+                    if ((!atStart[pat] || start == 0) && (!atEnd[pat] || i == n - 1)) hits[pat >>> 6] |= 1L << pat;
+                }
+            }
+        }
+
+        private int step(int state, char c) {
+            int k = Arrays.binarySearch(edges[state], c);
+            return k >= 0 ? next[state][k] : -1;
+        }
+
+        static final class Builder {
+            private final List<Map<Character, Integer>> trie = new ArrayList<>(List.of(new TreeMap<>()));
+            private final List<List<Integer>> ends = new ArrayList<>(List.of(new ArrayList<>()));
+            private final List<Integer> lengths = new ArrayList<>();
+            private final List<Boolean> starts = new ArrayList<>();
+            private final List<Boolean> finishes = new ArrayList<>();
+
+            /** Adds a glob and returns its pattern number, or -1 if it needs a regex. */
+            int add(String glob) {
+                for (char c : glob.toCharArray()) {
+                    if ("?[]{}\\".indexOf(c) >= 0) return -1;
+                }
+                boolean leading = glob.startsWith("*");
+                boolean trailing = glob.endsWith("*") && glob.length() > (leading ? 1 : 0);
+                String literal = glob.substring(leading ? 1 : 0, glob.length() - (trailing ? 1 : 0));
+                if (literal.isEmpty() || literal.indexOf('*') >= 0) return -1;
+                int state = 0;
+                for (char c : literal.toLowerCase(Locale.ROOT).toCharArray()) {
+                    Integer to = trie.get(state).get(c);
+                    if (to == null) {
+                        to = trie.size();
+                        trie.add(new TreeMap<>());
+                        ends.add(new ArrayList<>());
+                        trie.get(state).put(c, to);
+                    }
+                    state = to;
+                }
+                int pat = lengths.size();
+                lengths.add(literal.length());
+                starts.add(!leading);
+                finishes.add(!trailing);
+                ends.get(state).add(pat);
+                return pat;
+            }
+
+            NameAutomaton build() {
+                int states = trie.size();
+                char[][] edges = new char[states][];
+                int[][] next = new int[states][];
+                for (int s = 0; s < states; s++) {
+                    Map<Character, Integer> m = trie.get(s);
+                    edges[s] = new char[m.size()];
+                    next[s] = new int[m.size()];
+                    int k = 0;
+                    for (var e : m.entrySet()) {
+                        edges[s][k] = e.getKey();
+                        next[s][k++] = e.getValue();
+                    }
+                }
+                int[] fail = new int[states];
+                List<List<Integer>> out = new ArrayList<>();
+                for (List<Integer> e : ends) out.add(new ArrayList<>(e));
+                ArrayDeque<Integer> queue = new ArrayDeque<>();
+                for (int child : next[0]) queue.add(child);
+                while (!queue.isEmpty()) {
+                    int s = queue.poll();
+                    for (int k = 0; k < edges[s].length; k++) {
+                        char c = edges[s][k];
+                        int child = next[s][k];
+                        int f = fail[s];
+                        int to;
+                        while ((to = indexOf(edges[f], next[f], c)) < 0 && f != 0) f = fail[f];
+                        fail[child] = Math.max(to, 0);
+                        out.get(child).addAll(out.get(fail[child]));
+                        queue.add(child);
+                    }
+                }
+                int[][] output = new int[states][];
+                for (int s = 0; s < states; s++) output[s] = out.get(s).stream().mapToInt(Integer::intValue).toArray();
+                int n = lengths.size();
+                int[] length = new int[n];
+                boolean[] atStart = new boolean[n];
+                boolean[] atEnd = new boolean[n];
+                for (int i = 0; i < n; i++) {
+                    length[i] = lengths.get(i);
+                    atStart[i] = starts.get(i);
+                    atEnd[i] = finishes.get(i);
+                }
+                return new NameAutomaton(edges, next, fail, output, length, atStart, atEnd);
+            }
+
+            private static int indexOf(char[] edges, int[] next, char c) {
+                int k = Arrays.binarySearch(edges, c);
+                return k >= 0 ? next[k] : -1;
+            }
+        }
+    }
+
+    /** Globs that the automaton cannot take ({@code ?}, classes, alternatives, inner {@code *}). */
+    static String globToRegex(String glob) {
+        StringBuilder sb = new StringBuilder();
+        boolean inClass = false;
+        int braces = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*' -> sb.append(inClass ? "*" : ".*");
+                case '?' -> sb.append(inClass ? "?" : ".");
+                case '[' -> {
+                    inClass = true;
+                    sb.append('[');
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '!') {
+                        sb.append('^');
+                        i++;
+                    }
+                }
+                case ']' -> {
+                    inClass = false;
+                    sb.append(']');
+                }
+                case '{' -> {
+                    braces++;
+                    sb.append("(?:");
+                }
+                case '}' -> {
+                    braces--;
+                    sb.append(')');
+                }
+                case ',' -> sb.append(braces > 0 ? "|" : ",");
+                case '\\' -> {
+                    if (i + 1 < glob.length()) sb.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+                }
+                default -> {
+                    if (inClass || Character.isLetterOrDigit(c)) sb.append(c);
+                    else sb.append('\\').append(c);
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.autoorganizer.engine;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Everything stored in {@code ~/.doomsorter/config.json}, shared by the GUI and the CLI.
+ * Fields missing from an older file keep the defaults below.
+ */
+public class Settings {
+
+    public static final Path DEFAULT_DIR = Path.of(System.getProperty("user.home"), ".doomsorter");
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    public Map<String, String> categoryMap = new LinkedHashMap<>();
+    public List<Rule> rules = new ArrayList<>(); // tried in order before categoryMap
+    public boolean backupEnabled = false;
+    public String backupSource = "";
+    public String backupTarget = "";
+    public int backupHour = 20;
+    public int backupMinute = 0;
+    public Backup.Mode backupMode = Backup.Mode.FULL;
+    public boolean backupPropagateDeletes = false;
+    public boolean backupDigests = false;
+    public boolean backupVerify = false; // read the target back after FULL and INCREMENTAL runs; hashing on the way rules out transferTo
+    public int backupKeepSnapshots = 30;
+    public int backupThreads = 4;
+    public int backupBandwidthMBps = 0; // 0 = unlimited
+    public long watchSettleMillis = 2000;
+    public int moveThreads = 4; // target directories moved in parallel
+    public int crossStoreThreads = 2; // files copied, verified and deleted at once when the target is on another disk
+    public int tasksPerDisk = 1; // GUI tasks running at once on one disk, the rest wait in the queue
+    public int hashThreads = 4;
+    public int similarDistance = 10; // differing dHash bits (of 64) that still count as the same picture
+    public Map<String, Integer> hashThreadsPerStore = new LinkedHashMap<>(); // FileStore name -> readers
+    public List<String> excludeGlobs = new ArrayList<>(FileScanner.DEFAULT_EXCLUDES);
+    public int scanThreads = 1;
+
+    public static Settings defaultSettings() {
+        Settings s = new Settings();
+        s.categoryMap.put("jpg", "Pictures");
+        s.categoryMap.put("jpeg", "Pictures");
+        s.categoryMap.put("png", "Pictures");
+        s.categoryMap.put("gif", "Pictures");
+        s.categoryMap.put("mp4", "Videos");
+        s.categoryMap.put("mov", "Videos");
+        s.categoryMap.put("mkv", "Videos");
+        s.categoryMap.put("pdf", "Docs");
+        s.categoryMap.put("docx", "Docs");
+        s.categoryMap.put("xlsx", "Docs");
+        s.categoryMap.put("zip", "Archives");
+        s.categoryMap.put("rar", "Archives");
+        s.categoryMap.put("*", "Misc");
+        return s;
+    }
+
+    /** Reads {@code file}; returns {@code null} if it is missing or unreadable. */
+    public static Settings load(Path file) {
+        if (!Files.exists(file)) return null;
+        try (Reader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return GSON.fromJson(r, Settings.class);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public void save(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            GSON.toJson(this, w);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.autoorganizer.engine;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Groups images whose perceptual hashes are at most a given number of bits apart. The distinct
+ * hashes go into a BK-tree, so finding the neighbours of one hash visits only the subtrees
+ * whose distance band can hold a match instead of every other image. Groups are the connected
+ * components of "is within the threshold of", so a chain of small edits stays one group.
+ */
+public final class SimilarImages {
+
+    public record Image(Path path, long hash, long size) {
+    }
+
+    /** Images in path order. */
+    public record Group(List<Image> images) {
+    }
+
+    /** Similar groups, largest first, and the images that could not be decoded. */
+    public record Result(List<Group> groups, Map<Path, String> errors) {
+    }
+
+    private SimilarImages() {
+    }
+
+    /** {@code byHash}: images grouped by their exact dHash, as {@link HashEngine} returns them. */
+    static List<Group> group(Map<Long, List<Path>> byHash, Map<Path, Long> sizes, int maxDistance, ProgressMeter meter) {
+        long[] hashes = new long[byHash.size()];
+        List<List<Path>> files = new ArrayList<>(byHash.size());
+        BkTree tree = new BkTree();
+        for (var e : byHash.entrySet()) {
+            hashes[files.size()] = e.getKey();
+            tree.add(e.getKey(), files.size());
+            files.add(e.getValue());
+        }
+
+        meter.phase("Hasonlók keresése", hashes.length);
+        int[] parent = new int[hashes.length];
+        for (int i = 0; i < parent.length; i++) parent[i] = i;
+        for (int i = 0; i < hashes.length; i++) {
+            int from = i;
+            tree.near(hashes[i], maxDistance, j -> union(parent, from, j));
+            meter.item(files.get(i).get(0));
+        }
+
+        Map<Integer, List<Image>> components = new HashMap<>();
+        for (int i = 0; i < hashes.length; i++) {
+            List<Image> images = components.computeIfAbsent(find(parent, i), k -> new ArrayList<>());
+            for (Path p : files.get(i)) images.add(new Image(p, hashes[i], sizes.get(p)));
+        }
+        List<Group> groups = new ArrayList<>();
+        for (List<Image> images : components.values()) {
+            if (images.size() < 2) continue;
+            images.sort(Comparator.comparing(Image::path));
+            groups.add(new Group(List.copyOf(images)));
+        }
+        groups.sort(Comparator.comparingInt((Group g) -> g.images().size()).reversed());
+        return groups;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int ra = find(parent, a), rb = find(parent, b);
+        if (ra != rb) parent[Math.max(ra, rb)] = Math.min(ra, rb);
+    }
+
+    /**
+     * Burkhard-Keller tree under Hamming distance. Each child hangs off its parent by its
+     * distance to it; by the triangle inequality, matches within {@code d} of a query that is
+     * {@code k} from a node can only sit under children numbered {@code k - d} to {@code k + d}.
+     * Children are kept in small parallel arrays: a node rarely has more than a dozen.
+     */
+    static final class BkTree {
+
+        private static final class Node {
+            final long hash;
+            final int id;
+            byte[] distances = new byte[0];
+            Node[] children = new Node[0];
+
+            Node(long hash, int id) {
+                this.hash = hash;
+                this.id = id;
+            }
+
+            Node child(int distance) {
+                for (int i = 0; i < distances.length; i++) if (distances[i] == distance) return children[i];
+                return null;
+            }
+
+            void add(int distance, Node n) {
+                int k = distances.length;
+                distances = Arrays.copyOf(distances, k + 1);
+                children = Arrays.copyOf(children, k + 1);
+                distances[k] = (byte) distance;
+                children[k] = n;
+            }
+        }
+
+        private Node root;
+
+        /** Adds a hash not added before. */
+        void add(long hash, int id) {
+            Node n = new Node(hash, id);
+            if (root == null) {
+                root = n;
+                return;
+            }
+            Node at = root;
+            while (true) {
+                int d = ImageHash.distance(hash, at.hash);
+                Node next = at.child(d);
+                if (next == null) {
+                    at.add(d, n);
+                    return;
+                }
+                at = next;
+            }
+        }
+
+        void near(long hash, int maxDistance, IntConsumer hit) {
+            if (root == null) return;
+            Deque<Node> todo = new ArrayDeque<>();
+            todo.push(root);
+            while (!todo.isEmpty()) {
+                Node n = todo.pop();
+                int d = ImageHash.distance(hash, n.hash);
+                if (d <= maxDistance) hit.accept(n.id);
+                for (int i = 0; i < n.distances.length; i++) {
+                    if (Math.abs(n.distances[i] - d) <= maxDistance) todo.push(n.children[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.autoorganizer.engine;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Deduplicating snapshot backups. Files are cut into content-defined chunks (gear rolling hash),
+ * every chunk is stored once under its SHA-256 in {@code chunks/}, and each run writes a
+ * snapshot index in {@code snapshots/} that lists the chunks of every file. Unchanged files
+ * reuse the chunk list of the previous snapshot without being read. Chunks and the index are
+ * forced to the device before they are renamed into place, so an index never names a chunk
+ * that a power loss could take back.
+ */
+final class SnapshotStore {
+
+    static final String DIR_NAME = ".doomsorter-store";
+    private static final int MAGIC = 0x44535353; // "DSSS"
+    private static final int VERSION = 1;
+    private static final int MIN_CHUNK = 16 * 1024;
+    private static final int MAX_CHUNK = 256 * 1024;
+    private static final long CUT_MASK = (1L << 16) - 1; // ~64 KB average chunk
+    private static final long[] GEAR = new long[256];
+    private static final DateTimeFormatter NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    static {
+        Random r = new Random(0x5eed);
+        for (int i = 0; i < GEAR.length; i++) GEAR[i] = r.nextLong();
+    }
+
+    record FileEntry(String path, long size, long mtime, List<Digest> chunks) {
+    }
+
+    private final Path root;
+    private final Path chunkDir;
+    private final Path snapshotDir;
+
+    SnapshotStore(Path target) {
+        root = target.resolve(DIR_NAME);
+        chunkDir = root.resolve("chunks");
+        snapshotDir = root.resolve("snapshots");
+    }
+
+    /** Snapshot names, oldest first. */
+    List<String> snapshots() throws IOException {
+        if (!Files.isDirectory(snapshotDir)) return List.of();
+        try (Stream<Path> s = Files.list(snapshotDir)) {
+            return s.map(p -> p.getFileName().toString())
+                    .filter(n -> n.endsWith(".snap"))
+                    .map(n -> n.substring(0, n.length() - ".snap".length()))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    Backup.Summary backup(Path src, FileScanner scanner, int keep, ProgressMeter meter)
+            throws IOException, InterruptedException {
+        meter.phase("Snapshot", -1);
+        Files.createDirectories(chunkDir);
+        Files.createDirectories(snapshotDir);
+        Set<Digest> known = listChunks();
+        Map<String, FileEntry> previous = new HashMap<>();
+        List<String> existing = snapshots();
+        if (!existing.isEmpty()) {
+            for (FileEntry e : readSnapshot(existing.get(existing.size() - 1))) previous.put(e.path(), e);
+        }
+
+        List<FileEntry> entries = new ArrayList<>();
+        long changed = 0, unchanged = 0, written = 0;
+        Map<Path, String> errors = new TreeMap<>();
+        Path rootAbs = root.toAbsolutePath().normalize();
+        MessageDigest md = FileHasher.newSha256();
+        byte[] buf = new byte[MAX_CHUNK];
+        try (FileScanner.Feed feed = scanner.feed(src, 1024)) {
+            FileScanner.Entry entry;
+            while ((entry = feed.take()) != null) {
+                if (entry.path().toAbsolutePath().normalize().startsWith(rootAbs)) continue;
+                String rel = src.relativize(entry.path()).toString().replace(src.getFileSystem().getSeparator(), "/");
+                long size = entry.attrs().size();
+                long mtime = entry.attrs().lastModifiedTime().to(TimeUnit.NANOSECONDS);
+                FileEntry old = previous.get(rel);
+                if (old != null && old.size() == size && old.mtime() == mtime) {
+                    entries.add(old);
+                    unchanged++;
+                    meter.item(entry.path());
+                    continue;
+                }
+                List<Digest> chunks = new ArrayList<>();
+                long start = System.nanoTime();
+                InputStream in;
+                try {
+                    in = Files.newInputStream(entry.path());
+                } catch (IOException e) {
+                    // locked, no permission or gone since the scan: not in this snapshot, the rest is
+                    errors.put(entry.path(), String.valueOf(e.getMessage()));
+                    continue;
+                }
+                try (in) {
+                    Chunker chunker = new Chunker(in);
+                    int len;
+                    while ((len = chunker.next(buf)) > 0) {
+                        md.update(buf, 0, len);
+                        Digest d = Digest.of(md.digest());
+                        if (known.add(d)) {
+                            writeChunk(d, buf, len);
+                            written += len;
+                        }
+                        chunks.add(d);
+                    }
+                }
+                meter.record(RunStats.Op.READ, entry.path(), start, size); // chunking, with the writes of new chunks
+                entries.add(new FileEntry(rel, size, mtime, chunks));
+                changed++;
+                meter.item(entry.path(), size);
+            }
+            for (Path p : feed.failed()) errors.put(p, "A bejárás nem tudta olvasni");
+        }
+        writeSnapshot(LocalDateTime.now().format(NAME), entries);
+        long pruned = prune(keep, meter);
+        return new Backup.Summary(changed, unchanged, pruned, written, null, errors);
+    }
+
+    /** Rebuilds every file of {@code snapshot}, or with {@code path} set that file or folder, below {@code target}. */
+    long restore(String snapshot, String path, Path target, ProgressMeter meter) throws IOException {
+        List<FileEntry> entries = readSnapshot(snapshot).stream().filter(e -> Backup.selected(e.path(), path)).toList();
+        meter.phase("Visszaállítás", entries.size());
+        for (FileEntry e : entries) {
+            Path out = target.resolve(e.path());
+            Files.createDirectories(out.getParent());
+            try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(out), 1 << 16)) {
+                for (Digest d : e.chunks()) Files.copy(chunkPath(d), os);
+            }
+            Files.setLastModifiedTime(out, FileTime.from(e.mtime(), TimeUnit.NANOSECONDS));
+            meter.item(out, e.size());
+        }
+        return entries.size();
+    }
+
+    /**
+     * Deletes all but the newest {@code keep} snapshots, then every chunk that no remaining
+     * snapshot references. Returns the number of snapshots removed.
+     */
+    long prune(int keep, ProgressMeter meter) throws IOException {
+        List<String> all = snapshots();
+        long removed = 0;
+        meter.phase("Régi snapshotok törlése", -1);
+        for (int i = 0; i < all.size() - Math.max(1, keep); i++) {
+            Path snap = snapshotDir.resolve(all.get(i) + ".snap");
+            meter.item(snap);
+            Files.deleteIfExists(snap);
+            removed++;
+        }
+        Set<Digest> live = new HashSet<>();
+        for (String s : snapshots()) {
+            for (FileEntry e : readSnapshot(s)) live.addAll(e.chunks());
+        }
+        for (Digest d : listChunks()) {
+            if (!live.contains(d)) Files.deleteIfExists(chunkPath(d));
+        }
+        return removed;
+    }
+
+    /** Splits a stream at content-defined cut points, so an insertion only changes the chunks around it. */
+    static final class Chunker {
+        private final InputStream in;
+        private final byte[] buf = new byte[1 << 16];
+        private int pos;
+        private int limit;
+
+        Chunker(InputStream in) {
+            this.in = in;
+        }
+
+        /** Reads the next chunk into {@code out} (at least {@code MAX_CHUNK} long); returns 0 at end of stream. */
+        int next(byte[] out) throws IOException {
+            int n = 0;
+            long hash = 0;
+            while (n < MAX_CHUNK) {
+                if (pos == limit) {
+                    limit = in.read(buf, 0, buf.length);
+                    pos = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        break;
+                    }
+                }
+                int b = buf[pos++] & 0xff;
+                out[n++] = (byte) b;
+                hash = (hash << 1) + GEAR[b];
+                if (n >= MIN_CHUNK && (hash & CUT_MASK) == 0) break;
+            }
+            return n;
+        }
+    }
+
+    private Set<Digest> listChunks() throws IOException {
+        Set<Digest> known = new HashSet<>();
+        if (!Files.isDirectory(chunkDir)) return known;
+        HexFormat hex = HexFormat.of();
+        Files.walkFileTree(chunkDir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, java.nio.file.attribute.BasicFileAttributes attrs) {
+                String name = file.getFileName().toString();
+                if (name.length() == Digest.BYTES * 2) known.add(Digest.of(hex.parseHex(name)));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return known;
+    }
+
+    private Path chunkPath(Digest d) {
+        String hex = d.toHex();
+        return chunkDir.resolve(hex.substring(0, 2)).resolve(hex);
+    }
+
+    private void writeChunk(Digest d, byte[] buf, int len) throws IOException {
+        Path out = chunkPath(d);
+        Files.createDirectories(out.getParent());
+        Path tmp = out.resolveSibling(out.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer bb = ByteBuffer.wrap(buf, 0, len);
+            while (bb.hasRemaining()) ch.write(bb);
+            ch.force(true);
+        }
+        Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeSnapshot(String name, List<FileEntry> entries) throws IOException {
+        Path file = snapshotDir.resolve(name + ".snap");
+        Path tmp = snapshotDir.resolve(name + ".snap.tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (FileEntry e : entries) {
+                byte[] path = e.path().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(path.length);
+                out.write(path);
+                out.writeLong(e.size());
+                out.writeLong(e.mtime());
+                out.writeInt(e.chunks().size());
+                for (Digest d : e.chunks()) out.write(d.toBytes());
+            }
+            out.flush();
+            ch.force(true);
+        }
+        // the index only appears once complete, an interrupted run leaves nothing but unreferenced chunks
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    List<FileEntry> readSnapshot(String name) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotDir.resolve(name + ".snap")), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("Ismeretlen snapshot formátum: " + name);
+            int count = in.readInt();
+            List<FileEntry> entries = new ArrayList<>(count);
+            byte[] digest = new byte[Digest.BYTES];
+            for (int i = 0; i < count; i++) {
+                byte[] path = new byte[in.readInt()];
+                in.readFully(path);
+                long size = in.readLong();
+                long mtime = in.readLong();
+                int n = in.readInt();
+                List<Digest> chunks = new ArrayList<>(n);
+                for (int j = 0; j < n; j++) {
+                    in.readFully(digest);
+                    chunks.add(Digest.of(digest));
+                }
+                entries.add(new FileEntry(new String(path, StandardCharsets.UTF_8), size, mtime, chunks));
+            }
+            return entries;
+        }
+    }
+}
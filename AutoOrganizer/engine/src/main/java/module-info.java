@@ -0,0 +1,7 @@
+module com.example.autoorganizer.engine {
+    requires com.google.gson;
+    requires java.desktop; // ImageIO, for perceptual image hashes
+    requires jdk.jfr; // run statistics as Flight Recorder events
+    opens com.example.autoorganizer.engine to com.google.gson;
+    exports com.example.autoorganizer.engine;
+}
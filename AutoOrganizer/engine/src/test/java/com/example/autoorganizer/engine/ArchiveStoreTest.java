@@ -0,0 +1,123 @@
+package com.example.autoorganizer.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ArchiveStoreTest {
+
+    @TempDir
+    Path tmp;
+
+    /** A tree whose files span several 1 MB blocks, with one file larger than a block. */
+    private Path source() throws IOException {
+        Path src = tmp.resolve("src");
+        Random r = new Random(42);
+        write(src.resolve("big.bin"), 3 * (1 << 20) + 123, r);
+        for (int i = 0; i < 40; i++) write(src.resolve("photos/2020/img" + i + ".jpg"), 50_000 + i, r);
+        for (int i = 0; i < 40; i++) write(src.resolve("photos/2021/img" + i + ".jpg"), 60_000 + i, r);
+        write(src.resolve("docs/empty.txt"), 0, r);
+        write(src.resolve("docs/hosszú név ékezettel.txt"), 10, r);
+        write(src.resolve("docs/" + "x".repeat(120) + ".txt"), 20, r);
+        return src;
+    }
+
+    private static void write(Path p, int size, Random r) throws IOException {
+        byte[] b = new byte[size];
+        r.nextBytes(b);
+        Files.createDirectories(p.getParent());
+        Files.write(p, b);
+        Files.setLastModifiedTime(p, FileTime.fromMillis(1_600_000_000_000L + size));
+    }
+
+    private static Backup.Summary backup(Path src, Path dst) throws Exception {
+        return new ArchiveStore(dst).backup(src, new FileScanner(List.of()), 3, 0, ProgressMeter.silent());
+    }
+
+    /** Relative path to content of every file below {@code root}. */
+    private static Map<String, String> tree(Path root) throws IOException {
+        Map<String, String> files = new TreeMap<>();
+        if (!Files.isDirectory(root)) return files;
+        try (Stream<Path> s = Files.walk(root)) {
+            for (Path p : s.filter(Files::isRegularFile).toList()) {
+                files.put(root.relativize(p).toString(), FileHasher.sha256(p).toHex() + "@" + Files.getLastModifiedTime(p).toMillis());
+            }
+        }
+        return files;
+    }
+
+    @Test
+    void restoresTheWholeTree() throws Exception {
+        Path src = source(), dst = tmp.resolve("dst"), into = tmp.resolve("into");
+        Backup.Summary sum = backup(src, dst);
+        assertEquals(tree(src).size(), sum.copied());
+        assertEquals(0, sum.skipped());
+        assertTrue(sum.errors().isEmpty());
+
+        ArchiveStore store = new ArchiveStore(dst);
+        List<String> archives = store.archives();
+        assertEquals(1, archives.size());
+        assertEquals(tree(src).size(), store.restore(archives.get(0), null, into, ProgressMeter.silent()));
+        assertEquals(tree(src), tree(into));
+    }
+
+    @Test
+    void restoresASingleFileOrFolder() throws Exception {
+        Path src = source(), dst = tmp.resolve("dst");
+        backup(src, dst);
+        ArchiveStore store = new ArchiveStore(dst);
+        String name = store.archives().get(0);
+
+        Path one = tmp.resolve("one");
+        assertEquals(1, store.restore(name, "photos/2021/img7.jpg", one, ProgressMeter.silent()));
+        String rel = Path.of("photos", "2021", "img7.jpg").toString();
+        assertEquals(Map.of(rel, tree(src).get(rel)), tree(one));
+
+        Path folder = tmp.resolve("folder");
+        assertEquals(40, store.restore(name, "photos/2020/", folder, ProgressMeter.silent()));
+        assertEquals(tree(src.resolve("photos/2020")), tree(folder.resolve("photos/2020")));
+
+        Path big = tmp.resolve("big");
+        assertEquals(1, store.restore(name, "big.bin", big, ProgressMeter.silent()));
+        assertEquals(tree(src).get("big.bin"), tree(big).get("big.bin"));
+
+        Path docs = tmp.resolve("docs");
+        assertEquals(3, store.restore(name, "docs", docs, ProgressMeter.silent()));
+        assertEquals(tree(src.resolve("docs")), tree(docs.resolve("docs")));
+    }
+
+    @Test
+    void skipsFilesThatCannotBeOpened() throws Exception {
+        Path src = source(), dst = tmp.resolve("dst"), into = tmp.resolve("into");
+        Path locked = src.resolve("photos/2020/img3.jpg");
+        assumeTrue(Files.getFileStore(locked).supportsFileAttributeView("posix"));
+        Files.setPosixFilePermissions(locked, PosixFilePermissions.fromString("---------"));
+        try {
+            assumeTrue(!Files.isReadable(locked), "permissions are not enforced for this user");
+            Backup.Summary sum = backup(src, dst);
+            assertEquals(1, sum.skipped());
+            assertEquals(List.of(locked), List.copyOf(sum.errors().keySet()));
+
+            ArchiveStore store = new ArchiveStore(dst);
+            store.restore(store.archives().get(0), null, into, ProgressMeter.silent());
+        } finally {
+            Files.setPosixFilePermissions(locked, PosixFilePermissions.fromString("rw-------"));
+        }
+        Map<String, String> expected = tree(src);
+        expected.remove(src.relativize(locked).toString());
+        assertEquals(expected, tree(into));
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.autoorganizer.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackupManifestTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void entriesSurviveASaveAndALoad() throws IOException {
+        Digest digest = FileHasher.sha256("content".getBytes(StandardCharsets.UTF_8));
+        BackupManifest m = BackupManifest.load(tmp);
+        assertTrue(m.entries().isEmpty());
+        m.put("plain.txt", new BackupManifest.Entry(1, 2, null));
+        m.put("sub/hashed.txt", new BackupManifest.Entry(3, 4, digest));
+        m.put("sub/verified.txt", new BackupManifest.Entry(5, 6, digest, true));
+        m.save();
+
+        BackupManifest loaded = BackupManifest.load(tmp);
+        assertEquals(m.entries(), loaded.entries());
+        assertEquals(new BackupManifest.Entry(5, 6, digest, true), loaded.get("sub/verified.txt"));
+
+        // the loaded file must not stay open or mapped, or saving over it fails on Windows
+        loaded.remove("plain.txt");
+        loaded.save();
+        assertNull(BackupManifest.load(tmp).get("plain.txt"));
+    }
+
+    @Test
+    void readsVersionOneManifests() throws IOException {
+        Digest digest = FileHasher.sha256("content".getBytes(StandardCharsets.UTF_8));
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tmp.resolve(BackupManifest.FILE_NAME)))) {
+            out.writeInt(0x4453424d);
+            out.writeInt(1);
+            out.writeInt(2);
+            writeEntry(out, "a.txt", 10, 20, null);
+            writeEntry(out, "b.txt", 30, 40, digest);
+        }
+
+        BackupManifest m = BackupManifest.load(tmp);
+        assertEquals(new BackupManifest.Entry(10, 20, null, false), m.get("a.txt"));
+        assertEquals(new BackupManifest.Entry(30, 40, digest, false), m.get("b.txt"));
+    }
+
+    @Test
+    void aDamagedManifestCountsAsEmpty() throws IOException {
+        BackupManifest m = BackupManifest.load(tmp);
+        m.put("a.txt", new BackupManifest.Entry(1, 2, null));
+        m.save();
+        Path file = tmp.resolve(BackupManifest.FILE_NAME);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertTrue(BackupManifest.load(tmp).entries().isEmpty());
+    }
+
+    private static void writeEntry(DataOutputStream out, String path, long size, long mtime, Digest digest) throws IOException {
+        byte[] b = path.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+        out.writeLong(size);
+        out.writeLong(mtime);
+        out.writeByte(digest != null ? 1 : 0);
+        if (digest != null) out.write(digest.toBytes());
+    }
+}
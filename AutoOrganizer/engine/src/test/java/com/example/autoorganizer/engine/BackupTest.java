@@ -0,0 +1,165 @@
+package com.example.autoorganizer.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class BackupTest {
+
+    @TempDir
+    Path tmp;
+
+    private static Backup.Summary incremental(Path src, Path dst) throws Exception {
+        Backup.Options options = new Backup.Options(Backup.Mode.INCREMENTAL, true, false, false, 0, 2, 0);
+        return Backup.run(src, dst, new FileScanner(List.of()), options, ProgressMeter.silent());
+    }
+
+    private static Backup.Summary verified(Path src, Path dst) throws Exception {
+        Backup.Options options = new Backup.Options(Backup.Mode.INCREMENTAL, false, false, true, 0, 2, 0);
+        return Backup.run(src, dst, new FileScanner(List.of()), options, ProgressMeter.silent());
+    }
+
+    private static void write(Path p, String content) throws IOException {
+        Files.createDirectories(p.getParent());
+        Files.writeString(p, content);
+    }
+
+    @Test
+    void propagatesDeletesOfFilesGoneFromTheSource() throws Exception {
+        Path src = tmp.resolve("src"), dst = tmp.resolve("dst");
+        write(src.resolve("keep.txt"), "keep");
+        write(src.resolve("sub/gone.txt"), "gone");
+        incremental(src, dst);
+        assertTrue(Files.exists(dst.resolve("sub/gone.txt")));
+
+        Files.delete(src.resolve("sub/gone.txt"));
+        Backup.Summary sum = incremental(src, dst);
+        assertEquals(1, sum.deleted());
+        assertFalse(Files.exists(dst.resolve("sub/gone.txt")));
+        assertTrue(Files.exists(dst.resolve("keep.txt")));
+    }
+
+    @Test
+    void keepsFilesBelowAFolderThatCouldNotBeListed() throws Exception {
+        Path src = tmp.resolve("src"), dst = tmp.resolve("dst");
+        write(src.resolve("locked/a.txt"), "a");
+        write(src.resolve("open/b.txt"), "b");
+        incremental(src, dst);
+
+        Path locked = src.resolve("locked");
+        assumeTrue(Files.getFileStore(locked).supportsFileAttributeView("posix"));
+        Files.setPosixFilePermissions(locked, PosixFilePermissions.fromString("---------"));
+        try {
+            assumeTrue(!Files.isReadable(locked), "permissions are not enforced for this user");
+            Backup.Summary sum = incremental(src, dst);
+            assertEquals(0, sum.deleted());
+            assertTrue(Files.exists(dst.resolve("locked/a.txt")));
+        } finally {
+            Files.setPosixFilePermissions(locked, PosixFilePermissions.fromString("rwx------"));
+        }
+    }
+
+    @Test
+    void anUnreadableFileIsReportedAndTheRestIsBackedUp() throws Exception {
+        Path src = tmp.resolve("src"), dst = tmp.resolve("dst");
+        write(src.resolve("a.txt"), "a");
+        write(src.resolve("locked.txt"), "locked");
+        write(src.resolve("sub/b.txt"), "b");
+        Path locked = src.resolve("locked.txt");
+        assumeTrue(Files.getFileStore(locked).supportsFileAttributeView("posix"));
+        Files.setPosixFilePermissions(locked, PosixFilePermissions.fromString("---------"));
+        try {
+            assumeTrue(!Files.isReadable(locked), "permissions are not enforced for this user");
+            Backup.Summary sum = incremental(src, dst);
+            assertEquals(2, sum.copied());
+            assertEquals(List.of(locked), List.copyOf(sum.errors().keySet()));
+            assertEquals("b", Files.readString(dst.resolve("sub/b.txt")));
+        } finally {
+            Files.setPosixFilePermissions(locked, PosixFilePermissions.fromString("rw-------"));
+        }
+        // the manifest kept what was copied, so only the file that failed is copied now
+        Backup.Summary next = incremental(src, dst);
+        assertEquals(1, next.copied());
+        assertEquals("locked", Files.readString(dst.resolve("locked.txt")));
+    }
+
+    @Test
+    void aTargetDeletedByHandIsCopiedAgainWhenOnlyTheTimestampMoved() throws Exception {
+        Path src = tmp.resolve("src"), dst = tmp.resolve("dst");
+        write(src.resolve("a.txt"), "a");
+        Backup.Options withDigests = new Backup.Options(Backup.Mode.INCREMENTAL, true, true, false, 0, 2, 0);
+        Backup.run(src, dst, new FileScanner(List.of()), withDigests, ProgressMeter.silent());
+
+        Files.delete(dst.resolve("a.txt"));
+        Files.setLastModifiedTime(src.resolve("a.txt"), FileTime.fromMillis(1_600_000_000_000L));
+        Backup.Summary sum = Backup.run(src, dst, new FileScanner(List.of()), withDigests, ProgressMeter.silent());
+        assertEquals(1, sum.copied());
+        assertEquals("a", Files.readString(dst.resolve("a.txt")));
+    }
+
+    @Test
+    void aCancelledRunKeepsTheFilesItCopied() throws Exception {
+        Path src = tmp.resolve("src"), dst = tmp.resolve("dst");
+        int total = 100;
+        for (int i = 0; i < total; i++) write(src.resolve("f" + i + ".txt"), "x".repeat(1024));
+        // 20 KB/s: a file every 50 ms, so the first progress report comes long before the end
+        Backup.Options slow = new Backup.Options(Backup.Mode.INCREMENTAL, true, false, false, 0, 1, 20 * 1024);
+        ProgressMeter[] meter = new ProgressMeter[1];
+        meter[0] = ProgressMeter.start((message, done, all) -> {
+            if (done > 0) meter[0].cancel();
+        });
+        assertThrows(CancellationException.class, () -> Backup.run(src, dst, new FileScanner(List.of()), slow, meter[0]));
+        meter[0].close();
+
+        Map<String, BackupManifest.Entry> kept = BackupManifest.load(dst).entries();
+        assertFalse(kept.isEmpty());
+        assertTrue(kept.size() < total);
+        for (String key : kept.keySet()) assertEquals(1024, Files.size(dst.resolve(key)), key);
+        Backup.Summary next = incremental(src, dst);
+        assertEquals(total - kept.size(), next.copied());
+        assertEquals(kept.size(), next.skipped());
+    }
+
+    @Test
+    void failedPathsProtectThemselvesAndEverythingBelow() {
+        List<String> failed = List.of("photos/2020");
+        assertTrue(Backup.belowAny("photos/2020", failed));
+        assertTrue(Backup.belowAny("photos/2020/a.jpg", failed));
+        assertFalse(Backup.belowAny("photos/2021/a.jpg", failed));
+        assertFalse(Backup.belowAny("photos/20201/a.jpg", failed));
+        assertTrue(Backup.belowAny("anything.txt", List.of("")), "a source that failed as a whole protects everything");
+        assertFalse(Backup.belowAny("anything.txt", List.of()));
+    }
+
+    @Test
+    void verificationFindsATargetFileThatChangedAfterTheCopy() throws Exception {
+        Path src = tmp.resolve("src"), dst = tmp.resolve("dst");
+        write(src.resolve("a.txt"), "original");
+        write(src.resolve("big.bin"), "x".repeat((int) CopyEngine.LARGE_FILE + 10));
+        Backup.Summary first = verified(src, dst);
+        assertEquals(2, first.verification().checked());
+        assertTrue(first.verification().mismatches().isEmpty());
+
+        Files.writeString(dst.resolve("a.txt"), "tampered");
+        Files.setLastModifiedTime(dst.resolve("a.txt"), FileTime.fromMillis(0));
+        Backup.Summary second = verified(src, dst);
+        assertEquals(1, second.verification().unchanged(), "big.bin was verified before and is not read again");
+        assertEquals(List.of("a.txt"), List.copyOf(second.verification().mismatches().keySet()));
+
+        Backup.Summary third = verified(src, dst);
+        assertEquals(1, third.copied(), "a mismatch drops out of the manifest and is copied again");
+        assertEquals("original", Files.readString(dst.resolve("a.txt")));
+        assertTrue(third.verification().mismatches().isEmpty());
+    }
+}
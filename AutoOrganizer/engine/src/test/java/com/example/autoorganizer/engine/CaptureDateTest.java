@@ -0,0 +1,128 @@
+package com.example.autoorganizer.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CaptureDateTest {
+
+    private static final long QUICKTIME_EPOCH = 2_082_844_800L;
+
+    @TempDir
+    Path tmp;
+
+    /**
+     * A TIFF structure: IFD0 with DateTime and a pointer to the Exif IFD, which holds
+     * DateTimeOriginal unless {@code original} is null.
+     */
+    private static byte[] tiff(ByteOrder order, String dateTime, String original) {
+        ByteBuffer b = ByteBuffer.allocate(96).order(order);
+        b.put(order == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M').put(b.get(0)).putShort((short) 42).putInt(8);
+        b.putShort((short) 2);
+        b.putShort((short) 0x0132).putShort((short) 2).putInt(20).putInt(56);
+        b.putShort((short) 0x8769).putShort((short) 4).putInt(1).putInt(38);
+        b.putInt(0);
+        b.putShort((short) (original == null ? 0 : 1));
+        b.putShort((short) 0x9003).putShort((short) 2).putInt(20).putInt(76);
+        b.putInt(0);
+        b.put(Arrays.copyOf(dateTime.getBytes(StandardCharsets.US_ASCII), 20));
+        if (original != null) b.put(Arrays.copyOf(original.getBytes(StandardCharsets.US_ASCII), 20));
+        return b.array();
+    }
+
+    /** SOI, a JFIF segment to skip, the APP1 Exif segment, then the start of the image data. */
+    private static byte[] jpeg(byte[] tiff) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xD8});
+        out.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xE0, 0, 16, 'J', 'F', 'I', 'F', 0, 1, 1, 0, 0, 1, 0, 1, 0, 0});
+        if (tiff != null) {
+            int len = 2 + 6 + tiff.length;
+            out.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xE1, (byte) (len >> 8), (byte) len, 'E', 'x', 'i', 'f', 0, 0});
+            out.writeBytes(tiff);
+        }
+        out.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xDA, 0, 2, 1, 2, 3, (byte) 0xFF, (byte) 0xD9});
+        return out.toByteArray();
+    }
+
+    private static ByteBuffer box(String type, int size) {
+        return ByteBuffer.allocate(size).putInt(size).put(type.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /** ftyp, an mdat in front of the movie, and a moov with another child before mvhd. */
+    private static byte[] mp4(int version, long created) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(box("ftyp", 16).put("isom".getBytes(StandardCharsets.US_ASCII)).array());
+        out.writeBytes(box("mdat", 8 + 4096).array());
+        ByteBuffer mvhd = box("mvhd", 120).put((byte) version).put(new byte[3]);
+        if (version == 1) mvhd.putLong(created);
+        else mvhd.putInt((int) created);
+        int moov = 8 + 16 + 120;
+        out.write(box("moov", moov).putInt(16).put("udta".getBytes(StandardCharsets.US_ASCII)).array(), 0, 24);
+        out.writeBytes(mvhd.array());
+        return out.toByteArray();
+    }
+
+    private Path write(String name, byte[] bytes) throws IOException {
+        return Files.write(tmp.resolve(name), bytes);
+    }
+
+    @Test
+    void jpegPrefersDateTimeOriginalInEitherByteOrder() throws IOException {
+        LocalDateTime original = LocalDateTime.of(2019, 7, 14, 18, 30, 5);
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN}) {
+            Path p = write("photo-" + order + ".jpg", jpeg(tiff(order, "2023:01:01 00:00:00", "2019:07:14 18:30:05")));
+            assertEquals(original, CaptureDate.read(p), order.toString());
+        }
+        // a bare TIFF file has the same structure at offset 0
+        assertEquals(original, CaptureDate.read(write("scan.tif",
+                tiff(ByteOrder.BIG_ENDIAN, "2023:01:01 00:00:00", "2019:07:14 18:30:05"))));
+    }
+
+    @Test
+    void jpegFallsBackToTheDateTimeOfIfd0() throws IOException {
+        Path p = write("edited.jpg", jpeg(tiff(ByteOrder.LITTLE_ENDIAN, "2021:02:03 04:05:06", null)));
+        assertEquals(LocalDateTime.of(2021, 2, 3, 4, 5, 6), CaptureDate.read(p));
+        Path blank = write("blank.jpg", jpeg(tiff(ByteOrder.LITTLE_ENDIAN, "0000:00:00 00:00:00", null)));
+        assertNull(CaptureDate.read(blank));
+    }
+
+    @Test
+    void jpegWithoutExifHasNoDate() throws IOException {
+        assertNull(CaptureDate.read(write("plain.jpg", jpeg(null))));
+    }
+
+    @Test
+    void mp4ReadsTheMovieHeaderOfEitherVersion() throws IOException {
+        Instant created = Instant.parse("2021-06-15T10:20:30Z");
+        LocalDateTime local = LocalDateTime.ofInstant(created, ZoneId.systemDefault());
+        long seconds = created.getEpochSecond() + QUICKTIME_EPOCH;
+        assertEquals(local, CaptureDate.read(write("clip0.mp4", mp4(0, seconds))));
+        assertEquals(local, CaptureDate.read(write("clip1.mp4", mp4(1, seconds))));
+        assertNull(CaptureDate.read(write("unset.mp4", mp4(0, 0))), "a zero creation time is no date");
+    }
+
+    @Test
+    void aTruncatedHeaderIsAFileWithoutADate() throws IOException {
+        byte[] photo = jpeg(tiff(ByteOrder.LITTLE_ENDIAN, "2021:02:03 04:05:06", "2019:07:14 18:30:05"));
+        byte[] clip = mp4(0, 3_700_000_000L);
+        for (int len : new int[]{3, 20, 40, 80}) {
+            assertNull(CaptureDate.read(write("cut.jpg", Arrays.copyOf(photo, len))), "jpeg cut at " + len);
+        }
+        // the movie header stops before its creation time
+        assertNull(CaptureDate.read(write("cut.mp4", Arrays.copyOf(clip, clip.length - 110))));
+        assertNull(CaptureDate.read(write("notes.txt", "not a photo".getBytes(StandardCharsets.US_ASCII))));
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.autoorganizer.engine;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CliTest {
+
+    @TempDir
+    Path tmp;
+
+    private int exit;
+
+    /** Runs the command with its own config directory and returns the JSON lines it wrote. */
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> run(String... args) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        List<String> all = new ArrayList<>(List.of("--config", tmp.resolve("config").toString()));
+        all.addAll(List.of(args));
+        exit = new Cli(new PrintStream(bytes, true, StandardCharsets.UTF_8)).run(all.toArray(String[]::new));
+        List<Map<String, Object>> lines = new ArrayList<>();
+        Gson gson = new Gson();
+        for (String line : bytes.toString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isBlank()) lines.add(gson.fromJson(line, Map.class));
+        }
+        return lines;
+    }
+
+    private static List<Map<String, Object>> events(List<Map<String, Object>> lines, String event) {
+        return lines.stream().filter(l -> event.equals(l.get("event"))).toList();
+    }
+
+    @Test
+    void badArgumentsAreUsageErrors() throws Exception {
+        Path dir = Files.createDirectories(tmp.resolve("dir"));
+        String[][] bad = {
+                {},
+                {"explode", dir.toString()},
+                {"organize"},
+                {"organize", tmp.resolve("missing").toString()},
+                {"organize", dir.toString(), "extra"},
+                {"rename", dir.toString(), "--prefix", "x", "--start", "one"},
+                {"rename", dir.toString(), "--date", "yyyy{"},
+                {"dedup", dir.toString(), "--mode", "COPY"},
+                {"--dry-run", "duplicates", dir.toString()},
+                {"--dry-run", "backup", dir.toString(), tmp.resolve("target").toString()},
+                {"duplicates", dir.toString(), "--distance"},
+        };
+        for (String[] args : bad) {
+            List<Map<String, Object>> lines = run(args);
+            assertEquals(2, exit, String.join(" ", args));
+            assertTrue(events(lines, "result").isEmpty(), String.join(" ", args));
+        }
+        assertEquals("Ismeretlen parancs: explode", run("explode", dir.toString()).get(0).get("message"));
+    }
+
+    @Test
+    void aDryRunListsTheMovesAndLeavesTheFilesAlone() throws Exception {
+        Path dir = Files.createDirectories(tmp.resolve("dir"));
+        Path photo = Files.writeString(dir.resolve("photo.jpg"), "jpeg");
+        Path clip = Files.writeString(dir.resolve("clip.mp4"), "video");
+
+        List<Map<String, Object>> lines = run("--dry-run", "organize", dir.toString());
+        assertEquals(0, exit);
+        assertEquals(2, events(lines, "move").size());
+        Map<String, Object> result = lines.get(lines.size() - 1);
+        assertEquals("result", result.get("event"));
+        assertEquals(true, result.get("dryRun"));
+        assertEquals(2.0, result.get("planned"));
+        assertTrue(Files.exists(photo) && Files.exists(clip));
+
+        lines = run("organize", dir.toString());
+        assertEquals(0, exit);
+        assertEquals(2.0, lines.get(lines.size() - 1).get("moved"));
+        assertFalse(Files.exists(photo) || Files.exists(clip));
+    }
+
+    @Test
+    void dedupReportsWhatItWouldLinkAndThenLinksIt() throws Exception {
+        Path dir = Files.createDirectories(tmp.resolve("dir"));
+        Path a = Files.writeString(dir.resolve("a.txt"), "the same text");
+        Path b = Files.writeString(dir.resolve("b.txt"), "the same text");
+
+        List<Map<String, Object>> lines = run("--dry-run", "dedup", dir.toString(), "--mode", "hardlink");
+        assertEquals(0, exit);
+        assertEquals(1, events(lines, "link").size());
+        assertFalse(Files.isSameFile(a, b));
+
+        lines = run("dedup", dir.toString(), "--mode", "hardlink");
+        assertEquals(0, exit);
+        Map<String, Object> result = lines.get(lines.size() - 1);
+        assertEquals("HARDLINK", result.get("mode"));
+        assertEquals(1.0, result.get("replaced"));
+        assertTrue(Files.isSameFile(a, b));
+    }
+
+    @Test
+    void aRunThatFailsExitsWithOne() throws Exception {
+        Path target = Files.createDirectories(tmp.resolve("backup"));
+        List<Map<String, Object>> lines = run("restore", target.toString(), "no-such-snapshot", tmp.resolve("into").toString());
+        assertEquals(1, exit);
+        assertEquals("error", lines.get(lines.size() - 1).get("event"));
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.autoorganizer.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CopyEngineTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void copiesAndHashesSmallAndLargeFiles() throws Exception {
+        Path small = Files.writeString(tmp.resolve("small.txt"), "small");
+        Path large = Files.write(tmp.resolve("large.bin"), new byte[(int) CopyEngine.LARGE_FILE + 1]);
+        Path out = Files.createDirectory(tmp.resolve("out"));
+        FileTime mtime = FileTime.fromMillis(1_600_000_000_000L);
+        try (CopyEngine engine = new CopyEngine(2, 0, true, true, ProgressMeter.silent())) {
+            engine.copy(small, out.resolve("small.txt"), Files.size(small), mtime);
+            engine.copy(large, out.resolve("large.bin"), Files.size(large), mtime);
+            engine.finish();
+            assertEquals(2, engine.files());
+            assertEquals(FileHasher.sha256(small), engine.digest(out.resolve("small.txt")));
+            assertEquals(FileHasher.sha256(large), engine.digest(out.resolve("large.bin")));
+        }
+        assertEquals("small", Files.readString(out.resolve("small.txt")));
+        assertEquals(mtime, Files.getLastModifiedTime(out.resolve("large.bin")));
+    }
+
+    @Test
+    void aSourceThatCannotBeReadIsLeftOutAndTheRestIsCopied() throws Exception {
+        Path small = Files.writeString(tmp.resolve("small.txt"), "small");
+        Path out = Files.createDirectory(tmp.resolve("out"));
+        FileTime mtime = FileTime.fromMillis(0);
+        try (CopyEngine engine = new CopyEngine(2, 0, true, false, ProgressMeter.silent())) {
+            // deleted between the scan and the copy, once small and once large
+            engine.copy(tmp.resolve("gone.txt"), out.resolve("gone.txt"), 5, mtime);
+            engine.copy(tmp.resolve("gone.bin"), out.resolve("gone.bin"), CopyEngine.LARGE_FILE, mtime);
+            engine.copy(small, out.resolve("small.txt"), 5, mtime);
+            engine.finish();
+            assertEquals(1, engine.files());
+            assertEquals(Set.of(tmp.resolve("gone.txt"), tmp.resolve("gone.bin")), engine.unreadable().keySet());
+            assertNull(engine.digest(out.resolve("gone.bin")));
+        }
+        assertEquals("small", Files.readString(out.resolve("small.txt")));
+        assertFalse(Files.exists(out.resolve("gone.txt")));
+        assertFalse(Files.exists(out.resolve("gone.bin")), "the target is not opened for a source that failed");
+    }
+
+    @Test
+    void aRuntimeExceptionInAWriterFailsTheRunInsteadOfHangingIt() throws Exception {
+        Path small = Files.writeString(tmp.resolve("small.txt"), "small");
+        Path out = Files.createDirectory(tmp.resolve("out"));
+        FileTime mtime = FileTime.fromMillis(0);
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            try (CopyEngine engine = new CopyEngine(1, 0, ProgressMeter.silent())) {
+                engine.copy(small, null, 5, mtime); // the writer throws a NullPointerException
+                // more than the queues hold, so a dead writer would block the reader and then this thread
+                for (int i = 0; i < 600; i++) {
+                    try {
+                        engine.copy(small, out.resolve(i + ".txt"), 5, mtime);
+                    } catch (NullPointerException e) {
+                        break;
+                    }
+                }
+                assertThrows(NullPointerException.class, engine::finish);
+            }
+        });
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.autoorganizer.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class CrossStoreMoveTest {
+
+    @TempDir
+    Path tmp;
+
+    private Path source(int size) throws IOException {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        Path from = Files.write(tmp.resolve("from/data.bin"), data);
+        Files.setLastModifiedTime(from, FileTime.fromMillis(1_600_000_000_000L));
+        return from;
+    }
+
+    private List<String> names(Path dir) throws IOException {
+        try (Stream<Path> s = Files.list(dir)) {
+            return s.map(p -> p.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    @Test
+    void aVerifiedCopyReplacesTheSource() throws Exception {
+        Files.createDirectories(tmp.resolve("from"));
+        Path from = source(3 << 20);
+        byte[] data = Files.readAllBytes(from);
+        Path to = tmp.resolve("to/sub/data.bin");
+
+        assertEquals(data.length, CrossStoreMove.move(from, to, null));
+        assertFalse(Files.exists(from));
+        assertArrayEquals(data, Files.readAllBytes(to));
+        assertEquals(FileTime.fromMillis(1_600_000_000_000L), Files.getLastModifiedTime(to));
+        assertEquals(List.of("data.bin"), names(to.getParent()), "no partial copy is left behind");
+    }
+
+    @Test
+    void theSourceStaysWhenTheCopyDoesNotVerify() throws Exception {
+        assumeTrue(Files.isWritable(Path.of("/dev/null")), "needs /dev/null");
+        Files.createDirectories(tmp.resolve("from"));
+        Path from = source(100_000);
+        byte[] data = Files.readAllBytes(from);
+        Path to = tmp.resolve("to/data.bin");
+        // the partial copy lands nowhere, as with a disk that drops the writes
+        Files.createDirectories(to.getParent());
+        Files.createSymbolicLink(to.resolveSibling(".data.bin.doomsorter-part"), Path.of("/dev/null"));
+
+        assertThrows(IOException.class, () -> CrossStoreMove.move(from, to, null));
+        assertArrayEquals(data, Files.readAllBytes(from));
+        assertEquals(List.of(), names(to.getParent()), "the target is not created and the partial copy is removed");
+    }
+
+    @Test
+    void theSourceStaysWhenTheTargetAppearsDuringTheCopy() throws Exception {
+        Files.createDirectories(tmp.resolve("from"));
+        Path from = source(50_000);
+        byte[] data = Files.readAllBytes(from);
+        Path to = Files.writeString(Files.createDirectories(tmp.resolve("to")).resolve("data.bin"), "someone else's");
+
+        assertThrows(FileAlreadyExistsException.class, () -> CrossStoreMove.move(from, to, null));
+        assertArrayEquals(data, Files.readAllBytes(from));
+        assertEquals("someone else's", Files.readString(to));
+        assertEquals(List.of("data.bin"), names(to.getParent()));
+    }
+
+    @Test
+    void finishOnlyDeletesASourceThatMatchesTheTarget() throws Exception {
+        Path from = Files.writeString(tmp.resolve("a.txt"), "same size A");
+        Path to = Files.writeString(tmp.resolve("b.txt"), "same size B");
+        assertFalse(CrossStoreMove.finish(from, to));
+        assertTrue(Files.exists(from));
+
+        Files.writeString(to, "same size A");
+        assertTrue(CrossStoreMove.finish(from, to));
+        assertFalse(Files.exists(from));
+    }
+}
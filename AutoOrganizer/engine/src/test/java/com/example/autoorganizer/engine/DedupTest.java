@@ -0,0 +1,69 @@
+package com.example.autoorganizer.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DedupTest {
+
+    @TempDir
+    Path tmp;
+
+    private List<String> names() throws IOException {
+        try (Stream<Path> s = Files.list(tmp)) {
+            return s.map(p -> p.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    @Test
+    void aReplacedCopyReadsTheSameBytesAsTheKeptFile() throws Exception {
+        for (Dedup.Mode mode : Dedup.Mode.values()) {
+            if (mode == Dedup.Mode.REFLINK) continue; // not every file system of a test machine clones
+            Path keep = Files.writeString(tmp.resolve("keep-" + mode + ".txt"), "same content " + mode);
+            Path copy = Files.writeString(tmp.resolve("copy-" + mode + ".txt"), "same content " + mode);
+
+            Dedup.Summary sum = Dedup.run(List.of(new Dedup.Pair(keep, copy)), mode, 2, ProgressMeter.silent());
+            assertTrue(sum.errors().isEmpty(), sum.errors().toString());
+            assertEquals(1, sum.replaced());
+            assertEquals(Files.size(keep), sum.bytes());
+            assertArrayEquals(Files.readAllBytes(keep), Files.readAllBytes(copy), mode.toString());
+            if (mode == Dedup.Mode.HARDLINK) assertTrue(Files.isSameFile(keep, copy));
+        }
+        assertEquals(List.of("copy-AUTO.txt", "copy-HARDLINK.txt", "keep-AUTO.txt", "keep-HARDLINK.txt"), names(),
+                "no temporary link is left behind");
+    }
+
+    @Test
+    void aCopyThatChangedSinceTheSearchIsLeftAlone() throws Exception {
+        Path keep = Files.writeString(tmp.resolve("keep.txt"), "original");
+        Path copy = Files.writeString(tmp.resolve("copy.txt"), "edited!!"); // same size, other bytes
+        Path other = Files.writeString(tmp.resolve("other.txt"), "original");
+
+        Dedup.Summary sum = Dedup.run(List.of(new Dedup.Pair(keep, copy), new Dedup.Pair(keep, other)),
+                Dedup.Mode.HARDLINK, 2, ProgressMeter.silent());
+        assertEquals(1, sum.replaced());
+        assertEquals(List.of(copy), List.copyOf(sum.errors().keySet()));
+        assertEquals("edited!!", Files.readString(copy));
+        assertFalse(Files.isSameFile(keep, copy));
+        assertTrue(Files.isSameFile(keep, other));
+    }
+
+    @Test
+    void aPairThatIsAlreadyOneFileIsNotReplacedAgain() throws Exception {
+        Path keep = Files.writeString(tmp.resolve("keep.txt"), "content");
+        Path copy = Files.writeString(tmp.resolve("copy.txt"), "content");
+        Dedup.run(List.of(new Dedup.Pair(keep, copy)), Dedup.Mode.HARDLINK, 1, ProgressMeter.silent());
+
+        Dedup.Summary again = Dedup.run(List.of(new Dedup.Pair(keep, copy)), Dedup.Mode.HARDLINK, 1, ProgressMeter.silent());
+        assertEquals(0, again.replaced());
+        assertEquals(0, again.bytes());
+        assertEquals("content", Files.readString(copy));
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.autoorganizer.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DigestCacheTest {
+
+    @TempDir
+    Path tmp;
+
+    private static BasicFileAttributes attrs(Path p) throws IOException {
+        return Files.readAttributes(p, BasicFileAttributes.class);
+    }
+
+    @Test
+    void savedDigestsSurviveALoad() throws IOException {
+        Path file = tmp.resolve("a.txt"), store = tmp.resolve("cache/digests.bin");
+        Files.writeString(file, "hello");
+        DigestCache cache = DigestCache.load(store);
+        Digest digest = cache.sha256(file, attrs(file));
+        assertEquals(FileHasher.sha256(file), digest);
+        cache.save();
+
+        DigestCache loaded = DigestCache.load(store);
+        assertEquals(digest, loaded.cached(file, attrs(file)));
+        loaded.save(); // nothing changed, so nothing is written
+        assertEquals(digest, DigestCache.load(store).cached(file, attrs(file)));
+
+        Files.writeString(file, "hello, world");
+        assertNull(loaded.cached(file, attrs(file)), "a file whose size changed is hashed again");
+    }
+
+    @Test
+    void saveReplacesAFileLoadedBefore() throws IOException {
+        Path a = tmp.resolve("a.txt"), b = tmp.resolve("b.txt"), store = tmp.resolve("digests.bin");
+        Files.writeString(a, "a");
+        Files.writeString(b, "b");
+        DigestCache first = DigestCache.load(store);
+        first.sha256(a, attrs(a));
+        first.save();
+
+        DigestCache second = DigestCache.load(store);
+        second.sha256(b, attrs(b));
+        second.save();
+        DigestCache third = DigestCache.load(store);
+        assertNotNull(third.cached(a, attrs(a)));
+        assertNotNull(third.cached(b, attrs(b)));
+    }
+
+    @Test
+    void aTruncatedFileLoadsAsAnEmptyCache() throws IOException {
+        Path file = tmp.resolve("a.txt"), store = tmp.resolve("digests.bin");
+        Files.writeString(file, "hello");
+        DigestCache cache = DigestCache.load(store);
+        cache.sha256(file, attrs(file));
+        cache.save();
+        byte[] bytes = Files.readAllBytes(store);
+        Files.write(store, java.util.Arrays.copyOf(bytes, bytes.length - 5));
+
+        assertNull(DigestCache.load(store).cached(file, attrs(file)));
+    }
+
+    @Test
+    void sweepDropsFilesNotSeenBelowTheRoot() throws IOException {
+        Path gone = tmp.resolve("dir/gone.txt"), kept = tmp.resolve("dir/kept.txt"), outside = tmp.resolve("dir2/x.txt");
+        for (Path p : new Path[]{gone, kept, outside}) {
+            Files.createDirectories(p.getParent());
+            Files.writeString(p, p.getFileName().toString());
+        }
+        DigestCache cache = DigestCache.load(tmp.resolve("digests.bin"));
+        for (Path p : new Path[]{gone, kept, outside}) cache.sha256(p, attrs(p));
+
+        DigestCache.Sweep sweep = cache.sweep(tmp.resolve("dir"));
+        sweep.seen(kept);
+        sweep.finish();
+        assertNull(cache.cached(gone, attrs(gone)));
+        assertNotNull(cache.cached(kept, attrs(kept)));
+        assertNotNull(cache.cached(outside, attrs(outside)), "dir2 is not below dir");
+    }
+
+    @Test
+    void sweepOfAFileSystemRootCoversEverything() throws IOException {
+        Path file = tmp.resolve("a.txt");
+        Files.writeString(file, "a");
+        DigestCache cache = DigestCache.load(tmp.resolve("digests.bin"));
+        cache.sha256(file, attrs(file));
+
+        cache.sweep(tmp.getRoot()).finish();
+        assertNull(cache.cached(file, attrs(file)));
+    }
+}
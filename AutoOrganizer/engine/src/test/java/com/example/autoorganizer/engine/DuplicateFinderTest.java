@@ -0,0 +1,97 @@
+package com.example.autoorganizer.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DuplicateFinderTest {
+
+    @TempDir
+    Path tmp;
+
+    private static Path write(Path p, byte[] data) throws IOException {
+        Files.createDirectories(p.getParent());
+        return Files.write(p, data);
+    }
+
+    /**
+     * A tree with every case the stages tell apart: unique sizes, same size with a different
+     * head, same head and tail with a different middle, small files that skip the partial
+     * hash, empty files and copies in several folders.
+     */
+    private Path tree() throws IOException {
+        Path root = tmp.resolve("root");
+        Random random = new Random(7);
+        int big = 3 * DuplicateFinder.PARTIAL_BYTES;
+        for (int i = 0; i < 40; i++) {
+            byte[] data = new byte[random.nextInt(big * 2)];
+            random.nextBytes(data);
+            write(root.resolve("unique/u" + i + ".bin"), data);
+            if (i % 3 == 0) write(root.resolve("copies/c" + i + ".bin"), data);
+            if (i % 9 == 0) write(root.resolve("copies/deeper/c" + i + ".bin"), data);
+        }
+        byte[] middle = new byte[big];
+        random.nextBytes(middle);
+        write(root.resolve("middle/a.bin"), middle);
+        middle[big / 2] ^= 1;
+        write(root.resolve("middle/b.bin"), middle);
+        byte[] head = middle.clone();
+        head[0] ^= 1;
+        write(root.resolve("middle/c.bin"), head);
+        write(root.resolve("small/a.txt"), "same".getBytes());
+        write(root.resolve("small/b.txt"), "same".getBytes());
+        write(root.resolve("small/c.txt"), "diff".getBytes());
+        write(root.resolve("empty/a"), new byte[0]);
+        write(root.resolve("empty/b"), new byte[0]);
+        return root;
+    }
+
+    /** Every set of two or more files with the same SHA-256, found by hashing all of them. */
+    private static Set<Set<Path>> bruteForce(Path root) throws IOException {
+        Map<Digest, Set<Path>> byDigest = new HashMap<>();
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path p : files.filter(Files::isRegularFile).toList()) {
+                byDigest.computeIfAbsent(FileHasher.sha256(p), d -> new HashSet<>()).add(p);
+            }
+        }
+        Set<Set<Path>> groups = new HashSet<>();
+        for (Set<Path> g : byDigest.values()) if (g.size() > 1) groups.add(g);
+        return groups;
+    }
+
+    private static Set<Set<Path>> found(DuplicateFinder.Result result) throws IOException {
+        Set<Set<Path>> groups = new HashSet<>();
+        for (DuplicateFinder.Group g : result.groups()) {
+            for (Path p : g.files()) assertEquals(g.size(), Files.size(p));
+            assertEquals(FileHasher.sha256(g.files().get(0)), g.digest());
+            groups.add(new HashSet<>(g.files()));
+        }
+        return groups;
+    }
+
+    @Test
+    void groupsMatchABruteForceSha256Grouping() throws Exception {
+        Path root = tree();
+        Set<Set<Path>> expected = bruteForce(root);
+        assertEquals(16, expected.size(), "14 copied files, the small pair and the empty pair");
+
+        Path cacheFile = tmp.resolve("config/digests.bin");
+        DigestCache cache = DigestCache.load(cacheFile);
+        HashEngine engine = new HashEngine(Map.of(), 4);
+        DuplicateFinder.Result first = DuplicateFinder.find(root, new FileScanner(List.of()).parallelism(4), engine, cache, ProgressMeter.silent());
+        assertTrue(first.errors().isEmpty(), first.errors().toString());
+        assertEquals(expected, found(first));
+        cache.save();
+
+        // the second run takes the full digests from the cache
+        DuplicateFinder.Result second = DuplicateFinder.find(root, new FileScanner(List.of()), engine, DigestCache.load(cacheFile), ProgressMeter.silent());
+        assertEquals(expected, found(second));
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.autoorganizer.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileHasherTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void matchesMessageDigestAcrossBufferBoundaries() throws Exception {
+        for (int size : new int[]{0, 1, FileHasher.BUFFER_BYTES, 3 * FileHasher.BUFFER_BYTES + 17}) {
+            byte[] data = new byte[size];
+            new Random(size).nextBytes(data);
+            Path p = Files.write(tmp.resolve(size + ".bin"), data);
+            Digest expected = Digest.of(MessageDigest.getInstance("SHA-256").digest(data));
+            assertEquals(expected, FileHasher.sha256(p), size + " bytes");
+            assertEquals(expected, FileHasher.sha256(data));
+        }
+    }
+}
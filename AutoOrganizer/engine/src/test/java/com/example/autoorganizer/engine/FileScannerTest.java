@@ -0,0 +1,72 @@
+package com.example.autoorganizer.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class FileScannerTest {
+
+    @TempDir
+    Path tmp;
+
+    /** Relative path to size of every file the scanner visits. */
+    private Map<String, Long> scan(FileScanner scanner, Path root) throws IOException {
+        Map<String, Long> files = new ConcurrentHashMap<>();
+        scanner.scan(root, (p, attrs) -> files.put(root.relativize(p).toString().replace('\\', '/'), attrs.size()));
+        return files;
+    }
+
+    private static void write(Path p, String content) throws IOException {
+        Files.createDirectories(p.getParent());
+        Files.writeString(p, content);
+    }
+
+    private static boolean link(Path link, Path target) {
+        try {
+            Files.createSymbolicLink(link, target);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            return false; // e.g. Windows without the privilege
+        }
+    }
+
+    @Test
+    void walksTheTreeAndPrunesExcludedFolders() throws IOException {
+        Path root = tmp.resolve("root");
+        write(root.resolve("a.txt"), "a");
+        write(root.resolve("sub/deeper/b.txt"), "bb");
+        write(root.resolve("node_modules/x.js"), "x");
+        write(root.resolve("sub/.git/config"), "c");
+
+        Map<String, Long> expected = Map.of("a.txt", 1L, "sub/deeper/b.txt", 2L);
+        assertEquals(expected, scan(new FileScanner(FileScanner.DEFAULT_EXCLUDES), root));
+        assertEquals(expected, scan(new FileScanner(FileScanner.DEFAULT_EXCLUDES).parallelism(4), root));
+        assertEquals(Map.of("a.txt", 1L), scan(new FileScanner(List.of()).maxDepth(1), root));
+        assertEquals(Map.of("a.txt", 1L), scan(new FileScanner(List.of()).maxDepth(1).parallelism(4), root));
+    }
+
+    @Test
+    void followsLinksToFilesButNotToFolders() throws IOException {
+        Path root = tmp.resolve("root"), outside = tmp.resolve("outside");
+        write(outside.resolve("target.txt"), "target");
+        write(outside.resolve("dir/inner.txt"), "inner");
+        write(root.resolve("plain.txt"), "p");
+        assumeTrue(link(root.resolve("file-link.txt"), outside.resolve("target.txt")), "no symbolic links here");
+        assumeTrue(link(root.resolve("dir-link"), outside.resolve("dir")));
+        assumeTrue(link(root.resolve("dangling.txt"), outside.resolve("missing.txt")));
+
+        // the link carries the size of its target
+        Map<String, Long> expected = Map.of("plain.txt", 1L, "file-link.txt", 6L);
+        assertEquals(expected, scan(new FileScanner(List.of()), root));
+        assertEquals(expected, scan(new FileScanner(List.of()).parallelism(4), root));
+    }
+}
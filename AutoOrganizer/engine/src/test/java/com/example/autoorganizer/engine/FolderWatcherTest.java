@@ -0,0 +1,95 @@
+package com.example.autoorganizer.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FolderWatcherTest {
+
+    private static final long SETTLE = 700;
+
+    @TempDir
+    Path tmp;
+
+    /** A file handed to the handler, with its size and the time then. */
+    private record Ready(Path file, long size, long at) {
+    }
+
+    private final BlockingQueue<Ready> ready = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Path> failed = new LinkedBlockingQueue<>();
+
+    private FolderWatcher watch(Path base, Set<Path> skip) throws IOException {
+        FolderWatcher watcher = new FolderWatcher(base, skip, new FileScanner(List.of()), SETTLE,
+                p -> ready.add(new Ready(p, Files.size(p), System.currentTimeMillis())),
+                new FolderWatcher.Listener() {
+                    @Override
+                    public void handled(Path file) {
+                    }
+
+                    @Override
+                    public void failed(Path file, Exception e) {
+                        failed.add(file);
+                    }
+                });
+        watcher.start();
+        return watcher;
+    }
+
+    @Test
+    void aFileIsHandedOverOnceItStopsChanging() throws Exception {
+        Path base = Files.createDirectories(tmp.resolve("inbox"));
+        Files.writeString(base.resolve("old.txt"), "already here");
+        try (FolderWatcher watcher = watch(base, Set.of())) {
+            Path file = base.resolve("download.bin");
+            long lastWrite;
+            try (OutputStream out = Files.newOutputStream(file)) {
+                // a slow download: a new chunk before the settle time runs out, four times
+                for (int i = 0; i < 4; i++) {
+                    out.write(new byte[1000]);
+                    out.flush();
+                    Thread.sleep(SETTLE / 3);
+                }
+                out.write(new byte[1000]);
+                lastWrite = System.currentTimeMillis();
+            }
+
+            Ready r = ready.poll(10, TimeUnit.SECONDS);
+            assertNotNull(r, "the file was never handed over");
+            assertEquals(file, r.file());
+            assertEquals(5000, r.size(), "handed over complete");
+            assertTrue(r.at() - lastWrite >= SETTLE, "handed over " + (r.at() - lastWrite) + " ms after the last write");
+            assertNull(ready.poll(2 * SETTLE, TimeUnit.MILLISECONDS), "only once, and not the file that was already there");
+            assertTrue(failed.isEmpty(), failed.toString());
+            assertEquals(1, watcher.watchedDirectories());
+        }
+    }
+
+    @Test
+    void filesInNewFoldersAreSeenAndSkippedFoldersAreNot() throws Exception {
+        Path base = Files.createDirectories(tmp.resolve("inbox"));
+        Path sorted = Files.createDirectories(base.resolve("Sorted"));
+        try (FolderWatcher watcher = watch(base, Set.of(sorted))) {
+            assertEquals(1, watcher.watchedDirectories());
+            Files.writeString(sorted.resolve("done.txt"), "sorted already");
+            // the file may land before the new folder is registered
+            Path nested = Files.writeString(Files.createDirectories(base.resolve("new/deeper")).resolve("photo.jpg"), "jpeg");
+
+            Ready r = ready.poll(10, TimeUnit.SECONDS);
+            assertNotNull(r, "the file in the new folder was never handed over");
+            assertEquals(nested, r.file());
+            assertNull(ready.poll(2 * SETTLE, TimeUnit.MILLISECONDS), "nothing from the skipped folder");
+            assertEquals(3, watcher.watchedDirectories());
+        }
+    }
+}
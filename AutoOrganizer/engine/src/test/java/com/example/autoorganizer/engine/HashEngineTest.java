@@ -0,0 +1,101 @@
+package com.example.autoorganizer.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashEngineTest {
+
+    @TempDir
+    Path tmp;
+
+    private List<Path> files(int count) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            files.add(Files.writeString(Files.createDirectories(tmp.resolve("d" + i % 5)).resolve("f" + i), "content " + i % 7));
+        }
+        return files;
+    }
+
+    @Test
+    void groupsEveryFileByItsKeyAndReportsTheOnesThatFail() throws Exception {
+        List<Path> files = new ArrayList<>(files(60));
+        Path missing = tmp.resolve("d0/missing");
+        Path broken = files.get(13);
+        files.add(missing);
+        Collections.shuffle(files, new Random(1));
+
+        HashEngine engine = new HashEngine(Map.of(), 4);
+        HashEngine.Grouping<String> result = engine.group(files, p -> {
+            if (p.equals(broken)) throw new IllegalStateException("broken");
+            return Files.readString(p);
+        }, ProgressMeter.silent());
+
+        Map<String, List<Path>> expected = new HashMap<>();
+        for (Path p : files) {
+            if (p.equals(missing) || p.equals(broken)) continue;
+            expected.computeIfAbsent(Files.readString(p), k -> new ArrayList<>()).add(p);
+        }
+        expected.values().forEach(Collections::sort);
+        assertEquals(expected, result.groups());
+        assertEquals(Set.of(missing, broken), result.errors().keySet());
+        assertTrue(result.errors().get(missing).contains("NoSuchFileException"), result.errors().get(missing));
+    }
+
+    @Test
+    void aSessionTakesFilesFromSeveralThreads() throws Exception {
+        List<Path> files = files(100);
+        HashEngine engine = new HashEngine(Map.of(), 3);
+        HashEngine.Grouping<Long> result;
+        try (HashEngine.Session<Long> session = engine.open(Files::size, ProgressMeter.silent())) {
+            List<Thread> feeders = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int from = t * 25;
+                feeders.add(Thread.ofPlatform().start(() -> files.subList(from, from + 25).forEach(session::add)));
+            }
+            for (Thread t : feeders) t.join();
+            result = session.finish();
+        }
+        assertEquals(List.of(9L), List.copyOf(result.groups().keySet()));
+        List<Path> sorted = new ArrayList<>(files);
+        Collections.sort(sorted);
+        assertEquals(sorted, result.groups().get(9L));
+    }
+
+    @Test
+    void aStoreIsReadByNoMoreThanItsConfiguredThreads() throws Exception {
+        List<Path> files = files(40);
+        String store = Files.getFileStore(tmp).name();
+        for (int configured : new int[]{1, 2}) {
+            AtomicInteger now = new AtomicInteger(), most = new AtomicInteger();
+            HashEngine engine = new HashEngine(Map.of(store, configured), 8);
+            engine.group(files, p -> {
+                most.accumulateAndGet(now.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    now.decrementAndGet();
+                }
+                return 0;
+            }, ProgressMeter.silent());
+            assertTrue(most.get() <= configured, most + " readers, " + configured + " configured");
+        }
+    }
+
+    @Test
+    void fileStoresFindsTheStoreOfFilesAndOfFoldersNotCreatedYet() throws Exception {
+        List<Path> files = files(10);
+        FileStores stores = new FileStores();
+        for (Path p : files) assertEquals(Files.getFileStore(p), stores.of(p));
+        assertEquals(Files.getFileStore(tmp), stores.of(tmp.resolve("not/there/yet.txt")));
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.autoorganizer.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalTest {
+
+    private static final int FILES = MovePlan.BATCH + 300;
+    private static final int MOVED_IN_TORN_BATCH = 100;
+
+    @TempDir
+    Path tmp;
+
+    private Path config() {
+        return tmp.resolve("config");
+    }
+
+    private Engine engine() {
+        return new Engine(Settings.defaultSettings(), config());
+    }
+
+    /**
+     * Leaves behind what a run killed in its second batch leaves: the first batch moved and
+     * committed, part of the second moved, and half a commit record at the end of the journal.
+     */
+    private List<MovePlan.Move> interruptedRun() throws IOException {
+        Path src = Files.createDirectories(tmp.resolve("src")), dst = Files.createDirectories(tmp.resolve("dst/Képek"));
+        List<MovePlan.Move> moves = new ArrayList<>();
+        for (int i = 0; i < FILES; i++) {
+            Path from = Files.writeString(src.resolve("f" + i + ".jpg"), "file " + i);
+            moves.add(new MovePlan.Move(from, dst.resolve("f" + i + ".jpg")));
+        }
+        Journal journal = Journal.create(config().resolve("journal"), Journal.Kind.ORGANIZE, moves);
+        for (MovePlan.Move m : moves.subList(0, MovePlan.BATCH)) Files.move(m.from(), m.to());
+        journal.commit(MovePlan.BATCH);
+        for (MovePlan.Move m : moves.subList(MovePlan.BATCH, MovePlan.BATCH + MOVED_IN_TORN_BATCH)) Files.move(m.from(), m.to());
+        journal.close();
+        Files.write(config().resolve("journal").resolve(Journal.RUNNING), new byte[]{2, 0, 0}, StandardOpenOption.APPEND);
+        return moves;
+    }
+
+    @Test
+    void aTornCommitRecordCountsAsNotWritten() throws IOException {
+        interruptedRun();
+        Journal.Info info = engine().interrupted();
+        assertNotNull(info);
+        assertEquals(Journal.Kind.ORGANIZE, info.kind());
+        assertEquals(FILES, info.total());
+        assertEquals(MovePlan.BATCH, info.committed());
+    }
+
+    @Test
+    void resumeFinishesTheRunFromTheLastCommit() throws Exception {
+        List<MovePlan.Move> moves = interruptedRun();
+        Engine engine = engine();
+        MovePlan.Result result = engine.resume(ProgressMeter.silent());
+
+        assertTrue(result.errors().isEmpty(), result.errors().toString());
+        for (MovePlan.Move m : moves) {
+            assertFalse(Files.exists(m.from()), m.from().toString());
+            assertTrue(Files.exists(m.to()), m.to().toString());
+        }
+        assertNull(engine.interrupted());
+        assertEquals(FILES, engine.lastRun().total(), "the finished run can be undone");
+    }
+
+    @Test
+    void rollbackMovesBackWhatTheRunMoved() throws Exception {
+        List<MovePlan.Move> moves = interruptedRun();
+        Engine engine = engine();
+        MovePlan.Result result = engine.rollback(ProgressMeter.silent());
+
+        assertTrue(result.errors().isEmpty(), result.errors().toString());
+        for (MovePlan.Move m : moves) {
+            assertTrue(Files.exists(m.from()), m.from().toString());
+            assertFalse(Files.exists(m.to()), m.to().toString());
+        }
+        assertEquals("file 7", Files.readString(moves.get(7).from()));
+        assertNull(engine.interrupted());
+        assertNull(engine.lastRun());
+    }
+
+    @Test
+    void aPlanThatWasNotWrittenCompletelyMeansNothingWasTouched() throws IOException {
+        Path src = Files.createDirectories(tmp.resolve("src"));
+        List<MovePlan.Move> moves = List.of(new MovePlan.Move(src.resolve("a.jpg"), src.resolve("b.jpg")));
+        Journal.create(config().resolve("journal"), Journal.Kind.RENAME, moves).close();
+        Path file = config().resolve("journal").resolve(Journal.RUNNING);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 2));
+
+        assertNull(engine().interrupted());
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.autoorganizer.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MovePlanTest {
+
+    @TempDir
+    Path tmp;
+
+    /** The first of name, stem_1.ext, stem_2.ext, ... not in {@code taken}, without case; the slow way. */
+    private static String firstFree(String name, Set<String> taken) {
+        int dot = name.lastIndexOf('.');
+        String stem = dot > 0 ? name.substring(0, dot) : name, ext = dot > 0 ? name.substring(dot) : "";
+        String candidate = name;
+        for (int i = 1; taken.contains(candidate.toLowerCase(Locale.ROOT)); i++) candidate = stem + "_" + i + ext;
+        taken.add(candidate.toLowerCase(Locale.ROOT));
+        return candidate;
+    }
+
+    @Test
+    void conflictsAreResolvedAgainstTheFolderAndEachOther() throws Exception {
+        Path dst = Files.createDirectories(tmp.resolve("dst"));
+        for (String existing : List.of("photo.jpg", "PHOTO_1.jpg", "notes", ".bashrc")) Files.writeString(dst.resolve(existing), "old");
+        List<String> names = List.of("photo.jpg", "photo.jpg", "Photo.JPG", "notes", "notes", ".bashrc", "new.txt", "photo_3.jpg");
+        MovePlan.Builder builder = new MovePlan.Builder(Journal.Kind.ORGANIZE);
+        for (int i = 0; i < names.size(); i++) {
+            Path from = Files.writeString(Files.createDirectories(tmp.resolve("src" + i)).resolve(names.get(i)), "file " + i);
+            builder.add(from, dst.resolve(names.get(i)));
+        }
+        MovePlan plan = builder.build();
+
+        assertEquals(List.of("photo_2.jpg", "photo_3.jpg", "Photo_4.JPG", "notes_1", "notes_2", ".bashrc_1", "new.txt", "photo_3_1.jpg"),
+                plan.moves().stream().map(m -> m.to().getFileName().toString()).toList());
+        assertEquals(7, plan.renamed());
+
+        MovePlan.Result result = plan.execute(2, 1, ProgressMeter.silent(), null);
+        assertTrue(result.errors().isEmpty(), result.errors().toString());
+        assertEquals(names.size(), result.moved());
+        for (int i = 0; i < names.size(); i++) assertEquals("file " + i, Files.readString(plan.moves().get(i).to()));
+        assertEquals("old", Files.readString(dst.resolve("photo.jpg")), "nothing is overwritten");
+    }
+
+    @Test
+    void manySameNamesGetWhatAOneByOneSearchWouldGive() throws IOException {
+        Path dst = Files.createDirectories(tmp.resolve("dst"));
+        Random random = new Random(5);
+        String[] stems = {"IMG_0001", "img_0001_2", "a", "A_1", "scan"};
+        String[] exts = {".jpg", ".JPG", "", ".tar.gz"};
+        Set<String> taken = new HashSet<>();
+        for (int i = 0; i < 30; i++) {
+            String name = stems[random.nextInt(stems.length)] + (random.nextBoolean() ? "_" + random.nextInt(6) : "") + exts[random.nextInt(exts.length)];
+            if (taken.add(name.toLowerCase(Locale.ROOT))) Files.createFile(dst.resolve(name));
+        }
+
+        MovePlan.Builder builder = new MovePlan.Builder(Journal.Kind.RENAME);
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String name = stems[random.nextInt(stems.length)] + exts[random.nextInt(exts.length)];
+            builder.add(tmp.resolve("src/" + i), dst.resolve(name));
+            expected.add(firstFree(name, taken));
+        }
+        assertEquals(expected, builder.build().moves().stream().map(m -> m.to().getFileName().toString()).toList());
+    }
+
+    @Test
+    void aFileAlreadyAtItsTargetIsNotPlanned() throws IOException {
+        Path file = Files.writeString(tmp.resolve("done.txt"), "sorted");
+        MovePlan.Builder builder = new MovePlan.Builder(Journal.Kind.ORGANIZE);
+        builder.add(file, file);
+        assertEquals(List.of(), builder.build().moves());
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.autoorganizer.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleSetTest {
+
+    @TempDir
+    Path tmp;
+
+    private static Rule named(String target, String glob) {
+        Rule r = new Rule(target, null);
+        r.name = glob;
+        return r;
+    }
+
+    /** Target folder for a file with that name, created empty in the organized directory. */
+    private String match(RuleSet rules, String name) throws IOException {
+        Path p = tmp.resolve(name);
+        if (!Files.exists(p)) Files.createFile(p);
+        return rules.matcher().match(p, Files.readAttributes(p, BasicFileAttributes.class));
+    }
+
+    @Test
+    void globsAreAnchoredUnlessTheyStartOrEndWithAStar() throws IOException {
+        RuleSet rules = RuleSet.compile(List.of(
+                named("Exact", "notes.txt"),
+                named("Camera", "IMG_*"),
+                named("Temp", "*.tmp"),
+                named("Scans", "*scan*"),
+                named("Numbered", "DSC_????.jpg")), Map.of(), tmp);
+
+        assertEquals("Exact", match(rules, "NOTES.TXT"));
+        assertNull(match(rules, "old notes.txt"));
+        assertEquals("Camera", match(rules, "img_0001.jpg"));
+        assertNull(match(rules, "copy of IMG_0001.jpg"));
+        assertEquals("Temp", match(rules, "build.tmp"));
+        assertNull(match(rules, "build.tmp.bak"));
+        assertEquals("Scans", match(rules, "scan.pdf"));
+        assertEquals("Scans", match(rules, "tax_SCAN_2024.pdf"));
+        // "?" goes to the regex fallback, which is anchored on both ends
+        assertEquals("Numbered", match(rules, "DSC_1234.jpg"));
+        assertNull(match(rules, "DSC_12345.jpg"));
+    }
+
+    @Test
+    void theAutomatonAgreesWithTheRegexForEveryGlobItTakes() {
+        List<String> globs = List.of("a", "ab", "b*", "*b", "*ab*", "*aba*", "ba*", "*bab", "abab", "*a*");
+        RuleSet.NameAutomaton.Builder builder = new RuleSet.NameAutomaton.Builder();
+        List<Pattern> regexes = new ArrayList<>();
+        for (String g : globs) {
+            assertEquals(regexes.size(), builder.add(g));
+            regexes.add(Pattern.compile(RuleSet.globToRegex(g), Pattern.CASE_INSENSITIVE));
+        }
+        RuleSet.NameAutomaton automaton = builder.build();
+        long[] hits = new long[1];
+        // every name over {a, b, A} up to six characters
+        for (int len = 0; len <= 6; len++) {
+            for (int code = 0; code < Math.pow(3, len); code++) {
+                StringBuilder name = new StringBuilder();
+                for (int i = 0, c = code; i < len; i++, c /= 3) name.append("abA".charAt(c % 3));
+                automaton.scan(name.toString(), hits);
+                for (int pat = 0; pat < globs.size(); pat++) {
+                    assertEquals(regexes.get(pat).matcher(name).matches(), (hits[0] & (1L << pat)) != 0,
+                            globs.get(pat) + " on \"" + name + "\"");
+                }
+            }
+        }
+    }
+
+    @Test
+    void theFirstMatchingRuleWinsWhetherItListsOnlyExtensionsOrMore() throws IOException {
+        Rule screenshots = named("Screenshots", "Screenshot*");
+        screenshots.extensions = List.of("png");
+        Rule large = new Rule("Large", null);
+        large.minSize = 1000L;
+        Map<String, String> categoryMap = new LinkedHashMap<>();
+        categoryMap.put("png", "Képek");
+        categoryMap.put("JPG", "Képek");
+        categoryMap.put("*", "Egyéb");
+        RuleSet rules = RuleSet.compile(List.of(
+                new Rule("Dokumentumok", List.of("pdf")),
+                screenshots,
+                new Rule("Archívum", List.of(".zip", "png")),
+                large), categoryMap, tmp);
+
+        // a rule with more than extensions before the table hit is tried first
+        assertEquals("Screenshots", match(rules, "Screenshot 2024.PNG"));
+        // an extension-only rule ranked above it wins without evaluating it
+        Files.write(tmp.resolve("big.pdf"), new byte[2000]);
+        assertEquals("Dokumentumok", match(rules, "big.pdf"));
+        // the rules come before the extension map, and the earlier of two extension rules wins
+        assertEquals("Archívum", match(rules, "photo.png"));
+        assertEquals("Archívum", match(rules, "backup.ZIP"));
+        Files.write(tmp.resolve("big.jpg"), new byte[2000]);
+        assertEquals("Large", match(rules, "big.jpg"));
+        assertEquals("Képek", match(rules, "small.jpg"));
+        assertEquals("Egyéb", match(rules, "notes.txt"));
+        assertEquals(List.of("Dokumentumok", "Screenshots", "Archívum", "Large", "Képek", "Egyéb"),
+                new ArrayList<>(rules.targets()));
+    }
+
+    @Test
+    void theEmptyExtensionMatchesFilesWithoutOne() throws IOException {
+        Rule withName = named("Makefiles", "Make*");
+        withName.extensions = List.of("");
+        RuleSet rules = RuleSet.compile(List.of(withName, new Rule("Nincs kiterjesztés", List.of(""))),
+                Map.of("txt", "Szöveg"), tmp);
+
+        assertEquals("Makefiles", match(rules, "Makefile"));
+        assertEquals("Nincs kiterjesztés", match(rules, "README"));
+        assertEquals("Nincs kiterjesztés", match(rules, "trailing."));
+        assertEquals("Szöveg", match(rules, "Makefile.txt"));
+        assertNull(match(rules, ".bashrc"), "a leading dot starts the extension");
+    }
+
+    @Test
+    void aRuleWithoutATargetIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> RuleSet.compile(List.of(new Rule(" ", List.of("pdf"))), Map.of(), tmp));
+    }
+}
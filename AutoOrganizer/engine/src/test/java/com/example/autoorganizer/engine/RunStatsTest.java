@@ -0,0 +1,42 @@
+package com.example.autoorganizer.engine;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunStatsTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void operationsAreGroupedByFileSystem() throws Exception {
+        RunStats stats = new RunStats();
+        for (int i = 0; i < 50; i++) {
+            Path dir = Files.createDirectories(tmp.resolve("d" + i).resolve("sub"));
+            stats.record(RunStats.Op.STAT, dir.resolve("a.txt"), 1000, 0);
+        }
+        // a folder emptied and removed by a move counts with the disk it was on
+        stats.record(RunStats.Op.MOVE, tmp.resolve("gone/already/b.txt"), 2000, 10);
+        stats.record(RunStats.Op.PROGRESS, null, 10, 0);
+
+        JsonObject json = JsonParser.parseString(stats.toJson("test", "SUCCEEDED")).getAsJsonObject();
+        String disk = Files.getFileStore(tmp).name();
+        long stat = 0, move = 0;
+        for (var e : json.getAsJsonArray("operations")) {
+            JsonObject op = e.getAsJsonObject();
+            String name = op.get("disk").getAsString();
+            assertTrue(name.equals(disk) || name.equals("-"), name);
+            if (op.get("op").getAsString().equals("STAT")) stat += op.get("count").getAsLong();
+            if (op.get("op").getAsString().equals("MOVE")) move += op.get("count").getAsLong();
+        }
+        assertEquals(50, stat);
+        assertEquals(1, move);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.autoorganizer.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimilarImagesTest {
+
+    /** Distinct hashes: clusters of a few flipped bits around random centres, and loners. */
+    private static long[] hashes(Random random) {
+        Set<Long> all = new LinkedHashSet<>();
+        for (int c = 0; c < 40; c++) {
+            long centre = random.nextLong();
+            all.add(centre);
+            for (int i = 0; i < 20; i++) {
+                long h = centre;
+                for (int flips = random.nextInt(12); flips > 0; flips--) h ^= 1L << random.nextInt(64);
+                all.add(h);
+            }
+        }
+        while (all.size() < 1200) all.add(random.nextLong());
+        return all.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    @Test
+    void bkTreeFindsExactlyWhatABruteForceSearchFinds() {
+        Random random = new Random(42);
+        long[] hashes = hashes(random);
+        SimilarImages.BkTree tree = new SimilarImages.BkTree();
+        for (int i = 0; i < hashes.length; i++) tree.add(hashes[i], i);
+
+        for (int maxDistance : new int[]{0, 1, 3, 6, 10, 16, 32, 64}) {
+            for (int q = 0; q < 200; q++) {
+                // half the queries are stored hashes, half are new
+                long query = q % 2 == 0 ? hashes[random.nextInt(hashes.length)] : random.nextLong();
+                Set<Integer> expected = new TreeSet<>();
+                for (int i = 0; i < hashes.length; i++) {
+                    if (Long.bitCount(query ^ hashes[i]) <= maxDistance) expected.add(i);
+                }
+                List<Integer> found = new ArrayList<>();
+                tree.near(query, maxDistance, found::add);
+                assertEquals(expected.size(), found.size(), "each hash is reported once");
+                assertEquals(expected, new TreeSet<>(found), "distance " + maxDistance);
+            }
+        }
+    }
+
+    @Test
+    void aChainOfSmallEditsStaysOneGroup() {
+        Map<Long, List<Path>> byHash = new LinkedHashMap<>();
+        Map<Path, Long> sizes = new HashMap<>();
+        long a = 0L, b = 0b111L, c = 0b111111L, far = -1L;
+        byHash.put(a, List.of(Path.of("a1.jpg"), Path.of("a2.jpg")));
+        byHash.put(b, List.of(Path.of("b.jpg")));
+        byHash.put(c, List.of(Path.of("c.jpg")));
+        byHash.put(far, List.of(Path.of("far.jpg")));
+        for (List<Path> paths : byHash.values()) for (Path p : paths) sizes.put(p, 10L);
+
+        // a and c are 6 bits apart, but each is 3 from b
+        List<SimilarImages.Group> groups = SimilarImages.group(byHash, sizes, 3, ProgressMeter.silent());
+        assertEquals(1, groups.size());
+        assertEquals(List.of(Path.of("a1.jpg"), Path.of("a2.jpg"), Path.of("b.jpg"), Path.of("c.jpg")),
+                groups.get(0).images().stream().map(SimilarImages.Image::path).toList());
+
+        // at distance 2 only the exact duplicates are left
+        groups = SimilarImages.group(byHash, sizes, 2, ProgressMeter.silent());
+        assertEquals(1, groups.size());
+        assertEquals(2, groups.get(0).images().size());
+    }
+}
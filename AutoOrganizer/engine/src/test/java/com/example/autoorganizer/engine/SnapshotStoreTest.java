@@ -0,0 +1,85 @@
+package com.example.autoorganizer.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class SnapshotStoreTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void snapshotIndexSurvivesARoundTrip() throws Exception {
+        Path src = tmp.resolve("src"), dst = tmp.resolve("dst");
+        byte[] big = new byte[3 << 20];
+        new Random(1).nextBytes(big);
+        Files.createDirectories(src.resolve("sub"));
+        Files.write(src.resolve("big.bin"), big);
+        Files.writeString(src.resolve("sub/small.txt"), "small");
+
+        SnapshotStore store = new SnapshotStore(dst);
+        Backup.Summary sum = store.backup(src, new FileScanner(List.of()), 5, ProgressMeter.silent());
+        assertEquals(2, sum.copied());
+        List<String> names = store.snapshots();
+        assertEquals(1, names.size());
+
+        List<SnapshotStore.FileEntry> entries = store.readSnapshot(names.get(0));
+        assertEquals(2, entries.size());
+        for (SnapshotStore.FileEntry e : entries) {
+            assertEquals(Files.size(src.resolve(e.path())), e.size());
+            assertFalse(e.chunks().isEmpty());
+        }
+
+        Path all = tmp.resolve("all"), one = tmp.resolve("one");
+        assertEquals(2, store.restore(names.get(0), null, all, ProgressMeter.silent()));
+        assertArrayEquals(big, Files.readAllBytes(all.resolve("big.bin")));
+        assertEquals("small", Files.readString(all.resolve("sub/small.txt")));
+        assertEquals(1, store.restore(names.get(0), "sub", one, ProgressMeter.silent()));
+        assertFalse(Files.exists(one.resolve("big.bin")));
+        assertEquals("small", Files.readString(one.resolve("sub/small.txt")));
+    }
+
+    @Test
+    void anUnchangedTreeReusesTheEntriesOfTheLastSnapshot() throws Exception {
+        Path src = tmp.resolve("src"), dst = tmp.resolve("dst");
+        Files.createDirectories(src);
+        Files.writeString(src.resolve("a.txt"), "a");
+        SnapshotStore store = new SnapshotStore(dst);
+        store.backup(src, new FileScanner(List.of()), 5, ProgressMeter.silent());
+        Thread.sleep(1100); // snapshot names have a resolution of one second
+
+        Backup.Summary second = store.backup(src, new FileScanner(List.of()), 5, ProgressMeter.silent());
+        assertEquals(0, second.copied());
+        assertEquals(1, second.skipped());
+        assertEquals(2, store.snapshots().size());
+    }
+
+    @Test
+    void anUnreadableFileIsLeftOutOfTheSnapshot() throws Exception {
+        Path src = tmp.resolve("src"), dst = tmp.resolve("dst");
+        Files.createDirectories(src);
+        Files.writeString(src.resolve("a.txt"), "a");
+        Path locked = Files.writeString(src.resolve("locked.txt"), "locked");
+        assumeTrue(Files.getFileStore(locked).supportsFileAttributeView("posix"));
+        Files.setPosixFilePermissions(locked, PosixFilePermissions.fromString("---------"));
+        try {
+            assumeTrue(!Files.isReadable(locked), "permissions are not enforced for this user");
+            SnapshotStore store = new SnapshotStore(dst);
+            Backup.Summary sum = store.backup(src, new FileScanner(List.of()), 5, ProgressMeter.silent());
+            assertEquals(1, sum.copied());
+            assertEquals(List.of(locked), List.copyOf(sum.errors().keySet()));
+            assertEquals(List.of("a.txt"), store.readSnapshot(store.snapshots().get(0)).stream().map(SnapshotStore.FileEntry::path).toList());
+        } finally {
+            Files.setPosixFilePermissions(locked, PosixFilePermissions.fromString("rw-------"));
+        }
+    }
+}